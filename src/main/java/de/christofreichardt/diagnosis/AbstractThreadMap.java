@@ -16,9 +16,13 @@
 
 package de.christofreichardt.diagnosis;
 
+import java.util.NoSuchElementException;
+
 /**
  * Has been introduced to exchange thread maps which are based on <code>Map&lt;Thread,TracingContext&gt;</code> with
- * thread maps which are based on <code>ThreadLocal</code>s and vice versa.
+ * thread maps which are based on <code>ThreadLocal</code>s and vice versa. Implementations need to provide the lookup
+ * of the {@link TracingContext} of the current thread only. The stack operations work on a context handle, hence callers
+ * might look up the context once per operation and pass it along.
  *
  * @author Christof Reichardt
  */
@@ -38,7 +42,7 @@ abstract public class AbstractThreadMap {
         }
     }
 
-    /** denotes the maximal number of traced methods on the stack */
+    /** denotes the default maximal number of traced methods on the stack */
     public static final int STACK_SIZE = 50;
 
     /**
@@ -54,7 +58,67 @@ abstract public class AbstractThreadMap {
 
     abstract TracingContext removeCurrentTracingContext();
 
-    abstract boolean push(TraceMethod traceMethod);
+    /**
+     * Pushs a method onto the stack of the current thread.
+     *
+     * @param traceMethod the method to be pushed
+     * @return true if the method has been pushed
+     */
+    boolean push(TraceMethod traceMethod) {
+        return push(getCurrentTracingContext(), traceMethod);
+    }
+
+    /**
+     * Pushs a method onto the stack of the given tracing context.
+     *
+     * @param tracingContext the tracing context of the current thread, might be null
+     * @param traceMethod    the method to be pushed
+     * @return true if the method has been pushed
+     */
+    boolean push(TracingContext tracingContext, TraceMethod traceMethod) {
+        boolean success;
+        if (tracingContext != null && !tracingContext.isCorrupted()) {
+            if (tracingContext.getStackSize() >= tracingContext.getMaxStackSize()) {
+                tracingContext.setCorrupted(true);
+                throw new AbstractThreadMap.RuntimeException("Stacksize is exceeded.");
+            } else {
+                tracingContext.push(traceMethod);
+                success = true;
+            }
+        } else {
+            success = false;
+        }
+
+        return success;
+    }
 
-    abstract TraceMethod pop();
+    /**
+     * Pops a method from the stack of the current thread.
+     *
+     * @return the popped method
+     */
+    TraceMethod pop() {
+        return pop(getCurrentTracingContext());
+    }
+
+    /**
+     * Pops a method from the stack of the given tracing context.
+     *
+     * @param tracingContext the tracing context of the current thread, might be null
+     * @return the popped method or null
+     */
+    TraceMethod pop(TracingContext tracingContext) {
+        TraceMethod traceMethod = null;
+        if (tracingContext != null && !tracingContext.isCorrupted()) {
+            try {
+                traceMethod = tracingContext.pop();
+                traceMethod.stopTime();
+            } catch (NoSuchElementException ex) {
+                tracingContext.setCorrupted(true);
+                throw new AbstractThreadMap.RuntimeException(ex);
+            }
+        }
+
+        return traceMethod;
+    }
 }
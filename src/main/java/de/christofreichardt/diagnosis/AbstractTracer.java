@@ -18,13 +18,15 @@ package de.christofreichardt.diagnosis;
 
 import de.christofreichardt.diagnosis.io.*;
 import java.io.BufferedOutputStream;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Formatter;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
@@ -137,18 +139,30 @@ abstract public class AbstractTracer {
     /** should be used as an (preferably) unique identifier amongst all tracer instances */
     final private String name;
     /** indicates if the output streams have been opened yet */
-    private boolean opened = false;
+    private volatile boolean opened = false;
     /** indicates whether the output stream will be flushed when leaving a method by {@link #wayout()} */
     private boolean autoflush = true; // TODO: think about volatile
+    /** determines when the output stream will be flushed */
+    private volatile FlushPolicy flushPolicy = FlushPolicy.ALWAYS;
+    /** determines which clocks will be read for the RETURN lines */
+    private volatile TimingMode timingMode = TimingMode.WALL_CPU;
+    /** the unit of the elapsed times within the RETURN lines */
+    private volatile TimeUnit timingUnit = TimeUnit.MILLISECONDS;
+    /** the maximal number of methods on the stack of tracing contexts to be initialised */
+    private volatile int maxStackSize = AbstractThreadMap.STACK_SIZE;
+    /** the periodic flush task, if any */
+    private ScheduledFuture<?> flushTask = null;
+    /** guards the scheduling of the periodic flush task */
+    private final Object flushTaskLock = new Object();
     /** the buffer size */
     private int bufferSize = 512;
 
     /** the undesired output will be bypassed into this PrintStream */
     private final NullPrintStream nullPrintStream;
-    /** used for buffering of the trace output */
-    private BufferedOutputStream bufferedOutputStream = null;
+    /** the stream beneath the actual {@link TracePrintStream}, usually a buffer */
+    private OutputStream traceOutputStream = null;
     /** a specialised PrintStream suitable for indented output */
-    private TracePrintStream tracePrintStream;
+    private volatile TracePrintStream tracePrintStream;
 
     /** provides access to the tracing contexts indexed by Threads */
     private final AbstractThreadMap threadMap = new ThreadLocalMap();
@@ -195,6 +209,7 @@ abstract public class AbstractTracer {
      */
     protected void setOpened(boolean opened) {
         this.opened = opened;
+        scheduleFlushTask();
     }
 
     /**
@@ -215,6 +230,173 @@ abstract public class AbstractTracer {
      */
     protected void setAutoflush(boolean autoflush) {
         this.autoflush = autoflush;
+        this.flushPolicy = autoflush ? FlushPolicy.ALWAYS : FlushPolicy.NEVER;
+        scheduleFlushTask();
+    }
+
+    /**
+     * Gives the policy which determines when the output stream will be flushed.
+     *
+     * @return the flushPolicy
+     */
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    /**
+     * Sets the policy which determines when the output stream will be flushed. Supersedes the autoflush mode.
+     *
+     * @param flushPolicy the flushPolicy to set
+     */
+    public void setFlushPolicy(FlushPolicy flushPolicy) {
+        this.flushPolicy = Objects.requireNonNull(flushPolicy);
+        this.autoflush = flushPolicy.isAlways();
+        scheduleFlushTask();
+    }
+
+    /**
+     * Gives the timing mode, that is which clocks will be read to report the elapsed times within the RETURN lines.
+     *
+     * @return the timingMode
+     */
+    public TimingMode getTimingMode() {
+        return timingMode;
+    }
+
+    /**
+     * Sets the timing mode, that is which clocks will be read to report the elapsed times within the RETURN lines.
+     *
+     * @param timingMode the timingMode to set
+     */
+    public void setTimingMode(TimingMode timingMode) {
+        this.timingMode = Objects.requireNonNull(timingMode);
+    }
+
+    /**
+     * Gives the unit of the elapsed times within the RETURN lines.
+     *
+     * @return the timingUnit
+     */
+    public TimeUnit getTimingUnit() {
+        return timingUnit;
+    }
+
+    /**
+     * Sets the unit of the elapsed times within the RETURN lines. Supported are nanoseconds, microseconds and milliseconds.
+     *
+     * @param timingUnit the timingUnit to set
+     */
+    public void setTimingUnit(TimeUnit timingUnit) {
+        unitSymbol(timingUnit);
+        this.timingUnit = timingUnit;
+    }
+
+    /**
+     * Gives the maximal number of methods on the stack of a tracing context.
+     *
+     * @return the maxStackSize
+     */
+    public int getMaxStackSize() {
+        return maxStackSize;
+    }
+
+    /**
+     * Sets the maximal number of methods on the stack of a tracing context. Applies to tracing contexts which will be initialised
+     * afterwards.
+     *
+     * @param maxStackSize the maxStackSize to set
+     */
+    public void setMaxStackSize(int maxStackSize) {
+        if (maxStackSize <= 0) {
+            throw new IllegalArgumentException("Invalid stack size: " + maxStackSize);
+        }
+        this.maxStackSize = maxStackSize;
+    }
+
+    /**
+     * Maps the supported time units on their symbols used within the RETURN lines.
+     *
+     * @param timeUnit the time unit
+     * @return the symbol
+     */
+    static String unitSymbol(TimeUnit timeUnit) {
+        switch (Objects.requireNonNull(timeUnit)) {
+            case NANOSECONDS:
+                return "ns";
+            case MICROSECONDS:
+                return "us";
+            case MILLISECONDS:
+                return "ms";
+            default:
+                throw new IllegalArgumentException("Unsupported time unit: " + timeUnit);
+        }
+    }
+
+    /**
+     * Maps the symbols used by the configuration on the supported time units.
+     *
+     * @param symbol one of ns, us or ms
+     * @return the time unit
+     */
+    static TimeUnit timeUnitOf(String symbol) {
+        switch (symbol) {
+            case "ns":
+                return TimeUnit.NANOSECONDS;
+            case "us":
+                return TimeUnit.MICROSECONDS;
+            case "ms":
+                return TimeUnit.MILLISECONDS;
+            default:
+                throw new IllegalArgumentException("Unsupported time unit: " + symbol);
+        }
+    }
+
+    /**
+     * Holds the daemon thread which flushes the output streams of all tracers with an interval based {@link FlushPolicy}.
+     */
+    private static class FlushScheduler {
+        static final ScheduledThreadPoolExecutor EXECUTOR = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "TraceFlusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        static {
+            EXECUTOR.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    /**
+     * (Re)schedules the periodic flush task according to the opened state and the flush policy.
+     */
+    private void scheduleFlushTask() {
+        synchronized (this.flushTaskLock) {
+            if (this.flushTask != null) {
+                this.flushTask.cancel(false);
+                this.flushTask = null;
+            }
+            long intervalMillis = this.flushPolicy.getIntervalMillis();
+            if (this.opened && intervalMillis != -1) {
+                this.flushTask = FlushScheduler.EXECUTOR.scheduleWithFixedDelay(this::flushPeriodically, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Flushes the output stream if there are unflushed bytes.
+     */
+    private void flushPeriodically() {
+        TracePrintStream printStream = this.tracePrintStream;
+        if (this.opened && printStream.getUnflushedBytes() > 0) {
+            printStream.lock();
+            try {
+                if (this.opened) {
+                    printStream.flush();
+                }
+            } finally {
+                printStream.unlock();
+            }
+        }
     }
 
     /**
@@ -275,12 +457,13 @@ abstract public class AbstractTracer {
     /**
      * Derived classes may use this getter to retrieve the buffer of the actual {@link TracePrintStream}.
      *
-     * @return the bufferedOutputStream
+     * @return the bufferedOutputStream or null if the stream beneath the {@link TracePrintStream} isn't buffered, see
+     * {@link #getTraceOutputStream()}
      * @see #open()
      * @see #close()
      */
     protected BufferedOutputStream getBufferedOutputStream() {
-        return bufferedOutputStream;
+        return this.traceOutputStream instanceof BufferedOutputStream ? (BufferedOutputStream) this.traceOutputStream : null;
     }
 
     /**
@@ -292,7 +475,30 @@ abstract public class AbstractTracer {
      * @see #close()
      */
     protected void setBufferedOutputStream(BufferedOutputStream bufferedOutputStream) {
-        this.bufferedOutputStream = bufferedOutputStream;
+        this.traceOutputStream = bufferedOutputStream;
+    }
+
+    /**
+     * Derived classes may use this getter to retrieve the stream beneath the actual {@link TracePrintStream}.
+     *
+     * @return the traceOutputStream
+     * @see #open()
+     * @see #close()
+     */
+    protected OutputStream getTraceOutputStream() {
+        return this.traceOutputStream;
+    }
+
+    /**
+     * Derived classes may use this setter to inform the base class about the stream beneath the actual {@link TracePrintStream},
+     * which hasn't to be a buffer, e.g. an {@link de.christofreichardt.diagnosis.io.AsyncOutputStream}.
+     *
+     * @param traceOutputStream the traceOutputStream to set
+     * @see #open()
+     * @see #close()
+     */
+    protected void setTraceOutputStream(OutputStream traceOutputStream) {
+        this.traceOutputStream = traceOutputStream;
     }
 
     /**
@@ -338,7 +544,43 @@ abstract public class AbstractTracer {
         this.autoflush = "true".equals(xpath.evaluate("./dns:AutoFlush/text()", node, XPathConstants.STRING));
         this.bufferSize = Integer.parseInt((String) xpath.evaluate("./dns:BufSize/text()", node, XPathConstants.STRING));
 
+        String strFlushPolicy = (String) xpath.evaluate("./dns:FlushPolicy/text()", node, XPathConstants.STRING);
+        if (!strFlushPolicy.isBlank()) {
+            try {
+                this.flushPolicy = FlushPolicy.parse(strFlushPolicy);
+            } catch (IllegalArgumentException ex) {
+                throw new AbstractTracer.Exception(ex);
+            }
+            this.autoflush = this.flushPolicy.isAlways();
+        } else {
+            this.flushPolicy = this.autoflush ? FlushPolicy.ALWAYS : FlushPolicy.NEVER;
+        }
+        scheduleFlushTask();
+
+        String strTimingMode = ((String) xpath.evaluate("./dns:Timing/dns:Mode/text()", node, XPathConstants.STRING)).strip();
+        if (!strTimingMode.isEmpty()) {
+            this.timingMode = TimingMode.valueOf(strTimingMode);
+        } else {
+            this.timingMode = TimingMode.WALL_CPU;
+        }
+        String strTimingUnit = ((String) xpath.evaluate("./dns:Timing/dns:Unit/text()", node, XPathConstants.STRING)).strip();
+        if (!strTimingUnit.isEmpty()) {
+            this.timingUnit = timeUnitOf(strTimingUnit);
+        } else {
+            this.timingUnit = TimeUnit.MILLISECONDS;
+        }
+        String strStackSize = ((String) xpath.evaluate("./dns:StackSize/text()", node, XPathConstants.STRING)).strip();
+        if (!strStackSize.isEmpty()) {
+            this.maxStackSize = Integer.parseInt(strStackSize);
+        } else {
+            this.maxStackSize = AbstractThreadMap.STACK_SIZE;
+        }
+
         System.out.println("this.autoflush = " + this.autoflush);
+        System.out.println("this.flushPolicy = " + this.flushPolicy);
+        System.out.println("this.timingMode = " + this.timingMode);
+        System.out.println("this.timingUnit = " + this.timingUnit);
+        System.out.println("this.maxStackSize = " + this.maxStackSize);
         System.out.println("this.bufferSize = " + this.bufferSize);
 
         NodeList threadNodes = (NodeList) xpath.evaluate("./dns:Context/dns:Thread", node, XPathConstants.NODESET);
@@ -375,7 +617,18 @@ abstract public class AbstractTracer {
      * @return an {@link IndentablePrintStream}
      */
     public IndentablePrintStream out() {
-        return out(this.threadMap.getCurrentStackSize());
+        return out(this.threadMap.getCurrentTracingContext());
+    }
+
+    /**
+     * Returns some kind of {@link IndentablePrintStream} based upon the given tracing context of the current thread. This is
+     * the same as {@link #out()} but spares callers which already hold the context another lookup.
+     *
+     * @param tracingContext the tracing context of the current thread, might be null
+     * @return an {@link IndentablePrintStream}
+     */
+    protected IndentablePrintStream out(TracingContext tracingContext) {
+        return tracingContext != null ? out(tracingContext, tracingContext.getStackSize()) : this.nullPrintStream;
     }
 
     /**
@@ -387,15 +640,13 @@ abstract public class AbstractTracer {
      * @return an {@link IndentablePrintStream}
      */
     protected IndentablePrintStream out(int level) {
-        IndentablePrintStream printStream;
+        return level >= 0 ? out(this.threadMap.getCurrentTracingContext(), level) : this.nullPrintStream;
+    }
 
-        if (level >= 0) {
-            TracingContext tracingContext = this.threadMap.getCurrentTracingContext();
-            if (tracingContext != null && tracingContext.isOnline() && tracingContext.getDebugLevel() >= level) {
-                printStream = this.tracePrintStream;
-            } else {
-                printStream = this.nullPrintStream;
-            }
+    private IndentablePrintStream out(TracingContext tracingContext, int level) {
+        IndentablePrintStream printStream;
+        if (tracingContext != null && tracingContext.isEnabled(level)) {
+            printStream = this.tracePrintStream;
         } else {
             printStream = this.nullPrintStream;
         }
@@ -413,12 +664,29 @@ abstract public class AbstractTracer {
      */
     @Deprecated
     public TraceMethod entry(String methodSignature) {
-        out().runWithLock(() -> out().printfIndentln("ENTRY--" + methodSignature + "--" + Thread.currentThread().getName() + "[" + Thread.currentThread().getId() + "]"));
+        TracingContext tracingContext = this.threadMap.getCurrentTracingContext();
+        if (tracingContext == null || tracingContext.isCorrupted()) {
+            return null;
+        }
+        TraceMethod traceMethod = tracingContext.nextFrame();
+        traceMethod.init(null, (Class<?>) null, methodSignature);
+
+        return pushMethod(tracingContext, traceMethod);
+    }
+
+    /**
+     * Prints the ENTRY record of the given method, pushes the method onto the stack of the current thread and handles a
+     * stack overflow. The given tracing context is used throughout, it won't be looked up again.
+     *
+     * @param tracingContext the tracing context of the current thread
+     * @param traceMethod    the initialised frame
+     * @return the pushed TraceMethod or null
+     */
+    private TraceMethod pushMethod(TracingContext tracingContext, TraceMethod traceMethod) {
+        printMethodEntry(tracingContext, traceMethod);
 
-        TraceMethod traceMethod = null;
         try {
-            traceMethod = new TraceMethod(methodSignature);
-            if (!this.threadMap.push(traceMethod)) {
+            if (!this.threadMap.push(tracingContext, traceMethod)) {
                 traceMethod = null;
             }
         } catch (AbstractThreadMap.RuntimeException ex) {
@@ -429,12 +697,100 @@ abstract public class AbstractTracer {
     }
 
     /**
-     * Prints the method signature on the {@link de.christofreichardt.diagnosis.io.IndentablePrintStream}.
+     * Prints the method signature on the {@link de.christofreichardt.diagnosis.io.IndentablePrintStream}. The record will
+     * be assembled within the reusable buffer of the tracing context and written by a single call. The clocks will be started
+     * only if the record is actually printed since only then the RETURN line will be printed too. Streams with binary format
+     * receive a structured record instead. Striped or asynchronous streams won't be locked. Nothing else happens if the tracing context is
+     * offline or below its debug level, not even the check for a log file rotation.
      *
-     * @param methodSignature the method signature to be printed
+     * @param tracingContext the tracing context of the current thread
+     * @param traceMethod    the method to be printed
      */
-    private void printMethodEntry(String methodSignature) {
-        out().runWithLock(() -> out().printfIndentln("ENTRY--" + methodSignature + "--" + Thread.currentThread().getName() + "[" + Thread.currentThread().getId() + "]"));
+    private void printMethodEntry(TracingContext tracingContext, TraceMethod traceMethod) {
+        if (!tracingContext.isEnabled()) {
+            return;
+        }
+        IndentablePrintStream printStream = out(tracingContext);
+        if (printStream != this.nullPrintStream) {
+            traceMethod.startTime(this.timingMode);
+            RecordBuffer recordBuffer = tracingContext.getRecordBuffer().reset();
+            if (binaryStreamOf(printStream) == null) {
+                encodeMethodEntry(recordBuffer, tracingContext.getStackSize(), traceMethod);
+            }
+            boolean locking = !isLockFree(printStream);
+            if (locking) {
+                printStream.lock();
+            }
+            try {
+                IndentablePrintStream currentStream = out(tracingContext, tracingContext.getStackSize()); // the stream might have been replaced by a log file rotation
+                BinaryTraceOutputStream binaryStream = binaryStreamOf(currentStream);
+                if (binaryStream != null) {
+                    traceMethod.writeEntry(binaryStream, tracingContext.getStackSize(), Thread.currentThread());
+                } else {
+                    if (recordBuffer.length() == 0) {
+                        encodeMethodEntry(recordBuffer, tracingContext.getStackSize(), traceMethod);
+                    }
+                    recordBuffer.writeTo(currentStream);
+                }
+            } catch (IOException ex) {
+                ex.printStackTrace(System.err);
+            } finally {
+                if (locking) {
+                    printStream.unlock();
+                }
+            }
+        }
+    }
+
+    private void encodeMethodEntry(RecordBuffer recordBuffer, int stackSize, TraceMethod traceMethod) {
+        recordBuffer.appendIndentation(stackSize).append("ENTRY--");
+        traceMethod.appendSignature(recordBuffer);
+        appendThread(recordBuffer);
+    }
+
+    private void encodeMethodReturn(RecordBuffer recordBuffer, int stackSize, TraceMethod traceMethod, TimingMode currentTimingMode,
+                                    TimeUnit currentTimingUnit) {
+        recordBuffer.appendIndentation(stackSize).append("RETURN-");
+        traceMethod.appendSignature(recordBuffer);
+        if (currentTimingMode != TimingMode.NONE) {
+            String symbol = unitSymbol(currentTimingUnit);
+            recordBuffer.append("--(+").append(currentTimingUnit.convert(traceMethod.getElapsedNanos(), TimeUnit.NANOSECONDS)).append(symbol).append(')');
+            if (currentTimingMode == TimingMode.WALL_CPU) {
+                recordBuffer.append("--(+").append(currentTimingUnit.convert(traceMethod.getElapsedCpuNanos(), TimeUnit.NANOSECONDS)).append(symbol).append(')');
+            }
+        }
+        appendThread(recordBuffer);
+    }
+
+    /**
+     * Gives the binary stream beneath the given print stream, if any.
+     *
+     * @param printStream the print stream
+     * @return the BinaryTraceOutputStream or null if the text format applies
+     */
+    private static BinaryTraceOutputStream binaryStreamOf(IndentablePrintStream printStream) {
+        return printStream instanceof TracePrintStream ? ((TracePrintStream) printStream).getBinaryTraceOutputStream() : null;
+    }
+
+    /**
+     * Indicates if whole records can be written into the given print stream without holding its lock.
+     *
+     * @param printStream the print stream
+     * @return true if the print stream writes into a {@link de.christofreichardt.diagnosis.io.StripedOutputStream} or publishes
+     * lines into an {@link de.christofreichardt.diagnosis.io.AsyncOutputStream}
+     */
+    private static boolean isLockFree(IndentablePrintStream printStream) {
+        return printStream instanceof TracePrintStream && ((TracePrintStream) printStream).isLockFree();
+    }
+
+    /**
+     * Appends the name and the id of the current thread together with the line separator.
+     *
+     * @param recordBuffer the target buffer
+     */
+    private void appendThread(RecordBuffer recordBuffer) {
+        Thread currentThread = Thread.currentThread();
+        recordBuffer.append("--").append(currentThread.getName()).append('[').append(currentThread.getId()).append(']').appendLineSeparator();
     }
 
     /**
@@ -447,27 +803,19 @@ abstract public class AbstractTracer {
      * @return the TraceMethod which has been put onto the stack - a mere data object for internal use primarily. May be null.
      */
     public TraceMethod entry(String returnType, Object object, String methodSignature) {
-        TraceMethod traceMethod;
+        TracingContext tracingContext = this.threadMap.getCurrentTracingContext();
+        if (tracingContext == null || tracingContext.isCorrupted()) {
+            return null;
+        }
 
+        TraceMethod traceMethod = tracingContext.nextFrame();
         if (object != null) {
-            traceMethod = new TraceMethod(returnType, object, methodSignature);
-            methodSignature = traceMethod.getSignature();
+            traceMethod.init(String.valueOf(returnType), object, methodSignature);
         } else {
-            methodSignature = returnType + " " + methodSignature;
-            traceMethod = new TraceMethod(methodSignature);
-        }
-
-        printMethodEntry(methodSignature);
-
-        try {
-            if (!this.threadMap.push(traceMethod)) {
-                traceMethod = null;
-            }
-        } catch (AbstractThreadMap.RuntimeException ex) {
-            logMessage(LogLevel.SEVERE, "Stacksize is exceeded. Tracing is off.", this.getClass(), "entry()");
+            traceMethod.init(String.valueOf(returnType), (Class<?>) null, methodSignature);
         }
 
-        return traceMethod;
+        return pushMethod(tracingContext, traceMethod);
     }
 
     /**
@@ -480,31 +828,76 @@ abstract public class AbstractTracer {
      * @return the TraceMethod which has been put onto the stack - a mere data object for internal use primarily. May be null.
      */
     public TraceMethod entry(String returnType, Class<?> clazz, String methodSignature) {
-        TraceMethod traceMethod;
-
-        if (clazz != null) {
-            traceMethod = new TraceMethod(returnType, clazz, methodSignature);
-            methodSignature = traceMethod.getSignature();
-        } else {
-            methodSignature = returnType + " " + methodSignature;
-            traceMethod = new TraceMethod(methodSignature);
+        TracingContext tracingContext = this.threadMap.getCurrentTracingContext();
+        if (tracingContext == null || tracingContext.isCorrupted()) {
+            return null;
         }
 
-        printMethodEntry(methodSignature);
+        TraceMethod traceMethod = tracingContext.nextFrame();
+        traceMethod.init(String.valueOf(returnType), clazz, methodSignature);
 
-        try {
-            if (!this.threadMap.push(traceMethod)) {
-                traceMethod = null;
+        return pushMethod(tracingContext, traceMethod);
+    }
+
+    /**
+     * Indicates an entering of a method which belongs to an object, see {@link #entry(String, Object, String)}. The returned
+     * {@link TraceScope} is meant for a try-with-resources statement, closing it replaces the call of {@link #wayout()}.
+     *
+     * @param returnType      the return type of the method as string representation
+     * @param object          the object that owns the method
+     * @param methodSignature the remaining method signature (without return type) inclusive parameter as string representation
+     * @return the scope of the pushed TraceMethod or {@link TraceScope#NONE} if nothing has been pushed
+     */
+    public TraceScope scopedEntry(String returnType, Object object, String methodSignature) {
+        return scopeOf(entry(returnType, object, methodSignature));
+    }
+
+    /**
+     * Indicates an entering of a method which belongs to a class, see {@link #entry(String, Class, String)}. The returned
+     * {@link TraceScope} is meant for a try-with-resources statement, closing it replaces the call of {@link #wayout()}.
+     *
+     * @param returnType      the return type of the method as string representation
+     * @param clazz           the class to which that method belong
+     * @param methodSignature the remaining method signature (without return type) inclusive parameter as string representation
+     * @return the scope of the pushed TraceMethod or {@link TraceScope#NONE} if nothing has been pushed
+     */
+    public TraceScope scopedEntry(String returnType, Class<?> clazz, String methodSignature) {
+        return scopeOf(entry(returnType, clazz, methodSignature));
+    }
+
+    /**
+     * Arms the reusable scope of the given frame. A frame which hasn't been pushed onto the stack, e.g. due to a stack overflow,
+     * has a depth of zero and gets no scope.
+     *
+     * @param traceMethod the frame returned by one of the entry methods, might be null
+     * @return the scope of the frame or {@link TraceScope#NONE}
+     */
+    private TraceScope scopeOf(TraceMethod traceMethod) {
+        return traceMethod != null && traceMethod.getDepth() > 0 ? traceMethod.scope().open(this) : TraceScope.NONE;
+    }
+
+    /**
+     * Pops the stack of the current thread down to and inclusive the given frame by the regular {@link #wayout()}, hence the RETURN
+     * records of methods which have been left by an exception will be printed too. Nothing happens if the frame isn't on the stack of
+     * the current tracing context anymore.
+     *
+     * @param traceMethod the to be popped frame
+     */
+    void unwind(TraceMethod traceMethod) {
+        TracingContext tracingContext = getThreadMap().getCurrentTracingContext();
+        if (tracingContext == null || !tracingContext.isOnStack(traceMethod)) {
+            return;
+        }
+        int depth = traceMethod.getDepth();
+        while (getThreadMap().getCurrentStackSize() >= depth) {
+            if (wayout() == null) {
+                break;
             }
-        } catch (AbstractThreadMap.RuntimeException ex) {
-            logMessage(LogLevel.SEVERE, "Stacksize is exceeded. Tracing is off.", this.getClass(), "entry()");
         }
-
-        return traceMethod;
     }
 
     /**
-     * Indicates the exiting of a method.
+     * Indicates the exiting of a method. The tracing context of the current thread is looked up once and used throughout.
      *
      * @return the TraceMethod which has been popped from the stack - a mere data object for internal use primarily. May be null.
      */
@@ -512,16 +905,42 @@ abstract public class AbstractTracer {
         TraceMethod traceMethod = null;
 
         try {
-            traceMethod = this.threadMap.pop();
-            if (traceMethod != null) {
-                out().lock();
-                try {
-                    out().printIndentln("RETURN-" + traceMethod.getSignature() + "--(+" + traceMethod.getElapsedTime() + "ms)--" + "(+" + traceMethod.getElapsedCpuTime() + "ms)--" + Thread.currentThread().getName() + "[" + Thread.currentThread().getId() + "]");
-                    if (this.autoflush) {
-                        out().flush();
+            TracingContext tracingContext = this.threadMap.getCurrentTracingContext();
+            traceMethod = this.threadMap.pop(tracingContext);
+            if (traceMethod != null && tracingContext.isEnabled()) {
+                IndentablePrintStream printStream = out(tracingContext);
+                if (printStream != this.nullPrintStream) {
+                    RecordBuffer recordBuffer = tracingContext.getRecordBuffer().reset();
+                    TimingMode currentTimingMode = this.timingMode;
+                    TimeUnit currentTimingUnit = this.timingUnit;
+                    if (binaryStreamOf(printStream) == null) {
+                        encodeMethodReturn(recordBuffer, tracingContext.getStackSize(), traceMethod, currentTimingMode, currentTimingUnit);
+                    }
+                    boolean locking = !isLockFree(printStream);
+                    if (locking) {
+                        printStream.lock();
+                    }
+                    try {
+                        IndentablePrintStream currentStream = out(tracingContext, tracingContext.getStackSize()); // the stream might have been replaced by a log file rotation
+                        BinaryTraceOutputStream binaryStream = binaryStreamOf(currentStream);
+                        if (binaryStream != null) {
+                            traceMethod.writeReturn(binaryStream, tracingContext.getStackSize(), Thread.currentThread(), currentTimingMode, currentTimingUnit);
+                        } else {
+                            if (recordBuffer.length() == 0) {
+                                encodeMethodReturn(recordBuffer, tracingContext.getStackSize(), traceMethod, currentTimingMode, currentTimingUnit);
+                            }
+                            recordBuffer.writeTo(currentStream);
+                        }
+                        if (this.flushPolicy.isFlushDue(this.tracePrintStream.getUnflushedBytes())) {
+                            currentStream.flush();
+                        }
+                    } catch (IOException ex) {
+                        ex.printStackTrace(System.err);
+                    } finally {
+                        if (locking) {
+                            printStream.unlock();
+                        }
                     }
-                } finally {
-                    out().unlock();
                 }
             }
         } catch (AbstractThreadMap.RuntimeException ex) {
@@ -532,7 +951,8 @@ abstract public class AbstractTracer {
     }
 
     /**
-     * Logs a message with the given logLevel and the originating class.
+     * Logs a message with the given logLevel and the originating class. The record will be assembled by the
+     * {@link LogRecordFormatter} of the current thread, hence the lock of the stream will be held just for copying the bytes.
      *
      * @param logLevel   one of the predefined levels INFO, WARNING, ERROR, FATAL and SEVERE
      * @param message    the to be logged message
@@ -540,25 +960,12 @@ abstract public class AbstractTracer {
      * @param methodName the originating method
      */
     public void logMessage(LogLevel logLevel, String message, Class<?> clazz, String methodName) {
-        String timeStamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        char[] border = new char[logLevel.toString().length() + 4];
-        Arrays.fill(border, '-');
-        border[0] = '+';
-        border[border.length - 1] = '+';
-
-        this.tracePrintStream.lock();
-        try {
-            this.tracePrintStream.println(border);
-            this.tracePrintStream.printf("| %s |  [%s] [%d,%s] [%s] [%s] \"%s\"%n", logLevel, timeStamp, Thread.currentThread().getId(),
-                    Thread.currentThread().getName(), clazz.getName(), methodName, message);
-            this.tracePrintStream.println(border);
-        } finally {
-            this.tracePrintStream.unlock();
-        }
+        writeLogRecord(LogRecordFormatter.current().format(logLevel, message, clazz, methodName));
     }
 
     /**
-     * Logs an exception with the given logLevel and the originating class.
+     * Logs an exception with the given logLevel and the originating class. The record inclusive the stack trace will be
+     * assembled by the {@link LogRecordFormatter} of the current thread before the lock of the stream will be acquired.
      *
      * @param logLevel   one of the predefined levels INFO, WARNING, ERROR, FATAL and SEVERE
      * @param throwable  the to be logged throwable
@@ -566,29 +973,21 @@ abstract public class AbstractTracer {
      * @param methodName the name of the relevant method
      */
     public void logException(LogLevel logLevel, Throwable throwable, Class<?> clazz, String methodName) {
-        String timeStamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        char[] border = new char[logLevel.toString().length() + 4];
-        Arrays.fill(border, '-');
-        border[0] = '+';
-        border[border.length - 1] = '+';
-
-        String message;
-        if (throwable.getMessage() != null) {
-            message = throwable.getMessage().trim();
-            message = message.replace(System.getProperty("line.separator"), " => ");
-        } else {
-            message = "No message.";
-        }
+        writeLogRecord(LogRecordFormatter.current().format(logLevel, throwable, clazz, methodName));
+    }
 
-        this.tracePrintStream.lock();
+    private void writeLogRecord(RecordBuffer recordBuffer) {
+        TracePrintStream printStream = this.tracePrintStream;
+        if (printStream.isLockFree()) {
+            recordBuffer.writeTo(printStream);
+            return;
+        }
+        printStream.lock();
         try {
-            this.tracePrintStream.println(border);
-            this.tracePrintStream.printf("| %s |  [%s] [%d,%s] [%s] [%s] \"%s\"%n", logLevel, timeStamp, Thread.currentThread().getId(),
-                    Thread.currentThread().getName(), clazz.getName(), methodName, message);
-            this.tracePrintStream.println(border);
-            throwable.printStackTrace(this.tracePrintStream);
+            TracePrintStream currentStream = this.tracePrintStream; // the stream might have been replaced by a log file rotation, which hands over the lock
+            recordBuffer.writeTo(currentStream);
         } finally {
-            this.tracePrintStream.unlock();
+            printStream.unlock();
         }
     }
 
@@ -605,7 +1004,7 @@ abstract public class AbstractTracer {
         TracingContext tracingContext = this.threadMap.getCurrentTracingContext();
         if (tracingContext == null) {
             System.out.println(formatContextInfo(debugLevel, online));
-            tracingContext = new TracingContext(debugLevel, online);
+            tracingContext = new TracingContext(debugLevel, online, this.maxStackSize);
             this.threadMap.setCurrentTracingContext(tracingContext);
         } else {
             tracingContext.setDebugLevel(debugLevel);
@@ -623,7 +1022,7 @@ abstract public class AbstractTracer {
             if (this.debugConfigMap.containsKey(Thread.currentThread().getName())) {
                 DebugConfig debugConfig = this.debugConfigMap.get(Thread.currentThread().getName());
                 System.out.println(formatContextInfo(debugConfig.getLevel(), debugConfig.isOnline()));
-                tracingContext = new TracingContext(debugConfig);
+                tracingContext = new TracingContext(debugConfig, this.maxStackSize);
                 this.threadMap.setCurrentTracingContext(tracingContext);
             }
         }
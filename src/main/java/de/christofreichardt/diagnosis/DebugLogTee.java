@@ -17,6 +17,7 @@
 package de.christofreichardt.diagnosis;
 
 import de.christofreichardt.diagnosis.io.IndentablePrintStream;
+import java.util.concurrent.TimeUnit;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathExpressionException;
 import org.w3c.dom.Node;
@@ -78,6 +79,46 @@ abstract public class DebugLogTee<T extends AbstractTracer> extends AbstractTrac
     this.tracer.setAutoflush(autoflush);
   }
 
+  @Override
+  final public FlushPolicy getFlushPolicy() {
+    return this.tracer.getFlushPolicy();
+  }
+
+  @Override
+  final public void setFlushPolicy(FlushPolicy flushPolicy) {
+    this.tracer.setFlushPolicy(flushPolicy);
+  }
+
+  @Override
+  final public TimingMode getTimingMode() {
+    return this.tracer.getTimingMode();
+  }
+
+  @Override
+  final public void setTimingMode(TimingMode timingMode) {
+    this.tracer.setTimingMode(timingMode);
+  }
+
+  @Override
+  final public TimeUnit getTimingUnit() {
+    return this.tracer.getTimingUnit();
+  }
+
+  @Override
+  final public void setTimingUnit(TimeUnit timingUnit) {
+    this.tracer.setTimingUnit(timingUnit);
+  }
+
+  @Override
+  final public int getMaxStackSize() {
+    return this.tracer.getMaxStackSize();
+  }
+
+  @Override
+  final public void setMaxStackSize(int maxStackSize) {
+    this.tracer.setMaxStackSize(maxStackSize);
+  }
+
   @Override
   final protected void readConfiguration(XPath xpath, Node node) throws XPathExpressionException, AbstractTracer.Exception {
     this.tracer.readConfiguration(xpath, node);
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Determines when the trace output will be flushed. Apart from {@code always} (flush on every {@link AbstractTracer#wayout()})
+ * and {@code never} (flush when the buffer is full) a policy might combine an interval and a byte threshold, e.g.
+ * {@code interval:50ms,bytes:64k}. With an interval the trace stream will be flushed periodically by a background thread
+ * provided that there are unflushed bytes. With a byte threshold {@link AbstractTracer#wayout()} flushes the trace stream only
+ * if at least the given number of bytes has been written since the last flush. Thus many method returns share a single
+ * write syscall.
+ *
+ * @author Christof Reichardt
+ */
+public final class FlushPolicy {
+
+    /** flushes on every method return */
+    public static final FlushPolicy ALWAYS = new FlushPolicy(true, -1, -1);
+    /** leaves the flushing to the buffer */
+    public static final FlushPolicy NEVER = new FlushPolicy(false, -1, -1);
+
+    private static final Pattern TERM_PATTERN = Pattern.compile("(interval):([0-9]+)(ms|s)|(bytes):([0-9]+)([km]?)");
+
+    private final boolean always;
+    private final long intervalMillis;
+    private final long byteThreshold;
+
+    private FlushPolicy(boolean always, long intervalMillis, long byteThreshold) {
+        this.always = always;
+        this.intervalMillis = intervalMillis;
+        this.byteThreshold = byteThreshold;
+    }
+
+    /**
+     * Parses the given policy specification. Valid specifications are {@code always}, {@code never} or a comma separated
+     * combination of {@code interval:<n>ms}, {@code interval:<n>s} and {@code bytes:<n>[k|m]}.
+     *
+     * @param spec the policy specification
+     * @return the corresponding FlushPolicy
+     * @throws IllegalArgumentException if the specification cannot be parsed
+     */
+    public static FlushPolicy parse(String spec) {
+        String normalized = spec.strip().toLowerCase(Locale.ROOT);
+        if ("always".equals(normalized)) {
+            return ALWAYS;
+        } else if ("never".equals(normalized)) {
+            return NEVER;
+        }
+
+        long intervalMillis = -1, byteThreshold = -1;
+        for (String term : normalized.split(",")) {
+            Matcher matcher = TERM_PATTERN.matcher(term.strip());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException(String.format("Invalid flush policy: '%s'.", spec));
+            }
+            if (matcher.group(1) != null) {
+                long value = Long.parseLong(matcher.group(2));
+                intervalMillis = "s".equals(matcher.group(3)) ? value * 1000 : value;
+            } else {
+                long value = Long.parseLong(matcher.group(5));
+                byteThreshold = "k".equals(matcher.group(6)) ? value * 1024 : "m".equals(matcher.group(6)) ? value * 1024 * 1024 : value;
+            }
+        }
+        if (intervalMillis == 0 || byteThreshold == 0) {
+            throw new IllegalArgumentException(String.format("Invalid flush policy: '%s'.", spec));
+        }
+
+        return new FlushPolicy(false, intervalMillis, byteThreshold);
+    }
+
+    /**
+     * Indicates whether the trace stream will be flushed on every method return.
+     *
+     * @return true if the trace stream will be flushed on every method return
+     */
+    public boolean isAlways() {
+        return always;
+    }
+
+    /**
+     * Gives the interval in milliseconds between two periodic flushes, -1 if there is no periodic flushing.
+     *
+     * @return the intervalMillis
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * Gives the number of unflushed bytes which causes {@link AbstractTracer#wayout()} to flush the trace stream, -1 if there
+     * is no threshold.
+     *
+     * @return the byteThreshold
+     */
+    public long getByteThreshold() {
+        return byteThreshold;
+    }
+
+    /**
+     * Decides whether the trace stream should be flushed when returning from a method.
+     *
+     * @param unflushedBytes the number of bytes written since the last flush
+     * @return true if the trace stream should be flushed
+     */
+    public boolean isFlushDue(long unflushedBytes) {
+        return this.always || (this.byteThreshold != -1 && unflushedBytes >= this.byteThreshold);
+    }
+
+    @Override
+    public String toString() {
+        if (this.always) {
+            return "always";
+        } else if (this.intervalMillis == -1 && this.byteThreshold == -1) {
+            return "never";
+        } else {
+            StringBuilder stringBuilder = new StringBuilder();
+            if (this.intervalMillis != -1) {
+                stringBuilder.append("interval:").append(this.intervalMillis).append("ms");
+            }
+            if (this.byteThreshold != -1) {
+                if (stringBuilder.length() > 0) {
+                    stringBuilder.append(',');
+                }
+                stringBuilder.append("bytes:").append(this.byteThreshold);
+            }
+            return stringBuilder.toString();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis;
+
+import de.christofreichardt.diagnosis.io.RecordBuffer;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Assembles the records of {@link AbstractTracer#logMessage(LogLevel, String, Class, String)} and
+ * {@link AbstractTracer#logException(LogLevel, Throwable, Class, String)} within a reusable buffer, so that the
+ * tracer merely needs to copy the bytes while holding the lock of its stream. The borders are precomputed per
+ * {@link LogLevel}. The timestamp is cached: the date and time up to the seconds will be formatted once per second,
+ * the milliseconds are patched in by hand. Apart from the stack traces of exceptions nothing will be allocated in the
+ * steady state. An instance is bound to one thread, see {@link #current()}.
+ *
+ * @author Christof Reichardt
+ */
+final class LogRecordFormatter {
+
+    private static final ThreadLocal<LogRecordFormatter> FORMATTERS = ThreadLocal.withInitial(LogRecordFormatter::new);
+    private static final DateTimeFormatter SECONDS_FORMATTER = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.");
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final byte[] LINE_SEPARATOR_REPLACEMENT = RecordBuffer.encode(" => ");
+    private static final String NO_MESSAGE = "No message.";
+    /** "+----+" lines, indexed by the ordinal of the LogLevel */
+    private static final byte[][] BORDERS;
+    /** "| INFO |  [" prefixes, indexed by the ordinal of the LogLevel */
+    private static final byte[][] HEADS;
+
+    static {
+        LogLevel[] logLevels = LogLevel.values();
+        BORDERS = new byte[logLevels.length][];
+        HEADS = new byte[logLevels.length][];
+        for (LogLevel logLevel : logLevels) {
+            char[] border = new char[logLevel.toString().length() + 4];
+            Arrays.fill(border, '-');
+            border[0] = '+';
+            border[border.length - 1] = '+';
+            BORDERS[logLevel.ordinal()] = RecordBuffer.encode(new String(border) + LINE_SEPARATOR);
+            HEADS[logLevel.ordinal()] = RecordBuffer.encode("| " + logLevel + " |  [");
+        }
+    }
+
+    /**
+     * Exposes the collected bytes of a stack trace without copying them.
+     */
+    private static final class StackTraceBuffer extends ByteArrayOutputStream {
+
+        void appendTo(RecordBuffer recordBuffer) {
+            recordBuffer.append(this.buf, 0, this.count);
+        }
+    }
+
+    private final RecordBuffer recordBuffer = new RecordBuffer();
+    private final StackTraceBuffer stackTraceBuffer = new StackTraceBuffer();
+    private final PrintStream stackTraceStream = new PrintStream(this.stackTraceBuffer);
+    private final byte[] timestamp = new byte[32];
+    private int timestampLength = 0;
+    private long timestampSecond = Long.MIN_VALUE;
+    private long timestampMillis = Long.MIN_VALUE;
+
+    private LogRecordFormatter() {
+    }
+
+    /**
+     * Gives the formatter of the current thread.
+     *
+     * @return the formatter
+     */
+    static LogRecordFormatter current() {
+        return FORMATTERS.get();
+    }
+
+    /**
+     * Assembles the record of a log message.
+     *
+     * @param logLevel   the level of the message
+     * @param message    the message
+     * @param clazz      the originating class
+     * @param methodName the originating method
+     * @return the buffer holding the record, valid until the next call on this formatter
+     */
+    RecordBuffer format(LogLevel logLevel, String message, Class<?> clazz, String methodName) {
+        this.recordBuffer.reset();
+        appendHead(logLevel, clazz, methodName);
+        this.recordBuffer.append(message != null ? message : "null");
+        appendTail(logLevel);
+
+        return this.recordBuffer;
+    }
+
+    /**
+     * Assembles the record of an exception inclusive the stack trace. The message of the exception will be trimmed and its line
+     * separators will be replaced.
+     *
+     * @param logLevel   the level of the exception
+     * @param throwable  the exception
+     * @param clazz      the originating class
+     * @param methodName the originating method
+     * @return the buffer holding the record, valid until the next call on this formatter
+     */
+    RecordBuffer format(LogLevel logLevel, Throwable throwable, Class<?> clazz, String methodName) {
+        this.recordBuffer.reset();
+        appendHead(logLevel, clazz, methodName);
+        String message = throwable.getMessage();
+        if (message != null) {
+            appendTrimmedReplacingLineSeparators(message);
+        } else {
+            this.recordBuffer.append(NO_MESSAGE);
+        }
+        appendTail(logLevel);
+        this.stackTraceBuffer.reset();
+        throwable.printStackTrace(this.stackTraceStream);
+        this.stackTraceStream.flush();
+        this.stackTraceBuffer.appendTo(this.recordBuffer);
+
+        return this.recordBuffer;
+    }
+
+    private void appendHead(LogLevel logLevel, Class<?> clazz, String methodName) {
+        Thread currentThread = Thread.currentThread();
+        byte[] border = BORDERS[logLevel.ordinal()], head = HEADS[logLevel.ordinal()];
+        updateTimestamp(System.currentTimeMillis());
+        this.recordBuffer.append(border, 0, border.length)
+                .append(head, 0, head.length)
+                .append(this.timestamp, 0, this.timestampLength)
+                .append("] [").append(currentThread.getId()).append(',').append(currentThread.getName())
+                .append("] [").append(clazz.getName())
+                .append("] [").append(methodName)
+                .append("] \"");
+    }
+
+    private void appendTail(LogLevel logLevel) {
+        byte[] border = BORDERS[logLevel.ordinal()];
+        this.recordBuffer.append('"').appendLineSeparator().append(border, 0, border.length);
+    }
+
+    private void appendTrimmedReplacingLineSeparators(String message) {
+        int start = 0, end = message.length();
+        while (start < end && message.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && message.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int index;
+        while ((index = message.indexOf(LINE_SEPARATOR, start)) != -1 && index < end) {
+            this.recordBuffer.append(message, start, index).append(LINE_SEPARATOR_REPLACEMENT, 0, LINE_SEPARATOR_REPLACEMENT.length);
+            start = index + LINE_SEPARATOR.length();
+        }
+        this.recordBuffer.append(message, start, end);
+    }
+
+    /**
+     * Refreshes the cached timestamp if the given point in time refers to another millisecond. The date and the time up to the
+     * seconds will be formatted anew only if the second has changed.
+     *
+     * @param millis milliseconds since the epoch
+     */
+    private void updateTimestamp(long millis) {
+        if (millis == this.timestampMillis) {
+            return;
+        }
+        long second = Math.floorDiv(millis, 1000);
+        if (second != this.timestampSecond) {
+            LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault());
+            byte[] prefix = SECONDS_FORMATTER.format(dateTime).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(prefix, 0, this.timestamp, 0, prefix.length);
+            this.timestampLength = prefix.length + 3;
+            this.timestampSecond = second;
+        }
+        int fraction = Math.floorMod(millis, 1000);
+        this.timestamp[this.timestampLength - 3] = (byte) ('0' + fraction / 100);
+        this.timestamp[this.timestampLength - 2] = (byte) ('0' + fraction / 10 % 10);
+        this.timestamp[this.timestampLength - 1] = (byte) ('0' + fraction % 10);
+        this.timestampMillis = millis;
+    }
+}
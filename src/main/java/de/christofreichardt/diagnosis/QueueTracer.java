@@ -17,6 +17,10 @@
 package de.christofreichardt.diagnosis;
 
 import de.christofreichardt.diagnosis.io.IndentablePrintStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
@@ -38,6 +42,18 @@ abstract public class QueueTracer<T extends AbstractTracer> extends AbstractTrac
 
     private boolean online;
     private int level;
+    /** the point in time ({@link System#nanoTime()}) when the tracer has been returned to the queue most recently */
+    long idleSince = System.nanoTime();
+    /** the point in time ({@link System#nanoTime()}) when the tracer has been taken from the queue most recently */
+    long takenAt;
+    /** the thread which has taken the tracer from the queue, null if the tracer is available */
+    final AtomicReference<Thread> holder = new AtomicReference<>();
+    /** indicates that the tracer is about to be closed due to idleness, a thread taking the tracer meanwhile has to wait for the queue lock */
+    volatile boolean closing;
+    /** indicates if the tracer has been acquired by a {@link QueueTracerScope}, accessed by the holding thread only */
+    boolean scoped;
+    /** the former holders whose lease has been reclaimed and which haven't noticed it yet */
+    final Set<Thread> revokedHolders = ConcurrentHashMap.newKeySet();
 
     /**
      * Some tracer.
@@ -114,6 +130,86 @@ abstract public class QueueTracer<T extends AbstractTracer> extends AbstractTrac
         this.tracer.setAutoflush(autoflush);
     }
 
+    /**
+     * Delegates to the corresponding method of the wrapped tracer.
+     *
+     * @return the flush policy of the wrapped tracer
+     */
+    @Override
+    public FlushPolicy getFlushPolicy() {
+        return this.tracer.getFlushPolicy();
+    }
+
+    /**
+     * Sets the flush policy of the wrapped tracer.
+     *
+     * @param flushPolicy the flushPolicy to set
+     */
+    @Override
+    public void setFlushPolicy(FlushPolicy flushPolicy) {
+        this.tracer.setFlushPolicy(flushPolicy);
+    }
+
+    /**
+     * Delegates to the corresponding method of the wrapped tracer.
+     *
+     * @return the timing mode of the wrapped tracer
+     */
+    @Override
+    public TimingMode getTimingMode() {
+        return this.tracer.getTimingMode();
+    }
+
+    /**
+     * Sets the timing mode of the wrapped tracer.
+     *
+     * @param timingMode the timingMode to set
+     */
+    @Override
+    public void setTimingMode(TimingMode timingMode) {
+        this.tracer.setTimingMode(timingMode);
+    }
+
+    /**
+     * Delegates to the corresponding method of the wrapped tracer.
+     *
+     * @return the timing unit of the wrapped tracer
+     */
+    @Override
+    public TimeUnit getTimingUnit() {
+        return this.tracer.getTimingUnit();
+    }
+
+    /**
+     * Sets the timing unit of the wrapped tracer.
+     *
+     * @param timingUnit the timingUnit to set
+     */
+    @Override
+    public void setTimingUnit(TimeUnit timingUnit) {
+        this.tracer.setTimingUnit(timingUnit);
+    }
+
+    /**
+     * Delegates to the corresponding method of the wrapped tracer.
+     *
+     * @return the maximal stack size of the wrapped tracer
+     */
+    @Override
+    public int getMaxStackSize() {
+        return this.tracer.getMaxStackSize();
+    }
+
+    /**
+     * Sets the maximal stack size of the wrapped tracer.
+     *
+     * @param maxStackSize the maxStackSize to set
+     */
+    @Override
+    public void setMaxStackSize(int maxStackSize) {
+        this.tracer.setMaxStackSize(maxStackSize);
+    }
+
     /**
      * Returns the configured {@code online} value. Will be used by the parameterless {@link QueueTracer#initCurrentTracingContext()} method.
      *
@@ -148,6 +244,26 @@ abstract public class QueueTracer<T extends AbstractTracer> extends AbstractTrac
                         ((String) xpath.evaluate("./dns:TraceLogger/dns:BufSize/text()", node, XPathConstants.STRING)).strip()
                 )
         );
+        String strFlushPolicy = (String) xpath.evaluate("./dns:TraceLogger/dns:FlushPolicy/text()", node, XPathConstants.STRING);
+        if (!strFlushPolicy.isBlank()) {
+            try {
+                setFlushPolicy(FlushPolicy.parse(strFlushPolicy));
+            } catch (IllegalArgumentException ex) {
+                throw new AbstractTracer.Exception(ex);
+            }
+        }
+        String strTimingMode = ((String) xpath.evaluate("./dns:TraceLogger/dns:Timing/dns:Mode/text()", node, XPathConstants.STRING)).strip();
+        if (!strTimingMode.isEmpty()) {
+            setTimingMode(TimingMode.valueOf(strTimingMode));
+        }
+        String strTimingUnit = ((String) xpath.evaluate("./dns:TraceLogger/dns:Timing/dns:Unit/text()", node, XPathConstants.STRING)).strip();
+        if (!strTimingUnit.isEmpty()) {
+            setTimingUnit(timeUnitOf(strTimingUnit));
+        }
+        String strStackSize = ((String) xpath.evaluate("./dns:TraceLogger/dns:StackSize/text()", node, XPathConstants.STRING)).strip();
+        if (!strStackSize.isEmpty()) {
+            setMaxStackSize(Integer.parseInt(strStackSize));
+        }
     }
 
     /**
@@ -158,6 +274,14 @@ abstract public class QueueTracer<T extends AbstractTracer> extends AbstractTrac
         this.tracer.open();
     }
 
+    /**
+     * Opens the wrapped tracer again after it has been closed due to idleness. Subclasses should override this method if the
+     * former trace output would be discarded by {@link #open()}.
+     */
+    protected void reopen() {
+        open();
+    }
+
     /**
      * Closes the wrapped tracer.
      */
@@ -196,6 +320,7 @@ abstract public class QueueTracer<T extends AbstractTracer> extends AbstractTrac
      */
     @Override
     public TraceMethod entry(String returnType, Class<?> clazz, String methodSignature) {
+        checkLease();
         return this.tracer.entry(returnType, clazz, methodSignature);
     }
 
@@ -209,6 +334,7 @@ abstract public class QueueTracer<T extends AbstractTracer> extends AbstractTrac
      */
     @Override
     public TraceMethod entry(String returnType, Object object, String methodSignature) {
+        checkLease();
         return this.tracer.entry(returnType, object, methodSignature);
     }
 
@@ -250,14 +376,16 @@ abstract public class QueueTracer<T extends AbstractTracer> extends AbstractTrac
     /**
      * Delegates to the corresponding method of the wrapped tracer. Besides it checks if the
      * stack size of the current tracing context has decreased to zero. If so then the current tracing context
-     * will be cleared.
+     * will be cleared and the tracer will be given back to the queue, unless the tracer has been acquired by a
+     * {@link QueueTracerScope}. In the latter case this happens when the scope is closed.
      *
      * @return the TraceMethod which has been popped from the stack - a mere data object for internal use primarily. May be null.
      */
     @Override
     public TraceMethod wayout() {
+        checkLease();
         TraceMethod traceMethod = this.tracer.wayout();
-        if (getThreadMap().getCurrentStackSize() == 0) {
+        if (getThreadMap().getCurrentStackSize() == 0 && !this.scoped) {
             clearCurrentTracingContext();
             if (!TracerFactory.getInstance().offerTracer(this)) {
                 // this dubious check relies on the fact that the QueueNullTracer must not have a tracing context and therefore always returns a current stack size of -1 (??, think again)
@@ -274,6 +402,7 @@ abstract public class QueueTracer<T extends AbstractTracer> extends AbstractTrac
      */
     @Override
     public IndentablePrintStream out() {
+        checkLease();
         return this.tracer.out();
     }
 
@@ -285,9 +414,21 @@ abstract public class QueueTracer<T extends AbstractTracer> extends AbstractTrac
      */
     @Override
     protected IndentablePrintStream out(int level) {
+        checkLease();
         return this.tracer.out(level);
     }
 
+    /**
+     * Delegates to the corresponding method of the wrapped tracer.
+     *
+     * @param tracingContext the tracing context of the current thread, might be null
+     * @return an {@link IndentablePrintStream}
+     */
+    @Override
+    protected IndentablePrintStream out(TracingContext tracingContext) {
+        return this.tracer.out(tracingContext);
+    }
+
     /**
      * Delegates to the corresponding method of the wrapped tracer.
      */
@@ -295,4 +436,15 @@ abstract public class QueueTracer<T extends AbstractTracer> extends AbstractTrac
     public void clearCurrentTracingContext() {
         this.tracer.clearCurrentTracingContext();
     }
+
+    /**
+     * Discards the tracing context of the current thread if its lease has been reclaimed in the meantime. The former holder is offline
+     * thereupon, that is its remaining calls are dropped and won't give the tracer back a second time. The tracing context is discarded
+     * by the former holder itself since it might be confined to that thread.
+     */
+    void checkLease() {
+        if (!this.revokedHolders.isEmpty() && this.revokedHolders.remove(Thread.currentThread())) {
+            clearCurrentTracingContext();
+        }
+    }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis;
+
+/**
+ * <div style="text-align: justify">
+ * Holds a {@link QueueTracer} acquired by {@link TracerFactory#acquireQueueTracer()} and gives it back to the queue when closed. In contrast to
+ * the automatic return by {@link QueueTracer#wayout()} the tracer will be given back even if an exception has skipped some
+ * {@link QueueTracer#wayout()} calls. The tracing context of the current thread will be cleared in any case. A scope is meant to be used by the
+ * acquiring thread within a try-with-resources statement, closing it more than once has no further effect.
+ * </div>
+ *
+ * @author Christof Reichardt
+ */
+public final class QueueTracerScope implements AutoCloseable {
+
+    private final QueueTracer<? extends AbstractTracer> tracer;
+    private boolean closed = false;
+
+    QueueTracerScope(QueueTracer<? extends AbstractTracer> tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Gives the acquired tracer. This might be a {@link QueueNullTracer} or the spill tracer depending on the configuration of the queue.
+     *
+     * @return the acquired tracer
+     */
+    public QueueTracer<? extends AbstractTracer> getTracer() {
+        return this.tracer;
+    }
+
+    /**
+     * Clears the tracing context of the current thread and gives the tracer back to the queue.
+     */
+    @Override
+    public void close() {
+        if (!this.closed) {
+            this.closed = true;
+            TracerFactory.getInstance().releaseTracer(this.tracer);
+        }
+    }
+}
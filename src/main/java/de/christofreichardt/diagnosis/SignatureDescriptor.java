@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis;
+
+import de.christofreichardt.diagnosis.io.RecordBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable, precomputed method signature. The parts of the signature surrounding the identity hash code of the owning
+ * object are kept as strings and as encoded bytes. Descriptors are interned per class by means of a {@link ClassValue},
+ * hence the cache entries of a class will vanish together with the class when it is unloaded. Descriptors of methods
+ * without class are interned within a shared cache. Overloads differing only in their return types are cached side by side.
+ * The number of descriptors per class is bounded, once the bound has been reached further descriptors will be created on
+ * demand without being cached.
+ *
+ * @author Christof Reichardt
+ */
+final class SignatureDescriptor {
+
+    /** the maximum number of cached descriptors per class */
+    static final int MAX_DESCRIPTORS_PER_CLASS = 1024;
+
+    private static final ClassValue<Descriptors> CACHE = new ClassValue<>() {
+        @Override
+        protected Descriptors computeValue(Class<?> type) {
+            return new Descriptors(type.getSimpleName());
+        }
+    };
+
+    /** the descriptors of methods without class */
+    private static final Descriptors UNBOUND = new Descriptors(null);
+
+    /** replaces a missing return type as key */
+    private static final Object NO_RETURN_TYPE = new Object();
+
+    /**
+     * The interned descriptors of a class, keyed by the method signature and the return type.
+     */
+    private static final class Descriptors {
+        final String className;
+        final Map<String, Map<Object, SignatureDescriptor>> descriptors = new ConcurrentHashMap<>();
+        final AtomicInteger size = new AtomicInteger();
+
+        Descriptors(String className) {
+            this.className = className;
+        }
+
+        SignatureDescriptor get(String returnType, String methodSignature) {
+            Object key = returnType != null ? returnType : NO_RETURN_TYPE;
+            Map<Object, SignatureDescriptor> overloads = this.descriptors.get(methodSignature);
+            SignatureDescriptor descriptor = overloads != null ? overloads.get(key) : null;
+            if (descriptor == null) {
+                descriptor = new SignatureDescriptor(returnType, this.className, methodSignature);
+                if (this.size.incrementAndGet() <= MAX_DESCRIPTORS_PER_CLASS) {
+                    overloads = this.descriptors.computeIfAbsent(methodSignature, signature -> new ConcurrentHashMap<>());
+                    SignatureDescriptor interned = overloads.putIfAbsent(key, descriptor);
+                    if (interned != null) {
+                        this.size.decrementAndGet();
+                        descriptor = interned;
+                    }
+                } else {
+                    this.size.decrementAndGet();
+                }
+            }
+
+            return descriptor;
+        }
+    }
+
+    final String returnType;
+    final String className;
+    final String methodSignature;
+    /** return type and class name, e.g. {@code "void Foo"} */
+    final String prefix;
+    /** the remaining method signature, e.g. {@code ".bar()"} */
+    final String suffix;
+    /** the signature without identity hash code */
+    final String signature;
+    final byte[] prefixBytes;
+    final byte[] suffixBytes;
+
+    private SignatureDescriptor(String returnType, String className, String methodSignature) {
+        this.returnType = returnType;
+        this.className = className;
+        this.methodSignature = methodSignature;
+        this.prefix = (returnType != null ? returnType + ' ' : "") + (className != null ? className : "");
+        this.suffix = (className != null ? "." : "") + methodSignature;
+        this.signature = this.prefix + this.suffix;
+        this.prefixBytes = RecordBuffer.encode(this.prefix);
+        this.suffixBytes = RecordBuffer.encode(this.suffix);
+    }
+
+    /**
+     * Gives the interned descriptor for the given method.
+     *
+     * @param returnType      the return type of the method as string representation, might be null
+     * @param clazz           the class to which that method belongs, might be null
+     * @param methodSignature the remaining method signature (without return type) inclusive parameter as string representation
+     * @return the descriptor
+     */
+    static SignatureDescriptor of(String returnType, Class<?> clazz, String methodSignature) {
+        if (methodSignature == null) {
+            return new SignatureDescriptor(returnType, clazz != null ? clazz.getSimpleName() : null, null);
+        }
+
+        return (clazz != null ? CACHE.get(clazz) : UNBOUND).get(returnType, methodSignature);
+    }
+
+    /**
+     * Gives the number of cached descriptors for the given class.
+     *
+     * @param clazz the class
+     * @return the number of cached descriptors
+     */
+    static int cachedDescriptors(Class<?> clazz) {
+        return CACHE.get(clazz).size.get();
+    }
+
+    /**
+     * Appends the encoded signature.
+     *
+     * @param recordBuffer     the target buffer
+     * @param instance         indicates if the identity hash code of the owning object should be included
+     * @param identityHashCode the identity hash code of the owning object
+     */
+    void appendTo(RecordBuffer recordBuffer, boolean instance, int identityHashCode) {
+        recordBuffer.append(this.prefixBytes, 0, this.prefixBytes.length);
+        if (instance && this.className != null) {
+            recordBuffer.append('[').append(identityHashCode).append(']');
+        }
+        recordBuffer.append(this.suffixBytes, 0, this.suffixBytes.length);
+    }
+
+    /**
+     * Assembles the signature string.
+     *
+     * @param instance         indicates if the identity hash code of the owning object should be included
+     * @param identityHashCode the identity hash code of the owning object
+     * @return the signature
+     */
+    String toString(boolean instance, int identityHashCode) {
+        return instance && this.className != null ? this.prefix + '[' + identityHashCode + ']' + this.suffix : this.signature;
+    }
+}
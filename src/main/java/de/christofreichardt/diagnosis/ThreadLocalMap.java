@@ -16,8 +16,6 @@
 
 package de.christofreichardt.diagnosis;
 
-import java.util.NoSuchElementException;
-
 /**
  * A {@link AbstractThreadMap} which maps threads on {@link TracingContext}s by using <code>ThreadLocal</code>s.
  *
@@ -28,14 +26,9 @@ public class ThreadLocalMap extends AbstractThreadMap {
 
     @Override
     public int getCurrentStackSize() {
-        int stackSize;
-        if (this.currentTracingContext.get() != null) {
-            stackSize = this.currentTracingContext.get().getMethodStack().size();
-        } else {
-            stackSize = -1;
-        }
+        TracingContext tracingContext = this.currentTracingContext.get();
 
-        return stackSize;
+        return tracingContext != null ? tracingContext.getStackSize() : -1;
     }
 
     @Override
@@ -54,38 +47,4 @@ public class ThreadLocalMap extends AbstractThreadMap {
         this.currentTracingContext.remove();
         return tracingContext;
     }
-
-    @Override
-    boolean push(TraceMethod traceMethod) {
-        boolean success;
-        if (this.currentTracingContext.get() != null && !this.currentTracingContext.get().isCorrupted()) {
-            if (this.currentTracingContext.get().getMethodStack().size() >= STACK_SIZE) {
-                this.currentTracingContext.get().setCorrupted(true);
-                throw new ThreadLocalMap.RuntimeException("Stacksize is exceeded.");
-            } else {
-                this.currentTracingContext.get().getMethodStack().push(traceMethod);
-                success = true;
-            }
-        } else {
-            success = false;
-        }
-
-        return success;
-    }
-
-    @Override
-    TraceMethod pop() {
-        TraceMethod traceMethod = null;
-        if (this.currentTracingContext.get() != null && !this.currentTracingContext.get().isCorrupted()) {
-            try {
-                traceMethod = this.currentTracingContext.get().getMethodStack().pop();
-                traceMethod.stopTime();
-            } catch (NoSuchElementException ex) {
-                this.currentTracingContext.get().setCorrupted(true);
-                throw new ThreadLocalMap.RuntimeException(ex);
-            }
-        }
-
-        return traceMethod;
-    }
 }
@@ -16,7 +16,6 @@
 
 package de.christofreichardt.diagnosis;
 
-import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -56,22 +55,14 @@ public class ThreadMap extends AbstractThreadMap {
      */
     @Override
     public int getCurrentStackSize() {
-        int stackSize = -1;
-      if (this.tracingContextMap.containsKey(Thread.currentThread())) {
-        stackSize = this.tracingContextMap.get(Thread.currentThread()).getMethodStack().size();
-      }
+        TracingContext tracingContext = this.tracingContextMap.get(Thread.currentThread());
 
-        return stackSize;
+        return tracingContext != null ? tracingContext.getStackSize() : -1;
     }
 
     @Override
-    TracingContext getCurrentTracingContext() { // TODO: rewrite this using Map.get()
-        TracingContext tracingContext = null;
-      if (this.tracingContextMap.containsKey(Thread.currentThread())) {
-        tracingContext = this.tracingContextMap.get(Thread.currentThread());
-      }
-
-        return tracingContext;
+    TracingContext getCurrentTracingContext() {
+        return this.tracingContextMap.get(Thread.currentThread());
     }
 
     @Override
@@ -83,50 +74,4 @@ public class ThreadMap extends AbstractThreadMap {
     TracingContext removeCurrentTracingContext() {
         return this.tracingContextMap.remove(Thread.currentThread());
     }
-
-    /**
-     * Pushs a method onto the stack of the current thread.
-     *
-     * @param traceMethod the method to be pushed
-     */
-    @Override
-    boolean push(TraceMethod traceMethod) {
-        boolean success;
-        TracingContext currentTracingContext = getCurrentTracingContext();
-      if (currentTracingContext != null && !currentTracingContext.isCorrupted()) {
-        if (currentTracingContext.getMethodStack().size() >= STACK_SIZE) {
-          currentTracingContext.setCorrupted(true);
-          throw new ThreadMap.RuntimeException("Stacksize is exceeded.");
-        } else {
-          currentTracingContext.getMethodStack().push(traceMethod);
-          success = true;
-        }
-      } else {
-        success = false;
-      }
-
-        return success;
-    }
-
-    /**
-     * Pops a method from the stack of the current thread.
-     *
-     * @return the popped method
-     */
-    @Override
-    TraceMethod pop() {
-        TraceMethod traceMethod = null;
-        TracingContext currentTracingContext = getCurrentTracingContext();
-        if (currentTracingContext != null && !currentTracingContext.isCorrupted()) {
-            try {
-                traceMethod = currentTracingContext.getMethodStack().pop();
-                traceMethod.stopTime();
-            } catch (NoSuchElementException ex) {
-                currentTracingContext.setCorrupted(true);
-                throw new ThreadMap.RuntimeException(ex);
-            }
-        }
-
-        return traceMethod;
-    }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis;
+
+/**
+ * Enumeration of the timings which can be reported by the RETURN lines of the traced methods.
+ *
+ * @author Christof Reichardt
+ */
+public enum TimingMode {
+
+    /**
+     * no timing at all, e.g. {@code RETURN-void Foo.bar()--main[1]}.
+     */
+    NONE,
+    /**
+     * the elapsed wall clock time, e.g. {@code RETURN-void Foo.bar()--(+5ms)--main[1]}.
+     */
+    WALL,
+    /**
+     * the elapsed wall clock time and the consumed CPU time of the current thread, e.g.
+     * {@code RETURN-void Foo.bar()--(+5ms)--(+3ms)--main[1]}.
+     */
+    WALL_CPU
+}
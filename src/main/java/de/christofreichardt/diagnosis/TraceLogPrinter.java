@@ -0,0 +1,214 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis;
+
+import de.christofreichardt.diagnosis.io.BinaryTraceOutputStream;
+import de.christofreichardt.diagnosis.io.RecordBuffer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders binary trace files written by a {@link BinaryTraceOutputStream} into the indented text layout of the usual trace
+ * files. Can be used from the command line:
+ * <pre style="font-size: 12px">
+ * java -cp tracelogger.jar de.christofreichardt.diagnosis.TraceLogPrinter ./log/ExampleTracer.log [./log/ExampleTracer.txt]</pre>
+ * Without an output file the text will be printed on standard out.
+ *
+ * @author Christof Reichardt
+ */
+public class TraceLogPrinter {
+
+    private final InputStream in;
+    private final PrintStream out;
+    private final List<String> stringTable = new ArrayList<>();
+    private final RecordBuffer recordBuffer = new RecordBuffer();
+    private long timestamp = 0;
+
+    /**
+     * Creates a TraceLogPrinter for the given streams. The caller is responsible for closing them.
+     *
+     * @param in  provides the binary trace records
+     * @param out receives the text
+     */
+    public TraceLogPrinter(InputStream in, OutputStream out) {
+        this.in = new BufferedInputStream(in);
+        this.out = out instanceof PrintStream ? (PrintStream) out : new PrintStream(out);
+        this.stringTable.add(null);
+    }
+
+    /**
+     * Renders all records of the binary trace stream.
+     *
+     * @throws IOException indicates an I/O problem or a corrupted trace stream
+     */
+    public void print() throws IOException {
+        byte[] magic = this.in.readNBytes(BinaryTraceOutputStream.MAGIC.length);
+        if (!Arrays.equals(magic, BinaryTraceOutputStream.MAGIC)) {
+            throw new IOException("Not a binary trace file.");
+        }
+        int version = this.in.read();
+        if (version != BinaryTraceOutputStream.VERSION) {
+            throw new IOException("Unsupported version: " + version);
+        }
+
+        int tag;
+        while ((tag = this.in.read()) != -1) {
+            switch (tag) {
+                case BinaryTraceOutputStream.STRING:
+                    int id = (int) readVarLong();
+                    if (id != this.stringTable.size()) {
+                        throw new IOException("Unexpected string id: " + id);
+                    }
+                    this.stringTable.add(new String(readBytes((int) readVarLong()), StandardCharsets.UTF_8));
+                    break;
+                case BinaryTraceOutputStream.TEXT:
+                    this.out.write(readBytes((int) readVarLong()));
+                    break;
+                case BinaryTraceOutputStream.ENTRY:
+                    printMethod("ENTRY--", false);
+                    break;
+                case BinaryTraceOutputStream.RETURN:
+                    printMethod("RETURN-", true);
+                    break;
+                default:
+                    throw new IOException("Unknown tag: " + tag);
+            }
+        }
+        this.out.flush();
+    }
+
+    /**
+     * Gives the timestamp of the last rendered method record in milliseconds since the epoch.
+     *
+     * @return the timestamp
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    private void printMethod(String prefix, boolean isReturn) throws IOException {
+        int depth = (int) readVarLong();
+        String returnType = lookup(readVarLong());
+        String className = lookup(readVarLong());
+        long instance = readVarLong();
+        String methodSignature = lookup(readVarLong());
+        String threadName = lookup(readVarLong());
+        long threadId = readVarLong();
+        this.timestamp += unzigzag(readVarLong());
+
+        this.recordBuffer.reset().appendIndentation(depth).append(prefix);
+        if (returnType != null) {
+            this.recordBuffer.append(returnType).append(' ');
+        }
+        if (className != null) {
+            this.recordBuffer.append(className);
+            if (instance != 0) {
+                this.recordBuffer.append('[').append(unzigzag(instance - 1)).append(']');
+            }
+            this.recordBuffer.append('.');
+        }
+        this.recordBuffer.append(methodSignature);
+        if (isReturn) {
+            TimingMode timingMode = TimingMode.values()[readByte()];
+            TimeUnit timingUnit = TimeUnit.values()[readByte()];
+            long elapsedNanos = readVarLong();
+            long elapsedCpuNanos = readVarLong();
+            if (timingMode != TimingMode.NONE) {
+                String symbol = AbstractTracer.unitSymbol(timingUnit);
+                this.recordBuffer.append("--(+").append(timingUnit.convert(elapsedNanos, TimeUnit.NANOSECONDS)).append(symbol).append(')');
+                if (timingMode == TimingMode.WALL_CPU) {
+                    this.recordBuffer.append("--(+").append(timingUnit.convert(elapsedCpuNanos, TimeUnit.NANOSECONDS)).append(symbol).append(')');
+                }
+            }
+        }
+        this.recordBuffer.append("--").append(threadName).append('[').append(threadId).append(']').appendLineSeparator();
+        this.recordBuffer.writeTo(this.out);
+    }
+
+    private String lookup(long id) throws IOException {
+        if (id < 0 || id >= this.stringTable.size()) {
+            throw new IOException("Undefined string id: " + id);
+        }
+        return this.stringTable.get((int) id);
+    }
+
+    private int readByte() throws IOException {
+        int b = this.in.read();
+        if (b == -1) {
+            throw new EOFException("Truncated record.");
+        }
+        return b;
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        byte[] bytes = this.in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("Truncated record.");
+        }
+        return bytes;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Renders the given binary trace file.
+     *
+     * @param args the path to the binary trace file and optionally the path to the text file
+     * @throws IOException indicates an I/O problem or a corrupted trace file
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.printf("Usage: java %s <binary trace file> [<text file>]%n", TraceLogPrinter.class.getName());
+            System.exit(1);
+        }
+        try (InputStream inputStream = Files.newInputStream(Path.of(args[0]))) {
+            if (args.length == 2) {
+                try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(Path.of(args[1])))) {
+                    new TraceLogPrinter(inputStream, outputStream).print();
+                }
+            } else {
+                new TraceLogPrinter(inputStream, System.out).print();
+            }
+        }
+    }
+}
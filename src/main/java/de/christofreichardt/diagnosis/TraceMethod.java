@@ -16,22 +16,50 @@
 
 package de.christofreichardt.diagnosis;
 
+import de.christofreichardt.diagnosis.io.BinaryTraceOutputStream;
+import de.christofreichardt.diagnosis.io.RecordBuffer;
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Outlines a method for tracing.
+ * Outlines a method for tracing. The {@link TracingContext} of a thread keeps a preallocated frame per stack position and
+ * reinitialises it on every {@link AbstractTracer#entry(String, Object, String)}. Hence a TraceMethod returned by the tracer
+ * is valid until another method will be pushed onto the same stack position. The signature will be resolved and assembled
+ * on demand, hence frames which won't be printed cost a few field assignments only.
  *
  * @author Christof Reichardt
  */
 public class TraceMethod {
 
-    final private String signature;
-    private final Class<?> clazz;
-    final private long startTime = System.currentTimeMillis();
-    final private long startCpuTime = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
-    private long elapsedTime;
-    private long elapsedCpuTime;
-    private final String methodName;
+    /** looked up once, since {@link ManagementFactory#getThreadMXBean()} creates garbage on every call */
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private String signature;
+    private Class<?> clazz;
+    private String returnType;
+    private String methodSignature;
+    private SignatureDescriptor descriptor;
+    private boolean instance;
+    private int identityHashCode;
+    private TimingMode timingMode = TimingMode.NONE;
+    private long startTime;
+    private long startCpuTime;
+    private long elapsedNanos;
+    private long elapsedCpuNanos;
+    private String methodName;
+    /** the size of the stack after this method has been pushed */
+    private int depth;
+    /** the scope of this frame, created on first use */
+    private TraceScope scope;
+
+    /**
+     * Constructs an uninitialised frame.
+     */
+    TraceMethod() {
+    }
 
     /**
      * Constructs a TraceMethod with the specified signature.
@@ -42,6 +70,8 @@ public class TraceMethod {
         this.signature = signature;
         this.methodName = signature;
         this.clazz = null;
+        this.descriptor = null;
+        startTime(TimingMode.WALL_CPU);
     }
 
     /**
@@ -55,6 +85,8 @@ public class TraceMethod {
         this.signature = signature;
         this.methodName = signature;
         this.clazz = clazz;
+        this.descriptor = null;
+        startTime(TimingMode.WALL_CPU);
     }
 
     /**
@@ -65,9 +97,8 @@ public class TraceMethod {
      * @param methodSignature the remaining method signature (without return type) inclusive parameter as string representation
      */
     public TraceMethod(String returnType, Object object, String methodSignature) {
-        this.clazz = object.getClass();
-        this.signature = returnType + " " + this.clazz.getSimpleName() + "[" + System.identityHashCode(object) + "]." + methodSignature;
-        this.methodName = methodSignature;
+        init(returnType, object, methodSignature);
+        startTime(TimingMode.WALL_CPU);
     }
 
     /**
@@ -78,9 +109,101 @@ public class TraceMethod {
      * @param methodSignature the remaining method signature (without return type) inclusive parameter as string representation
      */
     public TraceMethod(String returnType, Class<?> clazz, String methodSignature) {
-        this.clazz = clazz;
-        this.signature = returnType + " " + this.clazz.getSimpleName() + "." + methodSignature;
+        init(returnType, clazz, methodSignature);
+        startTime(TimingMode.WALL_CPU);
+    }
+
+    /**
+     * (Re)initialises this frame for a method which belongs to the given object.
+     *
+     * @param returnType      the return type of the method as string representation
+     * @param object          the object that owns the method
+     * @param methodSignature the remaining method signature (without return type) inclusive parameter as string representation
+     */
+    final void init(String returnType, Object object, String methodSignature) {
+        this.signature = null;
+        this.clazz = object.getClass();
+        this.returnType = returnType;
+        this.methodSignature = methodSignature;
+        this.descriptor = null;
+        this.instance = true;
+        this.identityHashCode = System.identityHashCode(object);
         this.methodName = methodSignature;
+        this.timingMode = TimingMode.NONE;
+    }
+
+    /**
+     * (Re)initialises this frame for a method which belongs to the given class. If no class is given, the signature consists
+     * of the return type and the method signature.
+     *
+     * @param returnType      the return type of the method as string representation, might be null if there is no class
+     * @param clazz           the class to which that method belong, might be null
+     * @param methodSignature the remaining method signature (without return type) inclusive parameter as string representation
+     */
+    final void init(String returnType, Class<?> clazz, String methodSignature) {
+        this.signature = null;
+        this.clazz = clazz;
+        this.returnType = returnType;
+        this.methodSignature = methodSignature;
+        this.descriptor = null;
+        this.instance = false;
+        this.methodName = clazz != null ? methodSignature : null;
+        this.timingMode = TimingMode.NONE;
+    }
+
+    /**
+     * Gives the size of the stack after this method has been pushed, zero if this method hasn't been pushed.
+     *
+     * @return the depth
+     */
+    int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * @param depth the size of the stack after this method has been pushed
+     */
+    void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * Gives the scope of this frame, which will be created once and reused thereafter.
+     *
+     * @return the scope
+     */
+    TraceScope scope() {
+        if (this.scope == null) {
+            this.scope = new TraceScope(this);
+        }
+
+        return this.scope;
+    }
+
+    /**
+     * Resets the depth and disarms the scope of this frame after it has been popped. Thus a stale scope won't pop another method
+     * which has been pushed onto the same stack position later on.
+     */
+    void popped() {
+        this.depth = 0;
+        if (this.scope != null) {
+            this.scope.disarm();
+        }
+    }
+
+    /**
+     * Starts the clocks required by the given timing mode. Without this call nothing will be measured.
+     *
+     * @param timingMode denotes the clocks to be started
+     */
+    final void startTime(TimingMode timingMode) {
+        this.timingMode = timingMode;
+        if (timingMode != TimingMode.NONE) {
+            this.startTime = System.nanoTime();
+            if (timingMode == TimingMode.WALL_CPU) {
+                this.startCpuTime = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+            }
+        }
     }
 
     /**
@@ -90,29 +213,144 @@ public class TraceMethod {
      * @return the signature
      */
     public String getSignature() {
-        return signature;
+        if (this.signature == null) {
+            this.signature = descriptor().toString(this.instance, this.identityHashCode);
+        }
+
+        return this.signature;
+    }
+
+    /**
+     * Resolves the interned {@link SignatureDescriptor} on first use.
+     *
+     * @return the descriptor, null if this TraceMethod has been constructed with a complete signature
+     */
+    private SignatureDescriptor descriptor() {
+        if (this.descriptor == null && this.methodSignature != null) {
+            this.descriptor = SignatureDescriptor.of(this.returnType, this.clazz, this.methodSignature);
+        }
+
+        return this.descriptor;
+    }
+
+    /**
+     * Appends the encoded signature to the given buffer without assembling the signature string. The interned
+     * {@link SignatureDescriptor} provides the pre-encoded parts of the signature.
+     *
+     * @param recordBuffer the target buffer
+     */
+    void appendSignature(RecordBuffer recordBuffer) {
+        SignatureDescriptor signatureDescriptor = descriptor();
+        if (signatureDescriptor != null) {
+            signatureDescriptor.appendTo(recordBuffer, this.instance, this.identityHashCode);
+        } else {
+            recordBuffer.append(this.signature);
+        }
+    }
+
+    /**
+     * Writes a method entry record into the given binary trace stream. A frame which has been constructed with a complete
+     * signature is written with the signature in place of the method signature.
+     *
+     * @param binaryTraceOutputStream the target stream
+     * @param depth                   the size of the stack before this method has been pushed
+     * @param thread                  the current thread
+     * @throws IOException indicates an I/O problem
+     */
+    void writeEntry(BinaryTraceOutputStream binaryTraceOutputStream, int depth, Thread thread) throws IOException {
+        SignatureDescriptor signatureDescriptor = descriptor();
+        if (signatureDescriptor != null) {
+            binaryTraceOutputStream.writeEntry(depth, signatureDescriptor.returnType, signatureDescriptor.className, this.instance,
+                    this.identityHashCode, signatureDescriptor.methodSignature, thread);
+        } else {
+            binaryTraceOutputStream.writeEntry(depth, null, null, false, 0, this.signature, thread);
+        }
+    }
+
+    /**
+     * Writes a method return record into the given binary trace stream. A frame which has been constructed with a complete
+     * signature is written with the signature in place of the method signature.
+     *
+     * @param binaryTraceOutputStream the target stream
+     * @param depth                   the size of the stack after this method has been popped
+     * @param thread                  the current thread
+     * @param timingMode              the timings to be rendered
+     * @param timingUnit              the unit of the rendered timings
+     * @throws IOException indicates an I/O problem
+     */
+    void writeReturn(BinaryTraceOutputStream binaryTraceOutputStream, int depth, Thread thread, TimingMode timingMode, TimeUnit timingUnit)
+            throws IOException {
+        SignatureDescriptor signatureDescriptor = descriptor();
+        if (signatureDescriptor != null) {
+            binaryTraceOutputStream.writeReturn(depth, signatureDescriptor.returnType, signatureDescriptor.className, this.instance,
+                    this.identityHashCode, signatureDescriptor.methodSignature, thread, timingMode, timingUnit, this.elapsedNanos, this.elapsedCpuNanos);
+        } else {
+            binaryTraceOutputStream.writeReturn(depth, null, null, false, 0, this.signature, thread, timingMode, timingUnit,
+                    this.elapsedNanos, this.elapsedCpuNanos);
+        }
     }
 
     /**
      * This is the elapsed time in milliseconds since the construction of the TraceMethod until the moment the TraceMethod
-     * is popped from the stack again.
+     * is popped from the stack again. Zero if the wall clock time hasn't been measured.
      *
      * @return the elapsedTime
      */
     public long getElapsedTime() {
-        return elapsedTime;
+        return this.elapsedNanos / 1000000;
+    }
+
+    /**
+     * This is the elapsed time in nanoseconds, measured by the monotonic {@link System#nanoTime()}. Zero if the wall clock
+     * time hasn't been measured.
+     *
+     * @return the elapsed nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * This is the elapsed time with full resolution.
+     *
+     * @return the elapsed time as Duration
+     * @see #getElapsedNanos()
+     */
+    public Duration getElapsed() {
+        return Duration.ofNanos(this.elapsedNanos);
     }
 
     /**
      * This is the elapsed CPU time since the construction of the TraceMethod until the moment the TraceMethod
      * is popped from the stack again. That is only the execution time of the current thread on the CPU will be measured.
      * Suppose the scheduler decides to switch the contect to another thread during the execution of the method. This time doesn't count.
-     * Or the method itself passes the actual work to another thread. That doesn't count either.
+     * Or the method itself passes the actual work to another thread. That doesn't count either. Zero if the CPU time hasn't
+     * been measured.
      *
      * @return the elapsedCpuTime
      */
     public long getElapsedCpuTime() {
-        return elapsedCpuTime;
+        return this.elapsedCpuNanos / 1000000;
+    }
+
+    /**
+     * This is the elapsed CPU time in nanoseconds. Zero if the CPU time hasn't been measured.
+     *
+     * @return the elapsed CPU nanoseconds
+     * @see #getElapsedCpuTime()
+     */
+    public long getElapsedCpuNanos() {
+        return elapsedCpuNanos;
+    }
+
+    /**
+     * This is the elapsed CPU time with full resolution.
+     *
+     * @return the elapsed CPU time as Duration
+     * @see #getElapsedCpuTime()
+     */
+    public Duration getElapsedCpu() {
+        return Duration.ofNanos(this.elapsedCpuNanos);
     }
 
     /**
@@ -130,14 +368,32 @@ public class TraceMethod {
      * @return the methodName
      */
     public String getMethodName() {
-        return methodName;
+        return this.methodName != null ? this.methodName : getSignature();
+    }
+
+    /**
+     * Gives the timing mode which has been used to measure this method.
+     *
+     * @return the timingMode
+     */
+    public TimingMode getTimingMode() {
+        return timingMode;
     }
 
     /**
-     * Stops the elapsed (cpu) time since creation of this TraceMethod instance.
+     * Stops the elapsed (cpu) time since creation of this TraceMethod instance. Only the clocks which have been started will
+     * be read.
      */
     public void stopTime() {
-        this.elapsedTime = System.currentTimeMillis() - this.startTime;
-        this.elapsedCpuTime = (ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime() - this.startCpuTime) / 1000000;
+        if (this.timingMode != TimingMode.NONE) {
+            this.elapsedNanos = System.nanoTime() - this.startTime;
+        } else {
+            this.elapsedNanos = 0;
+        }
+        if (this.timingMode == TimingMode.WALL_CPU) {
+            this.elapsedCpuNanos = THREAD_MX_BEAN.getCurrentThreadCpuTime() - this.startCpuTime;
+        } else {
+            this.elapsedCpuNanos = 0;
+        }
     }
 }
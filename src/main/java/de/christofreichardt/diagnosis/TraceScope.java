@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis;
+
+/**
+ * <div style="text-align: justify">
+ * Pairs an {@link AbstractTracer#scopedEntry(String, Object, String)} with the matching {@link AbstractTracer#wayout()} by means
+ * of a try-with-resources statement:
+ * </div>
+ * <pre>
+ * try (TraceScope scope = tracer.scopedEntry("void", this, "foo()")) {
+ *     ...
+ * }
+ * </pre>
+ * <div style="text-align: justify">
+ * Closing the scope pops the stack down to and inclusive the frame of the scope, hence methods which have been left
+ * by an exception without calling {@link AbstractTracer#wayout()} will be popped as well and the stack remains intact. A
+ * scope belongs to the reusable frame of its stack position, no scope will be allocated on a traced call. Consequently a scope
+ * is valid only until it has been closed, closing it more than once has no further effect. If nothing has been pushed onto the
+ * stack the shared {@link #NONE} scope will be given, which doesn't do anything at all. A scope whose method has been popped by
+ * a regular {@link AbstractTracer#wayout()} in the meantime is disarmed and won't touch the stack either.
+ * </div>
+ *
+ * @author Christof Reichardt
+ */
+public final class TraceScope implements AutoCloseable {
+
+    /** the scope given if no method has been pushed onto the stack */
+    public static final TraceScope NONE = new TraceScope(null);
+
+    private final TraceMethod traceMethod;
+    /** the tracer which has pushed the frame, null if the scope has been closed */
+    private AbstractTracer tracer;
+
+    TraceScope(TraceMethod traceMethod) {
+        this.traceMethod = traceMethod;
+    }
+
+    /**
+     * Arms this scope for the given tracer.
+     *
+     * @param tracer the tracer which has pushed the frame of this scope
+     * @return this scope
+     */
+    TraceScope open(AbstractTracer tracer) {
+        this.tracer = tracer;
+        return this;
+    }
+
+    /**
+     * Disarms this scope since its frame has been popped.
+     */
+    void disarm() {
+        this.tracer = null;
+    }
+
+    /**
+     * Gives the frame of this scope.
+     *
+     * @return the TraceMethod which has been pushed onto the stack or null in case of the {@link #NONE} scope
+     */
+    public TraceMethod getTraceMethod() {
+        return this.traceMethod;
+    }
+
+    /**
+     * Pops the stack of the current thread down to and inclusive the frame of this scope, provided that the frame is still on the stack.
+     */
+    @Override
+    public void close() {
+        if (this.tracer != null) {
+            AbstractTracer currentTracer = this.tracer;
+            this.tracer = null;
+            currentTracer.unwind(this.traceMethod);
+        }
+    }
+}
@@ -17,20 +17,32 @@
 package de.christofreichardt.diagnosis;
 
 import de.christofreichardt.diagnosis.file.FileTracer;
+import de.christofreichardt.util.AffinityPool;
+import de.christofreichardt.util.Histogram;
 import de.christofreichardt.util.PropertyExpression;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
-import java.util.concurrent.BlockingDeque;
+import java.time.Duration;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import javax.xml.XMLConstants;
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.parsers.DocumentBuilder;
@@ -142,6 +154,12 @@ import org.xml.sax.SAXParseException;
  * That is when you invoke <code style="">TracerFactory.getInstance().getCurrentPoolTracer()</code> from another thread called 'main' later on,
  * you will get the default tracer which routes log messages (but not the tracing output) to the JDK logger.
  * </p>
+ * <p>
+ * If threads are created in large numbers and share their names, e.g. virtual threads serving single requests, they can be mapped by a regular expression
+ * instead, for example <code style="">&lt;ThreadPattern regex="Request-[0-9]+"&gt;&lt;TraceLogger ref="ExampleTracer" /&gt;&lt;/ThreadPattern&gt;</code>.
+ * Alternatively threads might be created by a factory obtained from {@link #newThreadFactory(String, java.util.concurrent.ThreadFactory)} which binds them
+ * to a pooled tracer. Bindings of terminated threads will be evicted, so that the mappings don't grow without bound.
+ * </p>
  * </div>
  *
  * @author Christof Reichardt
@@ -202,27 +220,95 @@ public class TracerFactory {
         }
     }
 
+    /**
+     * Strategies which apply if a QueueTracer is requested by {@link TracerFactory#tryTakeTracer()} or {@link TracerFactory#takeTracer(Duration)} but
+     * all tracers of the queue have been taken.
+     */
+    public enum Overflow {
+        /**
+         * a QueueNullTracer will be returned
+         */
+        NULL,
+        /**
+         * the queue grows by another tracer up to the configured maximum size, a QueueNullTracer will be returned thereafter
+         */
+        GROW,
+        /**
+         * a single spill tracer shared by all overflowing threads will be returned
+         */
+        SPILL
+    }
+
+    /**
+     * Holds the daemon thread which closes the idle tracers of the queue.
+     */
+    private static class QueueReaper {
+        static final ScheduledThreadPoolExecutor EXECUTOR = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "QueueReaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        static {
+            EXECUTOR.setRemoveOnCancelPolicy(true);
+        }
+    }
+
     /**
      * <div style="text-align: justify">
-     * If appropriately configured it enables access to a blocking deque of tracers. The usage of the queue methods ({@link TracerFactory#takeTracer()},
+     * If appropriately configured it enables access to a pool of tracers. The usage of the queue methods ({@link TracerFactory#takeTracer()},
      * {@link TracerFactory#offerTracer(de.christofreichardt.diagnosis.QueueTracer)} is one option for multi-threaded environments. By default a QueueNullTracer will
-     * be returned which routes to the core logging facilities of the Java platform.
+     * be returned which routes to the core logging facilities of the Java platform. The tracers are kept within an {@link AffinityPool}, hence taking and
+     * offering tracers is lock-free and a worker thread tends to get back the same tracer. The queue might be elastic: only {@code MinSize} tracers
+     * are created up front, the remaining tracers up to {@code Size} are created on demand. With an {@code IdleTimeout} the tracers which haven't been
+     * taken for this time are closed, as long as more than {@code MinSize} tracers are opened. A closed tracer will be reopened when it is taken again.
+     * With a {@code LeaseTimeout} the tracers which have been held longer than this time are reclaimed, e.g. if a thread has missed a
+     * {@link QueueTracer#wayout()} due to an exception.
      * </div>
      */
     protected class Queue {
         private final boolean enabled;
         private final int size;
+        private final int minSize;
+        private final int maxSize;
+        /** the time in milliseconds after which an unused tracer will be closed, -1 if idle tracers should be kept opened */
+        private final long idleTimeoutMillis;
+        /** the time in milliseconds after which a taken tracer will be reclaimed, -1 if taken tracers are never reclaimed */
+        private final long leaseTimeoutMillis;
+        private final Overflow overflow;
         private final String className;
-        private final BlockingDeque<QueueTracer<? extends AbstractTracer>> blockingTracerDeque;
-        private final QueueNullTracer queueNullTracer = new QueueNullTracer(TracerFactory.this.defaultTracer);
+        private final AffinityPool<QueueTracer<? extends AbstractTracer>> tracerPool;
+        private final List<QueueTracer<? extends AbstractTracer>> tracers;
+        private final QueueTracer<? extends AbstractTracer> spillTracer;
+        private final QueueNullTracer queueNullTracer = new QueueNullTracer(TracerFactory.this.poolConfig.defaultTracer);
         private final ThreadLocal<QueueTracer<? extends AbstractTracer>> currentTracer;
+        /** the times in nanoseconds the threads had to wait for a tracer */
+        private final Histogram waitTimes = new Histogram();
+        /** counts the requests which had to be served by the overflow strategy */
+        private final LongAdder overflows = new LongAdder();
+        /** counts the tracers which have been reclaimed after their lease had expired */
+        private final LongAdder reclaims = new LongAdder();
+        /** required to configure grown tracers */
+        private final Node node;
+        /** indicates if the queue tracers have been opened, grown tracers will be opened as well */
+        private volatile boolean opened;
+        /** the periodic task closing idle tracers, guarded by the queueWriteLock */
+        private ScheduledFuture<?> reaperTask;
 
         Queue() {
             this.enabled = false;
             this.size = 0;
-            this.blockingTracerDeque = null;
+            this.minSize = 0;
+            this.maxSize = 0;
+            this.idleTimeoutMillis = -1;
+            this.leaseTimeoutMillis = -1;
+            this.overflow = Overflow.NULL;
+            this.tracerPool = null;
+            this.tracers = List.of();
+            this.spillTracer = null;
             this.className = null;
             this.currentTracer = null;
+            this.node = null;
         }
 
         Queue(Node node) throws XPathExpressionException, TracerFactory.Exception, AbstractTracer.Exception {
@@ -234,60 +320,393 @@ public class TracerFactory {
             }
             if (this.enabled) {
                 this.size = Integer.parseInt(((String) TracerFactory.this.xpath.evaluate("./dns:Size", node, XPathConstants.STRING)).strip());
+                String strMinSize = ((String) TracerFactory.this.xpath.evaluate("./dns:MinSize/text()", node, XPathConstants.STRING)).strip();
+                this.minSize = strMinSize.isEmpty() ? this.size : Integer.parseInt(strMinSize);
+                if (this.minSize > this.size) {
+                    throw new TracerFactory.Exception("MinSize must not be greater than Size.");
+                }
+                this.idleTimeoutMillis = parseMillis(((String) TracerFactory.this.xpath.evaluate("./dns:IdleTimeout/text()", node, XPathConstants.STRING)).strip());
+                this.leaseTimeoutMillis = parseMillis(((String) TracerFactory.this.xpath.evaluate("./dns:LeaseTimeout/text()", node, XPathConstants.STRING)).strip());
+                String strMaxSize = ((String) TracerFactory.this.xpath.evaluate("./dns:MaxSize/text()", node, XPathConstants.STRING)).strip();
+                this.maxSize = strMaxSize.isEmpty() ? this.size : Integer.parseInt(strMaxSize);
+                if (this.maxSize < this.size) {
+                    throw new TracerFactory.Exception("MaxSize must not be less than Size.");
+                }
+                String strOverflow = ((String) TracerFactory.this.xpath.evaluate("./dns:Overflow/text()", node, XPathConstants.STRING)).strip();
+                this.overflow = strOverflow.isEmpty() ? Overflow.NULL : Overflow.valueOf(strOverflow);
+                if (this.maxSize > this.size && this.overflow != Overflow.GROW) {
+                    System.err.printf("WARNING: MaxSize applies to the GROW overflow strategy only.%n");
+                }
                 this.className = (String) TracerFactory.this.xpath.evaluate("./dns:TraceLogger/@class", node, XPathConstants.STRING);
-                this.blockingTracerDeque = new LinkedBlockingDeque<>(this.size);
+                this.tracerPool = new AffinityPool<>(this.overflow == Overflow.GROW ? this.maxSize : this.size);
                 this.currentTracer = new ThreadLocal<>();
-                init(node);
+                this.node = node;
+                this.tracers = init();
+                this.spillTracer = this.overflow == Overflow.SPILL ? createTracer("Spill") : null;
             } else {
                 this.size = 0;
+                this.minSize = 0;
+                this.maxSize = 0;
+                this.idleTimeoutMillis = -1;
+                this.leaseTimeoutMillis = -1;
+                this.overflow = Overflow.NULL;
                 this.className = null;
-                this.blockingTracerDeque = null;
+                this.tracerPool = null;
+                this.tracers = List.of();
+                this.spillTracer = null;
                 this.currentTracer = null;
+                this.node = null;
+            }
+        }
+
+        /**
+         * Parses durations like {@code 500ms} or {@code 30s}.
+         *
+         * @param duration the duration as text, might be empty
+         * @return the duration in milliseconds or -1 if the text is empty
+         */
+        private long parseMillis(String duration) {
+            if (duration.isEmpty()) {
+                return -1;
+            } else if (duration.endsWith("ms")) {
+                return Long.parseLong(duration.substring(0, duration.length() - 2));
+            } else {
+                return Long.parseLong(duration.substring(0, duration.length() - 1)) * 1000;
             }
         }
 
-        private void init(Node node) throws TracerFactory.Exception, XPathExpressionException, AbstractTracer.Exception {
+        private List<QueueTracer<? extends AbstractTracer>> init() throws TracerFactory.Exception, XPathExpressionException, AbstractTracer.Exception {
+            List<QueueTracer<? extends AbstractTracer>> queueTracers = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < this.minSize; i++) {
+                QueueTracer<? extends AbstractTracer> queueTracer = createTracer(String.valueOf(i));
+                this.tracerPool.offer(queueTracer);
+                queueTracers.add(queueTracer);
+            }
+
+            return queueTracers;
+        }
+
+        private QueueTracer<? extends AbstractTracer> createTracer(String suffix) throws TracerFactory.Exception, XPathExpressionException, AbstractTracer.Exception {
             try {
-                for (int i = 0; i < this.size; i++) {
-                    Class<?> clazz = Class.forName(this.className);
-                    if (!QueueTracer.class.isAssignableFrom(clazz)) {
-                        throw new TracerFactory.Exception("Need a QueueTracer class but found '" + clazz.getName() + "'.");
-                    }
-                    @SuppressWarnings("unchecked")
-                    Class<QueueTracer<? extends AbstractTracer>> tracerClass = (Class<QueueTracer<? extends AbstractTracer>>) clazz;
-                    if (QueueNullTracer.class.isAssignableFrom(tracerClass)) {
-                        throw new TracerFactory.Exception("No QueueNullTracer allowed here.");
-                    }
-                    String tracerName = (String) TracerFactory.this.xpath.evaluate("./dns:TraceLogger/@name", node, XPathConstants.STRING);
-                    Constructor<QueueTracer<? extends AbstractTracer>> constructor = tracerClass.getConstructor(String.class);
-                    QueueTracer<? extends AbstractTracer> queueTracer = constructor.newInstance(tracerName + i);
-                    queueTracer.readConfiguration(TracerFactory.this.xpath, node);
-                    this.blockingTracerDeque.offerLast(queueTracer);
+                Class<?> clazz = Class.forName(this.className);
+                if (!QueueTracer.class.isAssignableFrom(clazz)) {
+                    throw new TracerFactory.Exception("Need a QueueTracer class but found '" + clazz.getName() + "'.");
                 }
+                @SuppressWarnings("unchecked")
+                Class<QueueTracer<? extends AbstractTracer>> tracerClass = (Class<QueueTracer<? extends AbstractTracer>>) clazz;
+                if (QueueNullTracer.class.isAssignableFrom(tracerClass)) {
+                    throw new TracerFactory.Exception("No QueueNullTracer allowed here.");
+                }
+                String tracerName = (String) TracerFactory.this.xpath.evaluate("./dns:TraceLogger/@name", this.node, XPathConstants.STRING);
+                Constructor<QueueTracer<? extends AbstractTracer>> constructor = tracerClass.getConstructor(String.class);
+                QueueTracer<? extends AbstractTracer> queueTracer = constructor.newInstance(tracerName + suffix);
+                queueTracer.readConfiguration(TracerFactory.this.xpath, this.node);
+
+                return queueTracer;
             } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException |
                      InvocationTargetException ex) {
                 throw new TracerFactory.Exception(ex);
             }
         }
+
+        /**
+         * Creates another tracer if the queue hasn't reached its size yet or if the GROW strategy applies and the maximum size hasn't been reached.
+         * The tracer will be opened if the queue has been opened. Created tracers are kept until the configuration is replaced.
+         *
+         * @return the new tracer or null
+         */
+        private QueueTracer<? extends AbstractTracer> grow() {
+            int limit = this.overflow == Overflow.GROW ? this.maxSize : this.size;
+            if (this.tracers.size() >= limit) {
+                return null;
+            }
+            QueueTracer<? extends AbstractTracer> queueTracer = null;
+            TracerFactory.this.queueWriteLock.lock();
+            try {
+                if (TracerFactory.this.queueConfig == this && this.tracers.size() < limit) {
+                    queueTracer = createTracer(String.valueOf(this.tracers.size()));
+                    if (this.opened) {
+                        queueTracer.open();
+                    }
+                    this.tracers.add(queueTracer);
+                }
+            } catch (TracerFactory.Exception | XPathExpressionException | AbstractTracer.Exception ex) {
+                System.err.printf("WARNING: Couldn't grow the queue: %s%n", ex.getMessage());
+            } finally {
+                TracerFactory.this.queueWriteLock.unlock();
+            }
+
+            return queueTracer;
+        }
+
+        /**
+         * Reopens the given tracer if it has been closed due to idleness. Must be invoked after the current thread has been recorded as holder. If
+         * the tracer is just being closed the current thread waits for the queue lock, see {@link #closeIdleTracers()}.
+         *
+         * @param queueTracer the tracer which has been taken by the current thread
+         */
+        private void activate(QueueTracer<? extends AbstractTracer> queueTracer) {
+            if (this.opened && (queueTracer.closing || !queueTracer.isOpened())) {
+                TracerFactory.this.queueWriteLock.lock();
+                try {
+                    if (this.opened && !queueTracer.isOpened()) {
+                        queueTracer.reopen();
+                    }
+                } finally {
+                    TracerFactory.this.queueWriteLock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Schedules the closing of idle tracers and the reclaiming of expired leases if the corresponding timeouts have been configured. Requires
+         * the queueWriteLock.
+         */
+        private void scheduleReaper() {
+            if ((this.idleTimeoutMillis != -1 || this.leaseTimeoutMillis != -1) && this.reaperTask == null) {
+                long timeout = this.idleTimeoutMillis == -1 ? this.leaseTimeoutMillis
+                        : this.leaseTimeoutMillis == -1 ? this.idleTimeoutMillis : Math.min(this.idleTimeoutMillis, this.leaseTimeoutMillis);
+                long period = Math.max(1, timeout / 2);
+                this.reaperTask = QueueReaper.EXECUTOR.scheduleWithFixedDelay(this::reap, period, period, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * Cancels the closing of idle tracers. Requires the queueWriteLock.
+         */
+        private void cancelReaper() {
+            if (this.reaperTask != null) {
+                this.reaperTask.cancel(false);
+                this.reaperTask = null;
+            }
+        }
+
+        /**
+         * Reclaims the tracers whose lease has expired, thereupon closes the idle tracers.
+         */
+        private void reap() {
+            if (this.leaseTimeoutMillis != -1) {
+                reclaimExpiredLeases();
+            }
+            if (this.idleTimeoutMillis != -1) {
+                closeIdleTracers();
+            }
+        }
+
+        /**
+         * Gives the tracers back to the pool which have been held longer than the lease timeout. The former holder is revoked, its remaining
+         * calls will be dropped, see {@link QueueTracer#checkLease()}.
+         */
+        private void reclaimExpiredLeases() {
+            long now = System.nanoTime(), leaseTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(this.leaseTimeoutMillis);
+            for (QueueTracer<? extends AbstractTracer> queueTracer : this.tracers) {
+                queueTracer.revokedHolders.removeIf(revokedHolder -> revokedHolder.getState() == Thread.State.TERMINATED);
+                Thread holder = queueTracer.holder.get();
+                if (holder != null && now - queueTracer.takenAt >= leaseTimeoutNanos && queueTracer.holder.compareAndSet(holder, null)) {
+                    System.err.printf("WARNING: Reclaimed %s held by thread \"%s\" for more than %d ms.%n", queueTracer.getName(), holder.getName(),
+                            this.leaseTimeoutMillis);
+                    queueTracer.revokedHolders.add(holder);
+                    this.reclaims.increment();
+                    queueTracer.idleSince = now;
+                    this.tracerPool.offer(queueTracer);
+                }
+            }
+        }
+
+        /**
+         * Closes the tracers which haven't been taken within the idle timeout as long as more than {@code MinSize} tracers are opened. The tracers
+         * remain within the pool, hence concurrent requests are served as usual. A tracer is flagged as closing before its holder is checked once
+         * more, whereas a taking thread records itself as holder before it checks the flag, see {@link #activate(QueueTracer)}. Hence either the
+         * tracer won't be closed or the taking thread waits for the queue lock and reopens the tracer.
+         */
+        private void closeIdleTracers() {
+            long now = System.nanoTime(), idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(this.idleTimeoutMillis);
+            TracerFactory.this.queueWriteLock.lock();
+            try {
+                if (this.opened) {
+                    int openedTracers = (int) this.tracers.stream().filter(AbstractTracer::isOpened).count();
+                    for (QueueTracer<? extends AbstractTracer> queueTracer : this.tracers) {
+                        if (openedTracers <= this.minSize) {
+                            break;
+                        }
+                        if (queueTracer.isOpened() && queueTracer.holder.get() == null && now - queueTracer.idleSince >= idleTimeoutNanos) {
+                            queueTracer.closing = true;
+                            try {
+                                if (queueTracer.holder.get() == null) {
+                                    queueTracer.close();
+                                    openedTracers--;
+                                }
+                            } finally {
+                                queueTracer.closing = false;
+                            }
+                        }
+                    }
+                }
+            } finally {
+                TracerFactory.this.queueWriteLock.unlock();
+            }
+        }
+
+        /**
+         * Serves a request which couldn't be satisfied by the pool.
+         *
+         * @return either the spill tracer or the QueueNullTracer
+         */
+        private QueueTracer<? extends AbstractTracer> overflowTracer() {
+            this.overflows.increment();
+            return this.spillTracer != null ? this.spillTracer : this.queueNullTracer;
+        }
+    }
+
+    /**
+     * <div style="text-align: justify">
+     * An immutable snapshot of the pool section, the thread mappings and the default tracer. The references between threads and tracers are resolved
+     * once when reading the configuration. A new snapshot will be published as a whole by a volatile write, hence readers don't need any lock. Only the
+     * bindings of the encountered threads are recorded afterwards, these are kept within concurrent collections belonging to the snapshot. The bindings
+     * refer weakly to their threads and will be evicted after the threads have terminated and have been garbage collected. A new snapshot takes over
+     * the bindings of the threads which haven't terminated yet, as far as the new configuration still provides their tracers. Hence a thread keeps its
+     * mapping across configurations until {@link #reset()}, but it will be bound to the tracer of the same name within the new pool.
+     * </div>
+     */
+    private static final class PoolConfig {
+        private final int generation;
+        private final Map<String, AbstractTracer> tracerPool;
+        private final Map<String, String> threadName2TracerName;
+        private final Map<String, AbstractTracer> threadName2Tracer;
+        private final Map<String, ThreadPattern> threadPatterns;
+        private final NullTracer defaultTracer;
+        private final Map<Long, ThreadBinding> tracerMap = new ConcurrentHashMap<>();
+        private final Set<String> threadNames = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        private final ReferenceQueue<Thread> terminatedThreads = new ReferenceQueue<>();
+
+        PoolConfig(int generation) {
+            this(generation, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), TracerFactory.NULLTRACER);
+        }
+
+        /**
+         * Creates a snapshot. The thread names are mapped on the names of the referenced tracers which will be resolved against the given tracer pool,
+         * hence mapped threads are always bound to the tracers of this snapshot.
+         *
+         * @param generation            the generation of the configuration
+         * @param tracerPool            the pooled tracers by name
+         * @param threadName2TracerName the names of the referenced tracers by thread name
+         * @param threadPatterns        the thread patterns by regular expression
+         * @param defaultTracer         the tracer for unmapped threads
+         */
+        PoolConfig(int generation, Map<String, AbstractTracer> tracerPool, Map<String, String> threadName2TracerName,
+                   Map<String, ThreadPattern> threadPatterns, NullTracer defaultTracer) {
+            this.generation = generation;
+            this.tracerPool = Collections.unmodifiableMap(new HashMap<>(tracerPool));
+            this.threadName2TracerName = Collections.unmodifiableMap(new HashMap<>(threadName2TracerName));
+            Map<String, AbstractTracer> resolvedTracers = new HashMap<>();
+            threadName2TracerName.forEach((threadName, tracerName) -> {
+                AbstractTracer tracer = tracerPool.get(tracerName);
+                if (tracer != null) {
+                    resolvedTracers.put(threadName, tracer);
+                }
+            });
+            this.threadName2Tracer = Collections.unmodifiableMap(resolvedTracers);
+            this.threadPatterns = Collections.unmodifiableMap(new LinkedHashMap<>(threadPatterns));
+            this.defaultTracer = defaultTracer;
+        }
+
+        AbstractTracer lookup(Thread thread) {
+            ThreadBinding threadBinding = this.tracerMap.get(thread.getId());
+            return threadBinding != null && threadBinding.get() == thread ? threadBinding.tracer : null;
+        }
+
+        void bind(Thread thread, AbstractTracer tracer, String threadName) {
+            expungeTerminatedThreads();
+            this.tracerMap.put(thread.getId(), new ThreadBinding(thread, tracer, threadName, this.terminatedThreads));
+        }
+
+        /**
+         * Takes over the bindings of the given snapshot. The bound tracers are resolved by name against the pool of this snapshot: threads mapped by name
+         * are bound to the tracer the name is mapped to by this snapshot, threads bound by a thread factory to the pooled tracer of the same name as the
+         * previously bound tracer. Hence no thread remains bound to a replaced tracer. Bindings of terminated threads and of tracers unknown to this snapshot
+         * will be evicted.
+         *
+         * @param previous the snapshot to be replaced
+         */
+        void adoptBindings(PoolConfig previous) {
+            previous.expungeTerminatedThreads();
+            for (ThreadBinding threadBinding : previous.tracerMap.values()) {
+                Thread thread = threadBinding.get();
+                if (thread != null && thread.getState() != Thread.State.TERMINATED) {
+                    AbstractTracer tracer = threadBinding.threadName != null ? this.threadName2Tracer.get(threadBinding.threadName)
+                            : this.tracerPool.get(threadBinding.tracerName);
+                    if (tracer != null) {
+                        this.tracerMap.put(threadBinding.threadId, new ThreadBinding(thread, tracer, threadBinding.threadName, this.terminatedThreads));
+                        if (threadBinding.threadName != null) {
+                            this.threadNames.add(threadBinding.threadName);
+                        }
+                    }
+                }
+            }
+        }
+
+        void expungeTerminatedThreads() {
+            Reference<? extends Thread> reference;
+            while ((reference = this.terminatedThreads.poll()) != null) {
+                ThreadBinding threadBinding = (ThreadBinding) reference;
+                if (this.tracerMap.remove(threadBinding.threadId, threadBinding) && threadBinding.threadName != null) {
+                    this.threadNames.remove(threadBinding.threadName);
+                }
+            }
+        }
+    }
+
+    /**
+     * Weakly refers to a thread bound to a tracer. Terminated threads will be collected and the bindings will be enqueued for eviction.
+     */
+    private static final class ThreadBinding extends WeakReference<Thread> {
+        private final long threadId;
+        private final AbstractTracer tracer;
+        private final String tracerName;
+        private final String threadName;
+
+        ThreadBinding(Thread thread, AbstractTracer tracer, String threadName, ReferenceQueue<Thread> referenceQueue) {
+            super(thread, referenceQueue);
+            this.threadId = thread.getId();
+            this.tracer = tracer;
+            this.tracerName = tracer.getName();
+            this.threadName = threadName;
+        }
+    }
+
+    /**
+     * Maps all threads whose names are matching the given regular expression on a tracer. Such threads may share their names. The tracer is referenced by
+     * name and will be resolved against the pool of the current configuration.
+     */
+    private static final class ThreadPattern {
+        private final Pattern pattern;
+        private final String tracerName;
+
+        ThreadPattern(Pattern pattern, String tracerName) {
+            this.pattern = pattern;
+            this.tracerName = tracerName;
+        }
     }
 
     static final NullTracer NULLTRACER = new JDKLoggingRouter();
 
-    final private Map<String, Element> threadName2Element = new HashMap<>();
-    final private Map<String, AbstractTracer> tracerPool = new HashMap<>();
-    final private Map<Long, AbstractTracer> tracerMap = new ConcurrentHashMap<>();
-    final private Set<String> threadNames = Collections.newSetFromMap(new ConcurrentHashMap<>());
     final private XPath xpath = XPathFactory.newInstance().newXPath();
-    private NullTracer defaultTracer = TracerFactory.NULLTRACER;
 
-    final private ReentrantReadWriteLock poolLock = new ReentrantReadWriteLock();
-    final private Lock poolReadLock = this.poolLock.readLock();
-    final private Lock poolWriteLock = this.poolLock.writeLock();
+    /**
+     * The tracer resolved for the current thread together with the generation of the configuration it has been resolved from.
+     */
+    private static final class Binding {
+        int generation = -1;
+        AbstractTracer tracer;
+    }
 
-    final private ReentrantReadWriteLock queueLock = new ReentrantReadWriteLock();
-    final private Lock queueReadLock = this.queueLock.readLock();
-    final private Lock queueWriteLock = this.queueLock.writeLock();
-    private Queue queueConfig = new Queue();
+    private int generation = 0;
+    private volatile PoolConfig poolConfig = new PoolConfig(this.generation);
+    final private Lock poolWriteLock = new ReentrantLock();
+    final private ThreadLocal<Binding> currentBinding = ThreadLocal.withInitial(Binding::new);
+
+    final private Lock queueWriteLock = new ReentrantLock();
+    private volatile Queue queueConfig = new Queue();
 
     private TracerFactory() {
         this.xpath.setNamespaceContext(new TracerConfigNamespaceContextImpl());
@@ -299,7 +718,7 @@ public class TracerFactory {
      * @return the defaultTracer
      */
     public NullTracer getDefaultTracer() {
-        return defaultTracer;
+        return this.poolConfig.defaultTracer;
     }
 
     /**
@@ -308,12 +727,75 @@ public class TracerFactory {
      * @return the size of the tracer queue
      */
     public int getQueueSize() {
-        this.queueReadLock.lock();
-        try {
-            return this.queueConfig.size;
-        } finally {
-            this.queueReadLock.unlock();
-        }
+        return this.queueConfig.size;
+    }
+
+    /**
+     * Returns the number of tracers which are created up front and which are kept opened irrespective of idleness. Equals the size unless a
+     * smaller minimum size has been configured.
+     *
+     * @return the minimum size of the tracer queue
+     */
+    public int getQueueMinSize() {
+        return this.queueConfig.minSize;
+    }
+
+    /**
+     * Returns the number of currently opened QueueTracer, not counting the spill tracer.
+     *
+     * @return the number of opened tracers
+     */
+    public int getOpenedQueueTracers() {
+        return (int) this.queueConfig.tracers.stream().filter(AbstractTracer::isOpened).count();
+    }
+
+    /**
+     * Returns the maximum size up to which the tracer queue might grow. Equals the size unless the {@link Overflow#GROW} strategy has been configured
+     * together with a greater maximum size.
+     *
+     * @return the maximum size of the tracer queue
+     */
+    public int getQueueMaxSize() {
+        return this.queueConfig.maxSize;
+    }
+
+    /**
+     * Returns the configured overflow strategy of the tracer queue.
+     *
+     * @return the overflow strategy
+     */
+    public Overflow getQueueOverflow() {
+        return this.queueConfig.overflow;
+    }
+
+    /**
+     * Returns the live histogram of the times in nanoseconds the threads had to wait for a QueueTracer. Requests which have been served
+     * immediately are counted in the first bucket. The histogram belongs to the current configuration.
+     *
+     * @return the wait time histogram
+     */
+    public Histogram getQueueWaitTimes() {
+        return this.queueConfig.waitTimes;
+    }
+
+    /**
+     * Returns the number of requests for a QueueTracer which had to be served by the configured {@link Overflow} strategy since the current
+     * configuration has been read.
+     *
+     * @return the number of overflows
+     */
+    public long getQueueOverflows() {
+        return this.queueConfig.overflows.sum();
+    }
+
+    /**
+     * Returns the number of QueueTracer which have been reclaimed since the current configuration has been read because they had been held
+     * longer than the configured {@code LeaseTimeout}.
+     *
+     * @return the number of reclaimed tracers
+     */
+    public long getReclaimedQueueTracers() {
+        return this.queueConfig.reclaims.sum();
     }
 
     /**
@@ -322,12 +804,7 @@ public class TracerFactory {
      * @return true if the tracer queue is enabled
      */
     public boolean isQueueEnabled() {
-        this.queueReadLock.lock();
-        try {
-            return this.queueConfig.enabled;
-        } finally {
-            this.queueReadLock.unlock();
-        }
+        return this.queueConfig.enabled;
     }
 
     /**
@@ -336,12 +813,7 @@ public class TracerFactory {
      * @return the classname of the configured QueueTracer
      */
     public String getQueueTracerClassname() {
-        this.queueReadLock.lock();
-        try {
-            return this.queueConfig.className;
-        } finally {
-            this.queueReadLock.unlock();
-        }
+        return this.queueConfig.className;
     }
 
     /**
@@ -376,19 +848,41 @@ public class TracerFactory {
             this.xpathExpressions = List.of(
                     "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:LogDir/text()",
                     "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:AutoFlush/text()",
+                    "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:FlushPolicy/text()",
                     "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:BufSize/text()",
                     "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:Limit/text()",
+                    "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:Async/dns:Capacity/text()",
+                    "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:Async/dns:BackPressure/text()",
+                    "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:WindowSize/text()",
+                    "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:Format/text()",
+                    "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:Striped/text()",
+                    "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:Timing/dns:Mode/text()",
+                    "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:Timing/dns:Unit/text()",
+                    "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:StackSize/text()",
                     "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:Context/dns:Thread/dns:Online/text()",
                     "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:Context/dns:Thread/dns:DebugLevel/text()",
                     "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:Listener/dns:Port/text()",
                     "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:Listener/dns:Host/text()",
                     "/dns:TraceConfig/dns:Queue/dns:Enabled/text()",
                     "/dns:TraceConfig/dns:Queue/dns:Size/text()",
+                    "/dns:TraceConfig/dns:Queue/dns:MinSize/text()",
+                    "/dns:TraceConfig/dns:Queue/dns:MaxSize/text()",
+                    "/dns:TraceConfig/dns:Queue/dns:Overflow/text()",
+                    "/dns:TraceConfig/dns:Queue/dns:IdleTimeout/text()",
+                    "/dns:TraceConfig/dns:Queue/dns:LeaseTimeout/text()",
                     "/dns:TraceConfig/dns:Queue/dns:Online/text()",
                     "/dns:TraceConfig/dns:Queue/dns:DebugLevel/text()",
                     "/dns:TraceConfig/dns:Queue/dns:TraceLogger/dns:LogDir/text()",
                     "/dns:TraceConfig/dns:Queue/dns:TraceLogger/dns:AutoFlush/text()",
+                    "/dns:TraceConfig/dns:Queue/dns:TraceLogger/dns:FlushPolicy/text()",
                     "/dns:TraceConfig/dns:Queue/dns:TraceLogger/dns:BufSize/text()",
+                    "/dns:TraceConfig/dns:Queue/dns:TraceLogger/dns:Async/dns:Capacity/text()",
+                    "/dns:TraceConfig/dns:Queue/dns:TraceLogger/dns:Async/dns:BackPressure/text()",
+                    "/dns:TraceConfig/dns:Queue/dns:TraceLogger/dns:Format/text()",
+                    "/dns:TraceConfig/dns:Queue/dns:TraceLogger/dns:Striped/text()",
+                    "/dns:TraceConfig/dns:Queue/dns:TraceLogger/dns:Timing/dns:Mode/text()",
+                    "/dns:TraceConfig/dns:Queue/dns:TraceLogger/dns:Timing/dns:Unit/text()",
+                    "/dns:TraceConfig/dns:Queue/dns:TraceLogger/dns:StackSize/text()",
                     "/dns:TraceConfig/dns:Pool/dns:TraceLogger/@name",
                     "/dns:TraceConfig/dns:Pool/dns:TraceLogger/@class",
                     "/dns:TraceConfig/dns:Pool/dns:TraceLogger/dns:Context/dns:Thread/@name",
@@ -469,6 +963,10 @@ public class TracerFactory {
 
             this.poolWriteLock.lock();
             try {
+                Map<String, AbstractTracer> tracerPool = new HashMap<>(this.poolConfig.tracerPool);
+                Map<String, String> threadName2TracerName = new HashMap<>(this.poolConfig.threadName2TracerName);
+                Map<String, ThreadPattern> threadPatterns = new LinkedHashMap<>(this.poolConfig.threadPatterns);
+                NullTracer defaultTracer;
                 NodeList tracerNodes = (NodeList) this.xpath.evaluate("/dns:TraceConfig/dns:Pool/dns:TraceLogger", xmlConfig.documentElement(), XPathConstants.NODESET);
                 System.out.println();
                 System.out.println("Configured Pool Tracers = " + tracerNodes.getLength());
@@ -490,7 +988,7 @@ public class TracerFactory {
                     @SuppressWarnings("unchecked")
                     AbstractTracer tracer = createTracer((Class<? extends AbstractTracer>) tracerClass, name);
                     tracer.readConfiguration(this.xpath, tracerElement);
-                    this.tracerPool.put(name, tracer);
+                    tracerPool.put(name, tracer);
                 }
 
                 NodeList threadNodes = (NodeList) this.xpath.evaluate("/dns:TraceConfig/dns:Map/dns:Threads/dns:Thread", xmlConfig.documentElement(), XPathConstants.NODESET);
@@ -503,7 +1001,35 @@ public class TracerFactory {
                     String threadName = threadElement.getAttribute("name");
                     String referencedTracerName = (String) this.xpath.evaluate("./dns:TraceLogger/@ref", threadElement, XPathConstants.STRING); // TODO: implement a fail-fast for dangling references(?)
                     System.out.println(threadName + " => " + referencedTracerName);
-                    this.threadName2Element.put(threadName, threadElement);
+                    if (tracerPool.containsKey(referencedTracerName)) {
+                        threadName2TracerName.put(threadName, referencedTracerName);
+                    } else {
+                        System.err.printf("WARNING: Unknown tracer \"%s\" referenced by thread \"%s\".%n", referencedTracerName, threadName);
+                        threadName2TracerName.remove(threadName);
+                    }
+                }
+
+                NodeList threadPatternNodes = (NodeList) this.xpath.evaluate("/dns:TraceConfig/dns:Map/dns:Threads/dns:ThreadPattern", xmlConfig.documentElement(),
+                        XPathConstants.NODESET);
+                System.out.println();
+                System.out.println("Configured Patternmappings = " + threadPatternNodes.getLength());
+                for (int i = 0; i < threadPatternNodes.getLength(); i++) {
+                    System.out.println();
+                    System.out.println("(+) " + (i + 1) + ". Pattern");
+                    Element threadPatternElement = (Element) threadPatternNodes.item(i);
+                    String regex = threadPatternElement.getAttribute("regex");
+                    String referencedTracerName = (String) this.xpath.evaluate("./dns:TraceLogger/@ref", threadPatternElement, XPathConstants.STRING);
+                    System.out.println(regex + " => " + referencedTracerName);
+                    if (tracerPool.containsKey(referencedTracerName)) {
+                        try {
+                            threadPatterns.put(regex, new ThreadPattern(Pattern.compile(regex), referencedTracerName));
+                        } catch (PatternSyntaxException ex) {
+                            throw new TracerFactory.Exception(ex);
+                        }
+                    } else {
+                        System.err.printf("WARNING: Unknown tracer \"%s\" referenced by thread pattern \"%s\".%n", referencedTracerName, regex);
+                        threadPatterns.remove(regex);
+                    }
                 }
 
                 Node defaultTracerNode = (Node) this.xpath.evaluate("/dns:TraceConfig/dns:DefaultTracer", xmlConfig.documentElement(), XPathConstants.NODE);
@@ -515,10 +1041,14 @@ public class TracerFactory {
                     }
                     @SuppressWarnings("unchecked")
                     NullTracer nullTracer = createTracer((Class<? extends NullTracer>) tracerClass);
-                    this.defaultTracer = nullTracer;
+                    defaultTracer = nullTracer;
                 } else {
-                    this.defaultTracer = TracerFactory.NULLTRACER;
+                    defaultTracer = TracerFactory.NULLTRACER;
                 }
+
+                PoolConfig nextPoolConfig = new PoolConfig(++this.generation, tracerPool, threadName2TracerName, threadPatterns, defaultTracer);
+                nextPoolConfig.adoptBindings(this.poolConfig);
+                this.poolConfig = nextPoolConfig;
             } finally {
                 this.poolWriteLock.unlock();
             }
@@ -526,11 +1056,9 @@ public class TracerFactory {
             this.queueWriteLock.lock();
             try {
                 Node queueNode = (Node) this.xpath.evaluate("/dns:TraceConfig/dns:Queue", xmlConfig.documentElement(), XPathConstants.NODE);
-                if (queueNode != null) {
-                    this.queueConfig = new Queue(queueNode);
-                } else {
-                    this.queueConfig = new Queue();
-                }
+                Queue queue = queueNode != null ? new Queue(queueNode) : new Queue();
+                this.queueConfig.cancelReaper();
+                this.queueConfig = queue;
             } finally {
                 this.queueWriteLock.unlock();
             }
@@ -560,13 +1088,6 @@ public class TracerFactory {
         }
     }
 
-    private AbstractTracer getTracerByName(String name) throws TracerFactory.Exception {
-        if (!this.tracerPool.containsKey(name)) {
-            throw new TracerFactory.Exception("Unknown tracer: '" + name + "'");
-        }
-
-        return this.tracerPool.get(name);
-    }
 
     /**
      * Returns the pooled tracer with the given name.
@@ -576,65 +1097,106 @@ public class TracerFactory {
      * @throws TracerFactory.Exception if no tracer exists with the given name
      */
     public AbstractTracer getTracer(String name) throws TracerFactory.Exception {
-        this.poolReadLock.lock();
-        try {
-            return getTracerByName(name);
-        } finally {
-            this.poolReadLock.unlock();
+        AbstractTracer tracer = this.poolConfig.tracerPool.get(name);
+        if (tracer == null) {
+            throw new TracerFactory.Exception("Unknown tracer: '" + name + "'");
         }
+
+        return tracer;
     }
 
     /**
      * Returns the mapped tracer for the given thread. The given Thread object is used as key to a map. If no tracer can be found within the map
      * for the given Thread the configuration will be searched for the thread's name. That is initially the resolution is based on thread names (prior to program
      * execution no threads do exist but someone may know the to be used thread names). If there isn't an entry for a given Thread but the name of the
-     * thread has been encountered before (thread names aren't unique) a NullTracer will be returned.
+     * thread has been encountered before (thread names aren't unique) a NullTracer will be returned. Threads without a dedicated mapping are matched against
+     * the configured thread patterns, in the order of their definition. Such threads may share their names, e.g. virtual threads created with a common
+     * name prefix. Pattern matches aren't recorded, hence they don't occupy any memory. The lookup works on an immutable snapshot of the configuration and
+     * doesn't acquire any lock.
      *
      * @param thread the thread for which a tracer is searched
      * @return the mapped tracer for the given thread
      */
     public AbstractTracer getTracer(Thread thread) {
-        this.poolReadLock.lock();
-        try {
-            AbstractTracer tracer;
+        return getTracer(this.poolConfig, thread);
+    }
 
-            if (!this.tracerMap.containsKey(thread.getId())) {
-                if (this.threadNames.contains(thread.getName())) { // non-unique thread name, first come, first served
-                    System.err.printf("WARNING: Duplicate thread name \"%s\" encountered.%n", thread.getName());
-                    tracer = this.defaultTracer;
-                } else {
-                    if (this.threadName2Element.containsKey(thread.getName())) {
-                        try {
-                            Element threadElement = this.threadName2Element.get(thread.getName());
-                            String referencedTracerName = (String) this.xpath.evaluate("./dns:TraceLogger/@ref", threadElement, XPathConstants.STRING);
-                            tracer = getTracerByName(referencedTracerName);
-                            this.tracerMap.put(thread.getId(), tracer);
-                            this.threadNames.add(thread.getName());
-                        } catch (XPathExpressionException | TracerFactory.Exception ex) {
-                            tracer = this.defaultTracer;
-                        }
-                    } else {
-                        tracer = this.defaultTracer;
+    private AbstractTracer getTracer(PoolConfig currentPoolConfig, Thread thread) {
+        AbstractTracer tracer = currentPoolConfig.lookup(thread);
+        if (tracer == null) {
+            String threadName = thread.getName();
+            AbstractTracer mappedTracer = currentPoolConfig.threadName2Tracer.get(threadName);
+            if (mappedTracer == null) {
+                tracer = currentPoolConfig.defaultTracer;
+                for (ThreadPattern threadPattern : currentPoolConfig.threadPatterns.values()) {
+                    AbstractTracer patternTracer = currentPoolConfig.tracerPool.get(threadPattern.tracerName);
+                    if (patternTracer != null && threadPattern.pattern.matcher(threadName).matches()) {
+                        tracer = patternTracer;
+                        break;
                     }
                 }
             } else {
-                tracer = this.tracerMap.get(thread.getId());
+                currentPoolConfig.expungeTerminatedThreads();
+                if (!currentPoolConfig.threadNames.add(threadName)) { // non-unique thread name, first come, first served
+                    System.err.printf("WARNING: Duplicate thread name \"%s\" encountered.%n", threadName);
+                    tracer = currentPoolConfig.defaultTracer;
+                } else {
+                    currentPoolConfig.bind(thread, mappedTracer, threadName);
+                    tracer = mappedTracer;
+                }
             }
-
-            return tracer;
-        } finally {
-            this.poolReadLock.unlock();
         }
+
+        return tracer;
     }
 
     /**
-     * Returns the mapped tracer for the current thread.
+     * Creates a ThreadFactory whose threads will be bound to the denoted pooled tracer irrespective of their names. The threads are created by the given
+     * delegate, e.g. a factory for virtual threads. The tracer is resolved by name against the configuration current at the creation of each thread, that
+     * is threads created after a reconfiguration are bound to the redefined tracer. The bindings are recorded within that configuration, they survive
+     * subsequent configurations and will be evicted after the threads have terminated and have been garbage collected. Threads created after the tracer
+     * has been removed by a {@link #reset()} aren't bound.
+     *
+     * @param tracerName the name of the pooled tracer
+     * @param delegate   the factory which actually creates the threads
+     * @return a ThreadFactory which binds the created threads to the tracer
+     * @throws TracerFactory.Exception if no tracer exists with the given name
+     */
+    public ThreadFactory newThreadFactory(String tracerName, ThreadFactory delegate) throws TracerFactory.Exception {
+        getTracer(tracerName); // fail fast for unknown tracers
+        return runnable -> {
+            Thread thread = delegate.newThread(runnable);
+            if (thread != null) {
+                PoolConfig currentPoolConfig;
+                do {
+                    currentPoolConfig = this.poolConfig;
+                    AbstractTracer tracer = currentPoolConfig.tracerPool.get(tracerName);
+                    if (tracer != null) {
+                        currentPoolConfig.bind(thread, tracer, null);
+                    }
+                } while (currentPoolConfig != this.poolConfig); // a concurrent readConfiguration() might have missed the binding
+            }
+            return thread;
+        };
+    }
+
+    /**
+     * Returns the mapped tracer for the current thread. The resolved tracer is cached per thread until the configuration changes, that is
+     * {@link #readConfiguration(java.io.InputStream)} or {@link #reset()} will be invoked. Hence renaming the current thread afterwards doesn't affect the
+     * resolution.
      *
      * @return the mapped tracer for the current thread
      * @see #getTracer(java.lang.Thread)
      */
     public AbstractTracer getCurrentPoolTracer() {
-        return getTracer(Thread.currentThread());
+        Binding binding = this.currentBinding.get();
+        PoolConfig currentPoolConfig = this.poolConfig;
+        if (binding.generation != currentPoolConfig.generation) {
+            binding.tracer = getTracer(currentPoolConfig, Thread.currentThread());
+            binding.generation = currentPoolConfig.generation;
+        }
+
+        return binding.tracer;
     }
 
     /**
@@ -643,17 +1205,14 @@ public class TracerFactory {
     public void reset() { // TODO: Think about closing all present tracers prior to clearing the maps and pools
         this.poolWriteLock.lock();
         try {
-            this.defaultTracer = TracerFactory.NULLTRACER;
-            this.threadName2Element.clear();
-            this.threadNames.clear();
-            this.tracerMap.clear();
-            this.tracerPool.clear();
+            this.poolConfig = new PoolConfig(++this.generation);
         } finally {
             this.poolWriteLock.unlock();
         }
 
         this.queueWriteLock.lock();
         try {
+            this.queueConfig.cancelReaper();
             this.queueConfig = new Queue();
         } finally {
             this.queueWriteLock.unlock();
@@ -666,7 +1225,7 @@ public class TracerFactory {
     public void openPoolTracer() {
         this.poolWriteLock.lock();
         try {
-            for (AbstractTracer tracer : this.tracerPool.values()) {
+            for (AbstractTracer tracer : this.poolConfig.tracerPool.values()) {
                 tracer.open();
             }
         } finally {
@@ -680,7 +1239,7 @@ public class TracerFactory {
     public void closePoolTracer() {
         this.poolWriteLock.lock();
         try {
-            for (AbstractTracer tracer : this.tracerPool.values()) {
+            for (AbstractTracer tracer : this.poolConfig.tracerPool.values()) {
                 tracer.close();
             }
         } finally {
@@ -689,31 +1248,146 @@ public class TracerFactory {
     }
 
     /**
-     * Takes the tracer from the head of the deque. If the deque is empty the methods blocks until a tracer will become available. By default, a
-     * QueueTracer wrapping a NullTracer will be (non-blocking) delivered.
+     * Takes a tracer from the pool, preferably the one which has been offered by the current thread most recently. If the pool is empty the methods blocks
+     * until a tracer will become available. By default, a QueueTracer wrapping a NullTracer will be (non-blocking) delivered.
      *
-     * @return the tracer from the head of the deque
+     * @return the tracer taken from the pool
      */
     public QueueTracer<? extends AbstractTracer> takeTracer() { // TODO: think about a (boolean) parameter which indicates whether the tracing context should be automatically created
-        this.queueReadLock.lock();
+        return takeTracer(this.queueConfig, -1);
+    }
+
+    /**
+     * Takes a tracer from the pool without waiting. If all tracers have been taken the configured {@link Overflow} strategy applies.
+     *
+     * @return the tracer taken from the pool or the tracer provided by the overflow strategy
+     */
+    public QueueTracer<? extends AbstractTracer> tryTakeTracer() {
+        return takeTracer(this.queueConfig, 0);
+    }
+
+    /**
+     * Takes a tracer from the pool, waiting up to the given time if necessary. If no tracer has become available within this time the configured
+     * {@link Overflow} strategy applies.
+     *
+     * @param timeout the maximum time to wait
+     * @return the tracer taken from the pool or the tracer provided by the overflow strategy
+     */
+    public QueueTracer<? extends AbstractTracer> takeTracer(Duration timeout) {
+        long nanos;
         try {
-            QueueTracer<? extends AbstractTracer> tracer;
-            if (this.queueConfig.enabled) {
-                try {
-                    tracer = this.queueConfig.blockingTracerDeque.takeFirst();
-//          this.queueConfig.tracerMap.put(Thread.currentThread(), tracer);
-                    this.queueConfig.currentTracer.set(tracer);
-                } catch (InterruptedException ex) {
-                    System.err.printf("Interrupted when waiting for a QueueTracer... %n");
-                    tracer = this.queueConfig.queueNullTracer;
+            nanos = Math.max(0, timeout.toNanos());
+        } catch (ArithmeticException ex) {
+            nanos = Long.MAX_VALUE;
+        }
+        return takeTracer(this.queueConfig, nanos);
+    }
+
+    /**
+     * Serves the different take methods.
+     *
+     * @param currentQueueConfig the queue configuration
+     * @param timeout            the maximum time to wait in nanoseconds, a negative value means waiting without time limit
+     * @return the tracer
+     */
+    private QueueTracer<? extends AbstractTracer> takeTracer(Queue currentQueueConfig, long timeout) {
+        if (!currentQueueConfig.enabled) {
+            return currentQueueConfig.queueNullTracer;
+        }
+        QueueTracer<? extends AbstractTracer> tracer = currentQueueConfig.tracerPool.poll();
+        if (tracer == null) {
+            tracer = currentQueueConfig.grow();
+        }
+        if (tracer != null) {
+            currentQueueConfig.waitTimes.record(0);
+        } else {
+            long start = System.nanoTime();
+            try {
+                if (timeout < 0) {
+                    tracer = currentQueueConfig.tracerPool.take();
+                } else if (timeout > 0) {
+                    tracer = currentQueueConfig.tracerPool.poll(timeout, TimeUnit.NANOSECONDS);
                 }
-            } else {
-                tracer = this.queueConfig.queueNullTracer;
+                currentQueueConfig.waitTimes.record(System.nanoTime() - start);
+                if (tracer == null) {
+                    tracer = currentQueueConfig.overflowTracer();
+                }
+            } catch (InterruptedException ex) {
+                System.err.printf("Interrupted when waiting for a QueueTracer... %n");
+                return currentQueueConfig.queueNullTracer;
             }
+        }
+        if (!(tracer instanceof QueueNullTracer)) {
+            if (tracer != currentQueueConfig.spillTracer) {
+                tracer.takenAt = System.nanoTime();
+                tracer.scoped = false;
+                tracer.checkLease(); // a stale context from a reclaimed lease mustn't be resumed
+                tracer.holder.set(Thread.currentThread());
+            }
+            currentQueueConfig.activate(tracer);
+            currentQueueConfig.currentTracer.set(tracer);
+        }
 
-            return tracer;
-        } finally {
-            this.queueReadLock.unlock();
+        return tracer;
+    }
+
+    /**
+     * Takes a tracer from the pool as described by {@link #takeTracer()} and initializes the tracing context of the current thread. The returned
+     * scope gives the tracer back when it is closed, regardless of unbalanced {@link QueueTracer#entry(String, Object, String)} and
+     * {@link QueueTracer#wayout()} calls:
+     * <pre style="font-size: 12px">
+     * try (QueueTracerScope scope = TracerFactory.getInstance().acquireQueueTracer()) {
+     *     AbstractTracer tracer = scope.getTracer();
+     *     tracer.entry("void", this, "run()");
+     *     ...
+     * }</pre>
+     *
+     * @return the scope holding the tracer
+     */
+    public QueueTracerScope acquireQueueTracer() {
+        return acquire(takeTracer());
+    }
+
+    /**
+     * Takes a tracer from the pool as described by {@link #takeTracer(Duration)} and initializes the tracing context of the current thread. The
+     * returned scope gives the tracer back when it is closed.
+     *
+     * @param timeout the maximum time to wait
+     * @return the scope holding the tracer
+     * @see #acquireQueueTracer()
+     */
+    public QueueTracerScope acquireQueueTracer(Duration timeout) {
+        return acquire(takeTracer(timeout));
+    }
+
+    private QueueTracerScope acquire(QueueTracer<? extends AbstractTracer> tracer) {
+        if (tracer.holder.get() == Thread.currentThread()) {
+            tracer.scoped = true;
+        }
+        tracer.initCurrentTracingContext();
+        return new QueueTracerScope(tracer);
+    }
+
+    /**
+     * Clears the tracing context of the current thread and gives the tracer back if the current thread still holds it.
+     *
+     * @param tracer the tracer which has been taken by the current thread
+     */
+    void releaseTracer(QueueTracer<? extends AbstractTracer> tracer) {
+        Queue currentQueueConfig = this.queueConfig;
+        if (tracer instanceof QueueNullTracer || !currentQueueConfig.enabled) {
+            tracer.clearCurrentTracingContext();
+        } else if (tracer == currentQueueConfig.spillTracer) {
+            if (currentQueueConfig.currentTracer.get() == tracer) {
+                tracer.clearCurrentTracingContext();
+                currentQueueConfig.currentTracer.remove();
+            }
+        } else if (tracer.holder.get() == Thread.currentThread()) {
+            tracer.scoped = false;
+            tracer.clearCurrentTracingContext();
+            offerTracer(tracer);
+        } else {
+            tracer.checkLease();
         }
     }
 
@@ -721,87 +1395,95 @@ public class TracerFactory {
      * Used to enqueue a tracer which has been previously retrieved by a call to {@link #takeTracer()}.
      *
      * @param tracer the to be enqueued tracer
-     * @return indicates if the tracer has been enqueued (true) or has been discarded (false)
+     * @return indicates if the tracer has been enqueued (true) or has been discarded (false), the latter happens in particular if the current thread
+     * doesn't hold the tracer (anymore)
      */
     protected boolean offerTracer(QueueTracer<? extends AbstractTracer> tracer) {
         boolean success = false;
-        this.queueReadLock.lock();
-        try {
-            if (this.queueConfig.enabled && !(tracer instanceof QueueNullTracer)) {
-                success = this.queueConfig.blockingTracerDeque.offerLast(tracer);
-                if (success) {
-                    this.queueConfig.currentTracer.remove();
-                }
+        Queue currentQueueConfig = this.queueConfig;
+        if (currentQueueConfig.enabled && !(tracer instanceof QueueNullTracer)) {
+            if (tracer == currentQueueConfig.spillTracer) {
+                success = true;
+            } else if (tracer.holder.compareAndSet(Thread.currentThread(), null)) {
+                tracer.idleSince = System.nanoTime();
+                success = currentQueueConfig.tracerPool.offer(tracer);
+            }
+            if (success) {
+                currentQueueConfig.currentTracer.remove();
             }
-
-            return success;
-        } finally {
-            this.queueReadLock.unlock();
         }
+
+        return success;
     }
 
     /**
-     * Tries to open all enqueued QueueTracer.
+     * Tries to open all configured QueueTracer.
      *
      * @return true if all configured tracers has been opened, false otherwise
      */
     public boolean openQueueTracer() {
         final int TRIALS = 5;
-        int tracerCounter = 0, trialCounter = 0;
+        int trialCounter = 0;
         boolean success = false;
 
         do {
             this.queueWriteLock.lock();
             try {
                 if (this.queueConfig.enabled) {
-                    for (QueueTracer<?> queueTracer : this.queueConfig.blockingTracerDeque) {
+                    this.queueConfig.opened = true;
+                    success = true;
+                    for (QueueTracer<?> queueTracer : this.queueConfig.tracers) {
                         if (!queueTracer.isOpened()) {
                             queueTracer.open();
-                            tracerCounter++;
-                            if (tracerCounter == this.queueConfig.size) {
-                                success = true;
-                            }
                         }
+                        success &= queueTracer.isOpened();
+                    }
+                    if (this.queueConfig.spillTracer != null && !this.queueConfig.spillTracer.isOpened()) {
+                        this.queueConfig.spillTracer.open();
                     }
+                    this.queueConfig.scheduleReaper();
                 }
             } finally {
                 this.queueWriteLock.unlock();
             }
             trialCounter++;
-        } while (tracerCounter < this.queueConfig.size && trialCounter < TRIALS);
+        } while (!success && trialCounter < TRIALS);
 
         return success;
     }
 
     /**
-     * Tries to close all enqueued QueueTracer.
+     * Tries to close all configured QueueTracer, including those which are currently taken.
      *
      * @return true if all configured tracers has been closed, false otherwise
      */
     public boolean closeQueueTracer() {
         final int TRIALS = 5;
-        int tracerCounter = 0, trialCounter = 0;
+        int trialCounter = 0;
         boolean success = false;
 
         do {
             this.queueWriteLock.lock();
             try {
                 if (this.queueConfig.enabled) {
-                    for (QueueTracer<?> queueTracer : this.queueConfig.blockingTracerDeque) {
+                    this.queueConfig.opened = false;
+                    this.queueConfig.cancelReaper();
+                    success = true;
+                    for (QueueTracer<?> queueTracer : this.queueConfig.tracers) {
                         if (queueTracer.isOpened()) {
                             queueTracer.close();
-                            tracerCounter++;
-                            if (tracerCounter == this.queueConfig.size) {
-                                success = true;
-                            }
                         }
+                        success &= !queueTracer.isOpened();
+                    }
+                    if (this.queueConfig.spillTracer != null && this.queueConfig.spillTracer.isOpened()) {
+                        this.queueConfig.spillTracer.close();
                     }
                 }
             } finally {
                 this.queueWriteLock.unlock();
             }
             trialCounter++;
-        } while (tracerCounter < this.queueConfig.size && trialCounter < TRIALS);
+        } while (!success && trialCounter < TRIALS);
 
         return success;
     }
@@ -812,22 +1494,20 @@ public class TracerFactory {
      * @return the QueueTracer for the current thread
      */
     public QueueTracer<?> getCurrentQueueTracer() {
-        this.queueReadLock.lock();
-        try {
-            QueueTracer<?> tracer;
-            if (this.queueConfig.enabled) {
-//        tracer = this.queueConfig.tracerMap.get(Thread.currentThread());
-                tracer = this.queueConfig.currentTracer.get();
-                if (tracer == null) {
-                    tracer = this.queueConfig.queueNullTracer;
-                }
-            } else {
-                tracer = this.queueConfig.queueNullTracer;
+        Queue currentQueueConfig = this.queueConfig;
+        QueueTracer<?> tracer;
+        if (currentQueueConfig.enabled) {
+            tracer = currentQueueConfig.currentTracer.get();
+            if (tracer == null) {
+                tracer = currentQueueConfig.queueNullTracer;
+            } else if (tracer != currentQueueConfig.spillTracer && tracer.holder.get() != Thread.currentThread()) {
+                currentQueueConfig.currentTracer.remove(); // the tracer has been reclaimed
+                tracer = currentQueueConfig.queueNullTracer;
             }
-
-            return tracer;
-        } finally {
-            this.queueReadLock.unlock();
+        } else {
+            tracer = currentQueueConfig.queueNullTracer;
         }
+
+        return tracer;
     }
 }
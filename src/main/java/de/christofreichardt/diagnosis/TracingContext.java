@@ -16,11 +16,13 @@
 
 package de.christofreichardt.diagnosis;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import de.christofreichardt.diagnosis.io.RecordBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
 
 /**
- * The tracing context of one particular thread. It manages the stack of the to be observed methods.
+ * The tracing context of one particular thread. It manages the stack of the to be observed methods. The stack is an
+ * array of reusable frames which grows on demand up to the maximal stack size given at construction time.
  * For internal use.
  *
  * @author Christof Reichardt
@@ -29,8 +31,15 @@ public class TracingContext {
 
     private int debugLevel = -1;
     private boolean online = false;
-    private final Deque<TraceMethod> methodStack = new ArrayDeque<>();
+    /** the initial capacity of the method stack */
+    private static final int INITIAL_CAPACITY = 16;
+    private final int maxStackSize;
+    private TraceMethod[] methodStack;
+    private int stackSize = 0;
     private boolean corrupted = false;
+    /** the deepest level for which output will be generated, -1 if offline or corrupted. Derived from the fields above. */
+    private int enabledLevel = -1;
+    private final RecordBuffer recordBuffer = new RecordBuffer();
 
     /**
      * Creates a new instance of TracingContext by evaluating the given parameter.
@@ -39,8 +48,25 @@ public class TracingContext {
      * @param online     if true output will generated until the denoted limit, otherwise no output will generated at all
      */
     TracingContext(int debugLevel, boolean online) {
+        this(debugLevel, online, AbstractThreadMap.STACK_SIZE);
+    }
+
+    /**
+     * Creates a new instance of TracingContext by evaluating the given parameter.
+     *
+     * @param debugLevel   limites the part of the stack for which output will generated
+     * @param online       if true output will generated until the denoted limit, otherwise no output will generated at all
+     * @param maxStackSize the maximal number of methods on the stack
+     */
+    TracingContext(int debugLevel, boolean online, int maxStackSize) {
+        if (maxStackSize <= 0) {
+            throw new IllegalArgumentException("Invalid stack size: " + maxStackSize);
+        }
         this.debugLevel = debugLevel;
         this.online = online;
+        this.maxStackSize = maxStackSize;
+        updateEnabledLevel();
+        this.methodStack = new TraceMethod[Math.min(INITIAL_CAPACITY, maxStackSize)];
     }
 
     /**
@@ -49,8 +75,17 @@ public class TracingContext {
      * @param debugConfig a simple bean with debugLevel and online properties
      */
     TracingContext(DebugConfig debugConfig) {
-        this.debugLevel = debugConfig.getLevel();
-        this.online = debugConfig.isOnline();
+        this(debugConfig, AbstractThreadMap.STACK_SIZE);
+    }
+
+    /**
+     * Creates a new instance of TracingContext by evaluating the given DebugConfig object.
+     *
+     * @param debugConfig  a simple bean with debugLevel and online properties
+     * @param maxStackSize the maximal number of methods on the stack
+     */
+    TracingContext(DebugConfig debugConfig, int maxStackSize) {
+        this(debugConfig.getLevel(), debugConfig.isOnline(), maxStackSize);
     }
 
     /**
@@ -65,6 +100,7 @@ public class TracingContext {
      */
     void setDebugLevel(int debugLevel) {
         this.debugLevel = debugLevel;
+        updateEnabledLevel();
     }
 
     /**
@@ -79,13 +115,95 @@ public class TracingContext {
      */
     void setOnline(boolean online) {
         this.online = online;
+        updateEnabledLevel();
+    }
+
+    /**
+     * @return the number of methods on the stack
+     */
+    int getStackSize() {
+        return stackSize;
+    }
+
+    /**
+     * @return the maximal number of methods on the stack
+     */
+    int getMaxStackSize() {
+        return maxStackSize;
+    }
+
+    /**
+     * Provides the reusable frame for the next method to be pushed. Frames are allocated on first use of a stack position.
+     *
+     * @return the frame for the next stack position, a fresh TraceMethod if the stack is full
+     */
+    TraceMethod nextFrame() {
+        if (this.stackSize >= this.maxStackSize) {
+            return new TraceMethod();
+        }
+        ensureCapacity();
+        TraceMethod traceMethod = this.methodStack[this.stackSize];
+        if (traceMethod == null) {
+            traceMethod = new TraceMethod();
+            this.methodStack[this.stackSize] = traceMethod;
+        }
+
+        return traceMethod;
+    }
+
+    /**
+     * Pushes the given method onto the stack. The caller must ensure that the stack isn't full.
+     *
+     * @param traceMethod the method to be pushed
+     */
+    void push(TraceMethod traceMethod) {
+        ensureCapacity();
+        this.methodStack[this.stackSize++] = traceMethod;
+        traceMethod.setDepth(this.stackSize);
+    }
+
+    /**
+     * Doubles the capacity of the method stack, bounded by the maximal stack size, if the next stack position isn't
+     * available yet.
+     */
+    private void ensureCapacity() {
+        if (this.stackSize == this.methodStack.length) {
+            this.methodStack = Arrays.copyOf(this.methodStack, Math.min(this.methodStack.length * 2, this.maxStackSize));
+        }
     }
 
     /**
-     * @return the methodStack
+     * Pops the topmost method from the stack. The frame stays in place for reuse.
+     *
+     * @return the popped method
+     * @throws NoSuchElementException if the stack is empty
      */
-    Deque<TraceMethod> getMethodStack() {
-        return methodStack;
+    TraceMethod pop() {
+        if (this.stackSize == 0) {
+            throw new NoSuchElementException();
+        }
+        TraceMethod traceMethod = this.methodStack[--this.stackSize];
+        traceMethod.popped();
+
+        return traceMethod;
+    }
+
+    /**
+     * Checks if the given frame is still on the stack at the position given by its depth.
+     *
+     * @param traceMethod the frame in question
+     * @return true if the frame is on the stack of this context
+     */
+    boolean isOnStack(TraceMethod traceMethod) {
+        int depth = traceMethod.getDepth();
+        return depth > 0 && depth <= this.stackSize && this.methodStack[depth - 1] == traceMethod;
+    }
+
+    /**
+     * @return the buffer used to assemble ENTRY and RETURN records of this thread
+     */
+    RecordBuffer getRecordBuffer() {
+        return recordBuffer;
     }
 
     /**
@@ -102,5 +220,30 @@ public class TracingContext {
      */
     void setCorrupted(boolean corrupted) {
         this.corrupted = corrupted;
+        updateEnabledLevel();
+    }
+
+    /**
+     * Indicates whether output will be generated for the given level. This is a single comparison against the cached
+     * combination of debug level, online state and corruption.
+     *
+     * @param level the non-negative level of the to be printed data
+     * @return true if output will be generated
+     */
+    boolean isEnabled(int level) {
+        return level <= this.enabledLevel;
+    }
+
+    /**
+     * Indicates whether output will be generated at the current stack size.
+     *
+     * @return true if output will be generated
+     */
+    boolean isEnabled() {
+        return this.stackSize <= this.enabledLevel;
+    }
+
+    private void updateEnabledLevel() {
+        this.enabledLevel = this.online && !this.corrupted ? this.debugLevel : -1;
     }
 }
@@ -17,8 +17,15 @@
 package de.christofreichardt.diagnosis.file;
 
 import de.christofreichardt.diagnosis.AbstractTracer;
+import de.christofreichardt.diagnosis.FlushPolicy;
 import de.christofreichardt.diagnosis.LogLevel;
+import de.christofreichardt.diagnosis.TracingContext;
+import de.christofreichardt.diagnosis.io.AsyncOutputStream;
+import de.christofreichardt.diagnosis.io.BinaryTraceOutputStream;
+import de.christofreichardt.diagnosis.io.CountingOutputStream;
 import de.christofreichardt.diagnosis.io.IndentablePrintStream;
+import de.christofreichardt.diagnosis.io.Rotator;
+import de.christofreichardt.diagnosis.io.StripedOutputStream;
 import de.christofreichardt.diagnosis.io.TracePrintStream;
 import java.io.*;
 import java.nio.file.FileSystems;
@@ -27,6 +34,8 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Formatter;
+import java.util.Objects;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
@@ -40,6 +49,20 @@ import org.w3c.dom.Node;
  */
 public class FileTracer extends AbstractTracer {
 
+    /**
+     * The encodings of the trace file.
+     */
+    public enum Format {
+        /**
+         * human-readable, indented text
+         */
+        TEXT,
+        /**
+         * compact binary records, see {@link BinaryTraceOutputStream}
+         */
+        BINARY
+    }
+
     /**
      * the actual log file
      */
@@ -48,6 +71,10 @@ public class FileTracer extends AbstractTracer {
      * the underlying OutputStream
      */
     protected FileOutputStream fileOutputStream;
+    /**
+     * counts the bytes written into the actual log file, placed beneath the buffer
+     */
+    volatile protected CountingOutputStream countingOutputStream;
     /**
      * indicates the lower bound of the number of bytes which leads to a log file rotation
      */
@@ -60,6 +87,34 @@ public class FileTracer extends AbstractTracer {
      * counts the number of file splittings
      */
     protected int counter = -1;
+    /**
+     * the capacity (number of records) of the ring buffer used in async mode, -1 indicates synchronous output
+     */
+    protected int asyncCapacity = -1;
+    /**
+     * the policy which applies in async mode if the ring buffer is full
+     */
+    protected AsyncOutputStream.BackPressure backPressure = AsyncOutputStream.BackPressure.BLOCK;
+    /**
+     * the stream which hands over records to the background writer in async mode
+     */
+    protected AsyncOutputStream asyncOutputStream;
+    /**
+     * the number of discarded records of previously closed {@link AsyncOutputStream}s
+     */
+    protected long droppedRecords = 0;
+    /**
+     * the encoding of the trace file
+     */
+    protected Format format = Format.TEXT;
+    /**
+     * indicates if every thread should write into a stripe of its own, see {@link StripedOutputStream}
+     */
+    protected boolean striped = false;
+    /**
+     * indicates if the trace file should be opened for appending, see {@link #reopen()}
+     */
+    protected boolean append = false;
 
     /**
      * Constructor expects the preferably unique tracer name. This is at the same time the name of the logfile.
@@ -110,6 +165,106 @@ public class FileTracer extends AbstractTracer {
         this.byteLimit = byteLimit;
     }
 
+    /**
+     * Gives the capacity of the ring buffer used in async mode. A value of -1 indicates that trace output will be written
+     * synchronously by the calling threads.
+     *
+     * @return the asyncCapacity
+     */
+    public int getAsyncCapacity() {
+        return asyncCapacity;
+    }
+
+    /**
+     * Switches the async mode on (capacity &gt; 0) or off (capacity == -1). In async mode the calling threads publish complete lines
+     * into a bounded ring buffer with the given capacity and a background thread writes them into the trace file. Text files are
+     * written without holding the lock, hence they will be rotated by the background thread. Takes effect the next time the tracer
+     * will be opened.
+     *
+     * @param asyncCapacity the asyncCapacity to set
+     */
+    public void setAsyncCapacity(int asyncCapacity) {
+        if (asyncCapacity == 0 || asyncCapacity < -1) {
+            throw new IllegalArgumentException("Invalid capacity: " + asyncCapacity);
+        }
+        this.asyncCapacity = asyncCapacity;
+    }
+
+    /**
+     * Gives the policy which applies in async mode if the ring buffer is full.
+     *
+     * @return the backPressure
+     */
+    public AsyncOutputStream.BackPressure getBackPressure() {
+        return backPressure;
+    }
+
+    /**
+     * Sets the policy which applies in async mode if the ring buffer is full. Takes effect the next time the tracer will be opened.
+     *
+     * @param backPressure the backPressure to set
+     */
+    public void setBackPressure(AsyncOutputStream.BackPressure backPressure) {
+        this.backPressure = backPressure;
+    }
+
+    /**
+     * Gives the encoding of the trace file.
+     *
+     * @return the format
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Sets the encoding of the trace file. Takes effect the next time the tracer will be opened. Binary trace files can be
+     * rendered as text by {@link de.christofreichardt.diagnosis.TraceLogPrinter}.
+     *
+     * @param format the format to set
+     */
+    public void setFormat(Format format) {
+        this.format = Objects.requireNonNull(format);
+    }
+
+    /**
+     * Indicates if the threads sharing this tracer write into stripes of their own.
+     *
+     * @return the striped
+     */
+    public boolean isStriped() {
+        return striped;
+    }
+
+    /**
+     * Switches the striped mode on or off. In striped mode every thread assembles its records within a buffer of its own without
+     * acquiring the lock of the shared {@link TracePrintStream}. The records will be merged into the trace file in the order of
+     * their sequence numbers if the stream is flushed or a stripe has reached the buffer size. Since every flush merges the
+     * stripes of all threads this pays off with a {@link FlushPolicy} other than {@link FlushPolicy#ALWAYS}. Striped trace files
+     * will be rotated by the merging thread, but not in async mode. The binary format can't be striped. Takes effect the next time
+     * the tracer will be opened.
+     *
+     * @param striped the striped to set
+     */
+    public void setStriped(boolean striped) {
+        this.striped = striped;
+    }
+
+    /**
+     * Returns the number of records which have been discarded in async mode due to the configured {@link AsyncOutputStream.BackPressure}
+     * policy.
+     *
+     * @return the number of discarded records
+     */
+    public long getDroppedRecords() {
+        long dropped = this.droppedRecords;
+        AsyncOutputStream currentStream = this.asyncOutputStream;
+        if (currentStream != null) {
+            dropped += currentStream.getDroppedRecords();
+        }
+        return dropped;
+    }
+
     /**
      * Creates the underlying trace file and opens the associated trace streams. The file name will be assembled by the path to
      * log directory and the name of the tracer.
@@ -123,23 +278,139 @@ public class FileTracer extends AbstractTracer {
                 System.out.printf("%s Opening [%s] ...%n", formatVersionInfo(), logFilePath.toAbsolutePath());
 
                 this.traceLogfile = logFilePath.toFile();
-                this.fileOutputStream = new FileOutputStream(this.traceLogfile);
-                this.setBufferedOutputStream(new BufferedOutputStream(this.fileOutputStream, this.getBufferSize()));
-                this.setTracePrintStream(new TracePrintStream(this.getBufferedOutputStream(), this.getThreadMap()));
-
-                this.getTracePrintStream().printf("--> TraceLog opened!%n");
-                this.getTracePrintStream().printf("    Time     : %s%n", ZonedDateTime.now().format(DateTimeFormatter.ISO_ZONED_DATE_TIME));
-                this.getTracePrintStream().printf("    Bufsize  : %d%n", this.getBufferSize());
-                this.getTracePrintStream().printf("    Autoflush: %b%n%n", this.isAutoflush());
+                if (this.striped && this.format == Format.BINARY) {
+                    System.err.printf("WARNING: Binary trace files cannot be striped.%n");
+                } else if (this.striped && this.byteLimit != -1 && this.asyncCapacity > 0) {
+                    System.err.printf("WARNING: Striped asynchronous trace files won't be rotated.%n");
+                }
+                OutputStream logFileStream = createLogFileStream();
+                this.countingOutputStream = new CountingOutputStream(logFileStream, this.append ? this.traceLogfile.length() : 0);
+                if (this.asyncCapacity > 0) {
+                    BufferedOutputStream fileBuffer = new BufferedOutputStream(this.countingOutputStream, this.getBufferSize());
+                    if (this.format == Format.TEXT && !this.striped) {
+                        // every record of the TracePrintStream is published as it is, without another buffer in front of the ring buffer
+                        this.asyncOutputStream = new AsyncOutputStream(fileBuffer, this.asyncCapacity, this.backPressure, super.getName());
+                        if (this.byteLimit != -1) {
+                            this.asyncOutputStream.setRotator(new FileRotator(true));
+                        }
+                        this.setTraceOutputStream(this.asyncOutputStream);
+                    } else {
+                        AsyncOutputStream.BackPressure effectiveBackPressure = this.backPressure;
+                        if (effectiveBackPressure != AsyncOutputStream.BackPressure.BLOCK) {
+                            System.err.printf("WARNING: Binary or striped trace files require the %s policy.%n", AsyncOutputStream.BackPressure.BLOCK);
+                            effectiveBackPressure = AsyncOutputStream.BackPressure.BLOCK; // dropped chunks would corrupt the records
+                        }
+                        this.asyncOutputStream = new AsyncOutputStream(fileBuffer, this.asyncCapacity, effectiveBackPressure, super.getName(), false);
+                        this.setTraceOutputStream(createTraceBuffer(this.asyncOutputStream));
+                    }
+                } else {
+                    BufferedOutputStream traceBuffer = createTraceBuffer(this.countingOutputStream);
+                    if (traceBuffer instanceof StripedOutputStream && this.byteLimit != -1) {
+                        ((StripedOutputStream) traceBuffer).setRotator(new FileRotator(false));
+                    }
+                    this.setTraceOutputStream(traceBuffer);
+                }
+                TracePrintStream tracePrintStream = new TracePrintStream(this.getTraceOutputStream(), this.getThreadMap());
+                // hand over the lock before the new stream becomes visible, otherwise a concurrent writer might lock the wrong lock
+                this.getTracePrintStream().grantLockAccess(this);
+                ReentrantLock reentrantLock = this.lockAccess.getLock();
+                tracePrintStream.grantLockAccess(this);
+                this.lockAccess.setLock(reentrantLock);
+                this.setTracePrintStream(tracePrintStream);
+
+                this.getTracePrintStream().print(formatOpeningBanner());
                 this.setOpened(true);
             } else {
                 System.err.println("WARNING: Tracelog is opened already.");
             }
-        } catch (FileNotFoundException ex) {
+        } catch (IOException ex) {
             ex.printStackTrace(System.err);
         }
     }
 
+    /**
+     * Assembles the lines written at the top of every trace file.
+     *
+     * @return the opening banner
+     */
+    private String formatOpeningBanner() {
+        Formatter formatter = new Formatter();
+        formatter.format("--> TraceLog opened!%n");
+        formatter.format("    Time     : %s%n", ZonedDateTime.now().format(DateTimeFormatter.ISO_ZONED_DATE_TIME));
+        formatter.format("    Bufsize  : %d%n", this.getBufferSize());
+        formatter.format("    Autoflush: %b%n", this.isAutoflush());
+        if (this.format != Format.TEXT) {
+            formatter.format("    Format   : %s%n", this.format);
+        }
+        if (!this.isAutoflush() && this.getFlushPolicy() != FlushPolicy.NEVER) {
+            formatter.format("    Flush    : %s%n", this.getFlushPolicy());
+        }
+        if (this.asyncOutputStream != null) {
+            formatter.format("    Async    : %d, %s%n", this.asyncCapacity, this.backPressure);
+        }
+        if (this.striped && this.format == Format.TEXT) {
+            formatter.format("    Striped  : %b%n", true);
+        }
+        formatter.format("%n");
+
+        return formatter.toString();
+    }
+
+    /**
+     * Assembles the lines written at the end of every trace file.
+     *
+     * @return the closing banner
+     */
+    private String formatClosingBanner() {
+        return String.format("%n--> TraceLog closing!%n    Time     : %s%n", ZonedDateTime.now().format(DateTimeFormatter.ISO_ZONED_DATE_TIME));
+    }
+
+    private BufferedOutputStream createTraceBuffer(OutputStream out) throws IOException {
+        if (this.format == Format.BINARY) {
+            return new BinaryTraceOutputStream(out, this.getBufferSize());
+        } else if (this.striped) {
+            return new StripedOutputStream(out, this.getBufferSize());
+        } else {
+            return new BufferedOutputStream(out, this.getBufferSize());
+        }
+    }
+
+    /**
+     * Creates the OutputStream which finally writes into the trace file. The trace file will be truncated unless the tracer is
+     * reopened, see {@link #reopen()}. Subclasses may override this method to provide another kind of file access.
+     *
+     * @return the OutputStream to the trace file
+     * @throws IOException indicates an I/O problem
+     */
+    protected OutputStream createLogFileStream() throws IOException {
+        this.fileOutputStream = new FileOutputStream(this.traceLogfile, this.append);
+        return this.fileOutputStream;
+    }
+
+    /**
+     * Opens the trace file again after it has been closed, e.g. by the idle reaper of the queue, without discarding the former
+     * trace output. Text output will be appended to the present trace file, the byte count of the file size limit continues
+     * accordingly. A binary trace file can't be continued, it will be moved to the next split file beforehand.
+     */
+    void reopen() {
+        if (this.traceLogfile != null && this.traceLogfile.exists()) {
+            if (this.format == Format.BINARY) {
+                try {
+                    moveToSplitFile();
+                } catch (IOException ex) {
+                    ex.printStackTrace(System.err);
+                }
+            } else {
+                this.append = true;
+            }
+        }
+        try {
+            open();
+        } finally {
+            this.append = false;
+        }
+    }
+
     /**
      * Closes the associated trace streams.
      */
@@ -147,15 +418,20 @@ public class FileTracer extends AbstractTracer {
     public void close() {
         try {
             if (this.isOpened()) {
-                this.getTracePrintStream().println();
-                this.getTracePrintStream().printf("--> TraceLog closing!%n");
-                this.getTracePrintStream().printf("    Time     : %s%n", ZonedDateTime.now().format(DateTimeFormatter.ISO_ZONED_DATE_TIME));
+                this.getTracePrintStream().print(formatClosingBanner());
 
                 System.out.printf("%s Closing [%s] ...%n", formatStreamErrorState(), this.traceLogfile.toPath().toAbsolutePath());
 
                 this.getTracePrintStream().close();
-                this.getBufferedOutputStream().close();
-                this.fileOutputStream.close();
+                this.getTraceOutputStream().close();
+                if (this.asyncOutputStream != null) {
+                    this.asyncOutputStream.close();
+                    this.droppedRecords += this.asyncOutputStream.getDroppedRecords();
+                    this.asyncOutputStream = null;
+                }
+                if (this.fileOutputStream != null) {
+                    this.fileOutputStream.close();
+                }
                 this.setOpened(false);
             } else {
                 System.err.println("WARNING: Tracelog is closed already.");
@@ -182,8 +458,58 @@ public class FileTracer extends AbstractTracer {
             this.byteLimit = -1;
         }
 
+        readAsyncConfiguration(xpath, node);
+        readFormatConfiguration(xpath, node);
+
+        this.striped = Boolean.parseBoolean(((String) xpath.evaluate("./dns:Striped/text()", node, XPathConstants.STRING)).strip());
+        if (this.striped && this.format == Format.TEXT && this.asyncCapacity > 0 && this.byteLimit != -1) {
+            throw new FileTracer.Exception("Striped asynchronous trace files cannot be rotated, tracer: " + super.getName());
+        }
+
         System.out.println("this.logDir = " + this.logDirPath);
         System.out.println("this.byteLimit = " + this.byteLimit);
+        System.out.println("this.asyncCapacity = " + this.asyncCapacity);
+        System.out.println("this.backPressure = " + this.backPressure);
+        System.out.println("this.format = " + this.format);
+        System.out.println("this.striped = " + this.striped);
+    }
+
+    /**
+     * Evaluates the optional {@code Format} element of the given {@code TraceLogger} node.
+     *
+     * @param xpath the xpath engine
+     * @param node  the {@code TraceLogger} node
+     * @throws XPathExpressionException indicates xpath problems
+     */
+    void readFormatConfiguration(XPath xpath, Node node) throws XPathExpressionException {
+        String strFormat = ((String) xpath.evaluate("./dns:Format/text()", node, XPathConstants.STRING)).strip();
+        if (!strFormat.isEmpty()) {
+            this.format = Format.valueOf(strFormat);
+        } else {
+            this.format = Format.TEXT;
+        }
+    }
+
+    /**
+     * Evaluates the optional {@code Async} element of the given {@code TraceLogger} node.
+     *
+     * @param xpath the xpath engine
+     * @param node  the {@code TraceLogger} node
+     * @throws XPathExpressionException indicates xpath problems
+     */
+    void readAsyncConfiguration(XPath xpath, Node node) throws XPathExpressionException {
+        String strCapacity = ((String) xpath.evaluate("./dns:Async/dns:Capacity/text()", node, XPathConstants.STRING)).strip();
+        if (!strCapacity.isEmpty()) {
+            this.asyncCapacity = Integer.parseInt(strCapacity);
+            String strBackPressure = ((String) xpath.evaluate("./dns:Async/dns:BackPressure/text()", node, XPathConstants.STRING)).strip();
+            if (!strBackPressure.isEmpty()) {
+                this.backPressure = AsyncOutputStream.BackPressure.valueOf(strBackPressure);
+            } else {
+                this.backPressure = AsyncOutputStream.BackPressure.BLOCK;
+            }
+        } else {
+            this.asyncCapacity = -1;
+        }
     }
 
     /**
@@ -200,24 +526,37 @@ public class FileTracer extends AbstractTracer {
     }
 
     /**
-     * Checks if the file size limit has been exceeded and splits the trace file if need be.
+     * Indicates if the bytes written into the current log file exceed the configured limit. The size will be taken from the
+     * {@link CountingOutputStream} beneath the buffer, hence neither the file system will be queried nor a lock will be acquired.
+     * Striped and asynchronous text files aren't rotated by the writing threads since these don't hold the lock, see {@link FileRotator}.
+     *
+     * @return true if the log file should be rotated
+     */
+    protected boolean isLimitExceeded() {
+        CountingOutputStream currentCounter = this.countingOutputStream;
+        return this.byteLimit != -1 && currentCounter != null && currentCounter.getCount() > this.byteLimit && !this.getTracePrintStream().isLockFree();
+    }
+
+    /**
+     * Checks if the file size limit has been exceeded and splits the trace file if need be. The lock of the {@link TracePrintStream}
+     * will only be acquired if a rotation is actually due.
      */
     protected void checkLimit() {
+        if (!isLimitExceeded()) {
+            return;
+        }
+
         this.getTracePrintStream().lock();
         this.getTracePrintStream().grantLockAccess(this);
         ReentrantLock reentrantLock = this.lockAccess.getLock();
         try {
-            if (this.byteLimit != -1 && this.traceLogfile != null && this.traceLogfile.length() > this.byteLimit) {
+            if (this.traceLogfile != null && isLimitExceeded()) {
                 close();
-
-                int pos = this.traceLogfile.getName().lastIndexOf('.');
-                String splitFilename = String.format("%s.%d.log", this.traceLogfile.getName().substring(0, pos), ++this.counter);
                 try {
-                    Files.move(this.traceLogfile.toPath(), this.logDirPath.resolve(splitFilename), StandardCopyOption.REPLACE_EXISTING);
+                    moveToSplitFile();
                 } catch (IOException ex) {
                     ex.printStackTrace(System.err);
                 }
-
                 open();
             }
         } finally {
@@ -227,10 +566,56 @@ public class FileTracer extends AbstractTracer {
         }
     }
 
+    /**
+     * Renames the current log file by appending the next split number.
+     *
+     * @throws IOException indicates an I/O problem
+     */
+    private void moveToSplitFile() throws IOException {
+        int pos = this.traceLogfile.getName().lastIndexOf('.');
+        String splitFilename = String.format("%s.%d.log", this.traceLogfile.getName().substring(0, pos), ++this.counter);
+        Files.move(this.traceLogfile.toPath(), this.logDirPath.resolve(splitFilename), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Rotates asynchronous and striped text files. The rotation is carried out between two records by the background writer of the
+     * {@link AsyncOutputStream} or by the merging thread of the {@link StripedOutputStream} while it holds the merge lock, hence the
+     * writing threads needn't hold the lock. The counters and streams of the log file will be replaced by that thread only,
+     * {@link #close()} waits for the background writer to terminate or acquires the merge lock before closing the file.
+     */
+    private final class FileRotator implements Rotator {
+
+        /** indicates if the stream into the new file requires a buffer of its own */
+        private final boolean buffered;
+
+        FileRotator(boolean buffered) {
+            this.buffered = buffered;
+        }
+
+        @Override
+        public boolean isDue() {
+            CountingOutputStream currentCounter = FileTracer.this.countingOutputStream;
+            return currentCounter.getCount() > FileTracer.this.byteLimit;
+        }
+
+        @Override
+        public OutputStream rotate(OutputStream out) throws IOException {
+            out.write(formatClosingBanner().getBytes());
+            out.close();
+            moveToSplitFile();
+            FileTracer.this.countingOutputStream = new CountingOutputStream(createLogFileStream());
+            OutputStream fileStream = this.buffered ? new BufferedOutputStream(FileTracer.this.countingOutputStream, getBufferSize())
+                    : FileTracer.this.countingOutputStream;
+            fileStream.write(formatOpeningBanner().getBytes());
+
+            return fileStream;
+        }
+    }
+
     @Override
-    public IndentablePrintStream out() {
+    protected IndentablePrintStream out(TracingContext tracingContext) {
         checkLimit();
-        return super.out();
+        return super.out(tracingContext);
     }
 
     @Override
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis.file;
+
+import de.christofreichardt.diagnosis.io.MappedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import org.w3c.dom.Node;
+
+/**
+ * This tracer logs into memory-mapped windows of the log file. Flushing the trace buffer copies the bytes into the page cache
+ * instead of issuing a write syscall. Hence {@code AutoFlush} becomes cheap and the output survives a crash of the JVM. A
+ * window will never be larger than the configured {@code Limit}, so the log file rotation works as with a plain
+ * {@link FileTracer}. Closed log files are truncated to their actual length and look like those of a {@link FileTracer}.
+ * Since Windows refuses to truncate or to rename a file with mapped regions, this tracer writes through a plain file stream
+ * on Windows, see {@link MappedOutputStream#isSupported()}.
+ *
+ * @author Christof Reichardt
+ */
+public class MappedFileTracer extends FileTracer {
+
+    /**
+     * the size in bytes of the mapped windows
+     */
+    protected int windowSize = MappedOutputStream.DEFAULT_WINDOW_SIZE;
+
+    /**
+     * Constructor expects the preferably unique tracer name. This is at the same time the name of the logfile.
+     *
+     * @param name the name of the tracer
+     */
+    public MappedFileTracer(String name) {
+        super(name);
+    }
+
+    /**
+     * Gives the size of the mapped windows.
+     *
+     * @return the windowSize
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Sets the size of the mapped windows. Takes effect when the tracer is opened the next time.
+     *
+     * @param windowSize the windowSize to set
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Need a positive window size.");
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Maps the log file. The size of the first window is bounded by the byte limit, if any. Falls back to the plain file stream
+     * of the {@link FileTracer} if memory-mapped files aren't supported on the current platform.
+     *
+     * @return the OutputStream to the trace file
+     * @throws IOException indicates an I/O problem
+     */
+    @Override
+    protected OutputStream createLogFileStream() throws IOException {
+        if (!MappedOutputStream.isSupported()) {
+            System.err.printf("WARNING: Memory-mapped trace files aren't supported on %s.%n", System.getProperty("os.name"));
+            return super.createLogFileStream();
+        }
+        int effectiveWindowSize = this.byteLimit != -1 ? (int) Math.min(this.windowSize, this.byteLimit) : this.windowSize;
+        return new MappedOutputStream(this.traceLogfile.toPath(), effectiveWindowSize);
+    }
+
+    @Override
+    protected void readConfiguration(XPath xpath, Node node) throws XPathExpressionException, FileTracer.Exception {
+        super.readConfiguration(xpath, node);
+
+        String strWindowSize = ((String) xpath.evaluate("./dns:WindowSize/text()", node, XPathConstants.STRING)).strip();
+        if (!strWindowSize.isEmpty()) {
+            this.windowSize = Integer.parseInt(strWindowSize);
+        } else {
+            this.windowSize = MappedOutputStream.DEFAULT_WINDOW_SIZE;
+        }
+
+        System.out.println("this.windowSize = " + this.windowSize);
+    }
+}
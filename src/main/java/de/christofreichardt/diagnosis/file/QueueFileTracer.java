@@ -47,11 +47,22 @@ public class QueueFileTracer extends QueueTracer<FileTracer> {
         return super.tracer.getLogDirPath();
     }
 
+    /**
+     * Reopens the internally used {@link FileTracer} without discarding the former trace output.
+     */
+    @Override
+    protected void reopen() {
+        super.tracer.reopen();
+    }
+
     @Override
     protected void readConfiguration(XPath xpath, Node node) throws XPathExpressionException, QueueFileTracer.Exception {
         super.readConfiguration(xpath, node);
         File logDir = new File((String) xpath.evaluate("./dns:TraceLogger/dns:LogDir/text()", node, XPathConstants.STRING));
         super.tracer.setLogDirPath(logDir.toPath());
+        Node traceLoggerNode = (Node) xpath.evaluate("./dns:TraceLogger", node, XPathConstants.NODE);
+        super.tracer.readAsyncConfiguration(xpath, traceLoggerNode);
+        super.tracer.readFormatConfiguration(xpath, traceLoggerNode);
     }
 
 }
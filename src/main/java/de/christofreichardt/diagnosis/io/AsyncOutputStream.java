@@ -0,0 +1,428 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis.io;
+
+import de.christofreichardt.util.RingBuffer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An OutputStream which decouples the writing threads from the actual I/O. Written bytes are published as records into a bounded
+ * {@link RingBuffer}. A single background thread drains the ring buffer in batches into the underlying OutputStream. Hence the
+ * writing threads never touch the disk. What happens if the ring buffer is full is governed by the {@link BackPressure} policy.
+ * <p>
+ * In line mode a record is a sequence of complete lines. Every thread collects its incomplete lines within a staging buffer of
+ * its own, hence whole records may be written concurrently without any lock and the records of different threads won't be torn
+ * apart. A write which ends with a line feed and finds the staging buffer of the thread empty is published as it is. In chunk
+ * mode every write is published as a record of its own, the writing threads must serialize their writes then. The records are
+ * copied into reusable slots, which will be handed back to the writing threads after the background writer has written them.
+ * </p>
+ * <p>
+ * In line mode the background writer may rotate the underlying trace file between two records by means of a {@link Rotator}.
+ * </p>
+ *
+ * @author Christof Reichardt
+ */
+public class AsyncOutputStream extends OutputStream {
+
+    /**
+     * Policies which apply when a record is to be published but the ring buffer is full.
+     */
+    public enum BackPressure {
+        /**
+         * the writing thread waits until the background writer has made room
+         */
+        BLOCK,
+        /**
+         * the record to be published will be discarded
+         */
+        DROP_NEWEST,
+        /**
+         * the oldest not yet written record will be discarded in favour of the record to be published
+         */
+        DROP_OLDEST
+    }
+
+    /** the maximum number of records the background writer writes before checking for pending flush requests */
+    public static final int BATCH_SIZE = 64;
+    /** the maximum time the background writer (or a blocked writing thread) parks before looking again */
+    static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    /** the initial size of slots and staging buffers */
+    static final int INITIAL_SIZE = 256;
+
+    /**
+     * A reusable container of a published record.
+     */
+    private static final class Slot {
+        byte[] bytes = new byte[INITIAL_SIZE];
+        int length;
+
+        Slot fill(byte[] b, int off, int len) {
+            if (len > this.bytes.length) {
+                this.bytes = new byte[Math.max(this.bytes.length * 2, len)];
+            }
+            System.arraycopy(b, off, this.bytes, 0, len);
+            this.length = len;
+            return this;
+        }
+    }
+
+    /**
+     * The incomplete line of a single thread.
+     */
+    private static final class Staging {
+        byte[] bytes = new byte[INITIAL_SIZE];
+        int count = 0;
+
+        void append(byte[] b, int off, int len) {
+            if (this.count + len > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.count + len));
+            }
+            System.arraycopy(b, off, this.bytes, this.count, len);
+            this.count += len;
+        }
+
+        void append(byte b) {
+            if (this.count == this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, this.bytes.length * 2);
+            }
+            this.bytes[this.count++] = b;
+        }
+    }
+
+    private final RingBuffer<Slot> ringBuffer;
+    /** slots which have been written by the background writer and may be filled again */
+    private final RingBuffer<Slot> spareSlots;
+    private final BackPressure backPressure;
+    private final boolean lineMode;
+    private final LongAdder droppedRecords = new LongAdder();
+    private final LongAdder unflushedBytes = new LongAdder();
+    private final ThreadLocal<Staging> staging = ThreadLocal.withInitial(Staging::new);
+    /** the number of threads within {@link #publish(byte[], int, int)}, the background writer won't quit while there are any */
+    private final AtomicInteger producers = new AtomicInteger();
+    private final Thread writer;
+    /** the underlying OutputStream, accessed by the background writer only, which might replace it on a rotation */
+    private OutputStream out;
+    private volatile Rotator rotator = null;
+
+    private volatile boolean closed = false;
+    private volatile boolean writerParked = false;
+    private volatile boolean flushRequested = false;
+    private volatile IOException writeError = null;
+
+    /**
+     * Creates an AsyncOutputStream in line mode and starts the background writer.
+     *
+     * @param out          the underlying OutputStream, will be accessed by the background writer only
+     * @param capacity     the number of records the ring buffer can hold
+     * @param backPressure the policy if the ring buffer is full
+     * @param name         used to name the background writer
+     */
+    public AsyncOutputStream(OutputStream out, int capacity, BackPressure backPressure, String name) {
+        this(out, capacity, backPressure, name, true);
+    }
+
+    /**
+     * Creates an AsyncOutputStream and starts the background writer.
+     *
+     * @param out          the underlying OutputStream, will be accessed by the background writer only
+     * @param capacity     the number of records the ring buffer can hold
+     * @param backPressure the policy if the ring buffer is full
+     * @param name         used to name the background writer
+     * @param lineMode     true if records consist of complete lines, false if every write should be published as it is
+     */
+    public AsyncOutputStream(OutputStream out, int capacity, BackPressure backPressure, String name, boolean lineMode) {
+        this.out = out;
+        this.ringBuffer = new RingBuffer<>(capacity);
+        this.spareSlots = new RingBuffer<>(capacity);
+        this.backPressure = backPressure;
+        this.lineMode = lineMode;
+        this.writer = new Thread(this::drain, "AsyncTraceWriter[" + name + "]");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Returns the number of records which have been discarded due to the {@link BackPressure} policy.
+     *
+     * @return the number of discarded records
+     */
+    public long getDroppedRecords() {
+        return this.droppedRecords.sum();
+    }
+
+    /**
+     * Returns the applied {@link BackPressure} policy.
+     *
+     * @return the backPressure
+     */
+    public BackPressure getBackPressure() {
+        return backPressure;
+    }
+
+    /**
+     * Indicates if records consist of complete lines. Only then whole records may be written concurrently.
+     *
+     * @return true if line mode applies
+     */
+    public boolean isLineMode() {
+        return this.lineMode;
+    }
+
+    /**
+     * Installs the {@link Rotator} which will be consulted by the background writer after every record. Requires line mode,
+     * since only then the records consist of complete lines.
+     *
+     * @param rotator the rotator, null switches the rotation off
+     */
+    public void setRotator(Rotator rotator) {
+        if (!this.lineMode && rotator != null) {
+            throw new IllegalStateException("Rotation requires line mode.");
+        }
+        this.rotator = rotator;
+    }
+
+    /**
+     * Gives the number of bytes which have been published since the last flush.
+     *
+     * @return the number of unflushed bytes
+     */
+    public long getUnflushedBytes() {
+        return this.unflushedBytes.sum();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        Staging currentStaging = this.staging.get();
+        currentStaging.append((byte) b);
+        if (!this.lineMode || b == '\n') {
+            publishStaging(currentStaging);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (!this.lineMode) {
+            publish(b, off, len);
+            return;
+        }
+        int lastLineFeed = -1;
+        for (int i = off + len - 1; i >= off; i--) {
+            if (b[i] == '\n') {
+                lastLineFeed = i;
+                break;
+            }
+        }
+        Staging currentStaging = this.staging.get();
+        if (lastLineFeed == -1) {
+            currentStaging.append(b, off, len);
+        } else {
+            int lineBytes = lastLineFeed - off + 1;
+            if (currentStaging.count == 0) {
+                publish(b, off, lineBytes);
+            } else {
+                currentStaging.append(b, off, lineBytes);
+                publishStaging(currentStaging);
+            }
+            currentStaging.append(b, lastLineFeed + 1, len - lineBytes);
+        }
+    }
+
+    /**
+     * Publishes the incomplete line of the current thread (if any) and asks the background writer to flush the underlying
+     * OutputStream as soon as the ring buffer has been drained. This method doesn't wait for the completion of the flush.
+     *
+     * @throws IOException if the stream has been closed or the background writer has encountered an I/O error
+     */
+    @Override
+    public void flush() throws IOException {
+        Staging currentStaging = this.staging.get();
+        if (currentStaging.count > 0) {
+            publishStaging(currentStaging);
+        }
+        this.unflushedBytes.reset();
+        this.flushRequested = true;
+        wakeUpWriter();
+    }
+
+    /**
+     * Publishes the incomplete line of the current thread, waits until the background writer has drained the ring buffer and
+     * closes the underlying OutputStream. Incomplete lines of other threads will be discarded.
+     *
+     * @throws IOException indicates an I/O problem
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this.writer) {
+            if (this.closed) {
+                return;
+            }
+            Staging currentStaging = this.staging.get();
+            if (currentStaging.count > 0) {
+                publishStaging(currentStaging);
+            }
+            this.closed = true;
+        }
+        LockSupport.unpark(this.writer);
+        try {
+            this.writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        this.out.close();
+        if (this.writeError != null) {
+            throw this.writeError;
+        }
+    }
+
+    private void publishStaging(Staging currentStaging) throws IOException {
+        try {
+            publish(currentStaging.bytes, 0, currentStaging.count);
+        } finally {
+            currentStaging.count = 0;
+        }
+    }
+
+    /**
+     * Publishes the given record. The producer count is raised before the closed state is checked, hence a concurrent
+     * {@link #close()} either fails this call or waits until the record has been written.
+     */
+    private void publish(byte[] b, int off, int len) throws IOException {
+        this.producers.incrementAndGet();
+        try {
+            offer(b, off, len);
+        } finally {
+            this.producers.decrementAndGet();
+        }
+    }
+
+    private void offer(byte[] b, int off, int len) throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed.");
+        }
+        if (this.writeError != null) {
+            throw this.writeError;
+        }
+        Slot slot = this.spareSlots.poll();
+        if (slot == null) {
+            slot = new Slot();
+        }
+        slot.fill(b, off, len);
+        switch (this.backPressure) {
+            case BLOCK:
+                while (!this.ringBuffer.offer(slot)) {
+                    if (!this.writer.isAlive()) {
+                        throw new IOException("Stream closed.");
+                    }
+                    LockSupport.unpark(this.writer);
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                break;
+            case DROP_NEWEST:
+                if (!this.ringBuffer.offer(slot)) {
+                    this.droppedRecords.increment();
+                    this.spareSlots.offer(slot);
+                    return;
+                }
+                break;
+            case DROP_OLDEST:
+                while (!this.ringBuffer.offer(slot)) {
+                    Slot oldest = this.ringBuffer.poll();
+                    if (oldest != null) {
+                        this.droppedRecords.increment();
+                        this.spareSlots.offer(oldest);
+                    }
+                }
+                break;
+        }
+        this.unflushedBytes.add(len);
+        wakeUpWriter();
+    }
+
+    private void wakeUpWriter() {
+        if (this.writerParked) {
+            LockSupport.unpark(this.writer);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            int batch = 0;
+            Slot slot;
+            while (batch < BATCH_SIZE && (slot = this.ringBuffer.poll()) != null) {
+                writeRecord(slot);
+                this.spareSlots.offer(slot);
+                batch++;
+                rotateIfDue();
+            }
+            if (batch == 0) {
+                if (this.flushRequested) {
+                    this.flushRequested = false;
+                    flushUnderlyingStream();
+                }
+                if (this.closed && this.producers.get() == 0 && this.ringBuffer.isEmpty()) {
+                    break;
+                }
+                this.writerParked = true;
+                if (this.ringBuffer.isEmpty() && !this.flushRequested && (!this.closed || this.producers.get() > 0)) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                this.writerParked = false;
+            }
+        }
+        flushUnderlyingStream();
+    }
+
+    private void writeRecord(Slot slot) {
+        if (this.writeError == null) {
+            try {
+                this.out.write(slot.bytes, 0, slot.length);
+            } catch (IOException ex) {
+                this.writeError = ex;
+                ex.printStackTrace(System.err);
+            }
+        }
+    }
+
+    private void rotateIfDue() {
+        Rotator currentRotator = this.rotator;
+        if (currentRotator != null && this.writeError == null && currentRotator.isDue()) {
+            try {
+                this.out = currentRotator.rotate(this.out);
+            } catch (IOException ex) {
+                this.writeError = ex;
+                ex.printStackTrace(System.err);
+            }
+        }
+    }
+
+    private void flushUnderlyingStream() {
+        if (this.writeError == null) {
+            try {
+                this.out.flush();
+            } catch (IOException ex) {
+                this.writeError = ex;
+                ex.printStackTrace(System.err);
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis.io;
+
+import de.christofreichardt.diagnosis.TimingMode;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A buffered OutputStream which writes the compact binary trace format. The file starts with the {@link #MAGIC} bytes
+ * followed by the {@link #VERSION}. Thereupon records follow, each introduced by a tag byte:
+ * <ul>
+ * <li>{@link #STRING}: id, length and UTF-8 bytes of a string which will be referenced by subsequent records.</li>
+ * <li>{@link #TEXT}: length and bytes of arbitrary text as written by the {@link TracePrintStream}.</li>
+ * <li>{@link #ENTRY}: depth, ids of return type, class name, method signature and thread name, the identity hash code,
+ * the thread id and the timestamp.</li>
+ * <li>{@link #RETURN}: the same as {@link #ENTRY} followed by the ordinals of the {@link TimingMode} and the
+ * {@link TimeUnit}, the elapsed wall clock and cpu nanoseconds.</li>
+ * </ul>
+ * Numbers are written as unsigned varints, signed numbers are zigzag encoded beforehand. The string table is local to the
+ * file, id 0 denotes null. The timestamp is given in milliseconds relative to the timestamp of the previous record. Text
+ * bytes will be framed as they come in, hence the stream might be handed over to a {@link TracePrintStream} as usual. Use
+ * {@link de.christofreichardt.diagnosis.TraceLogPrinter} to render a binary trace file as text.
+ *
+ * @author Christof Reichardt
+ */
+public class BinaryTraceOutputStream extends BufferedOutputStream {
+
+    /** identifies binary trace files */
+    public static final byte[] MAGIC = {'T', 'R', 'C', 'B'};
+    /** the version of the binary format */
+    public static final int VERSION = 1;
+    /** tag of a string definition */
+    public static final int STRING = 1;
+    /** tag of a text chunk */
+    public static final int TEXT = 2;
+    /** tag of a method entry */
+    public static final int ENTRY = 3;
+    /** tag of a method return */
+    public static final int RETURN = 4;
+
+    private final Map<String, Integer> stringTable = new HashMap<>();
+    private byte[] scratch = new byte[64];
+    private int scratchLength = 0;
+    private long lastTimestamp = 0;
+    private long unflushedBytes = 0;
+
+    /**
+     * Creates a BinaryTraceOutputStream with the given buffer size and writes the file header.
+     *
+     * @param out  the underlying OutputStream
+     * @param size the buffer size
+     * @throws IOException indicates an I/O problem
+     */
+    public BinaryTraceOutputStream(OutputStream out, int size) throws IOException {
+        super(out, size);
+        super.write(MAGIC, 0, MAGIC.length);
+        super.write(VERSION);
+        this.unflushedBytes = MAGIC.length + 1;
+    }
+
+    /**
+     * Gives the number of bytes which have been written since the last flush.
+     *
+     * @return the number of unflushed bytes
+     */
+    public synchronized long getUnflushedBytes() {
+        return this.unflushedBytes;
+    }
+
+    /**
+     * Frames the given byte as text chunk.
+     *
+     * @param b the byte
+     * @throws IOException indicates an I/O problem
+     */
+    @Override
+    public synchronized void write(int b) throws IOException {
+        this.scratchLength = 0;
+        putVarLong(TEXT);
+        putVarLong(1);
+        putByte(b);
+        writeScratch();
+    }
+
+    /**
+     * Frames the given bytes as text chunk.
+     *
+     * @param b   the bytes
+     * @param off the start offset
+     * @param len the number of bytes
+     * @throws IOException indicates an I/O problem
+     */
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (len > 0) {
+            this.scratchLength = 0;
+            putVarLong(TEXT);
+            putVarLong(len);
+            writeScratch();
+            super.write(b, off, len);
+            this.unflushedBytes += len;
+        }
+    }
+
+    /**
+     * Writes a method entry.
+     *
+     * @param depth            the size of the stack before the method has been pushed
+     * @param returnType       the return type, might be null
+     * @param className        the simple name of the class, might be null
+     * @param instance         indicates if the method belongs to an object
+     * @param identityHashCode the identity hash code of the object
+     * @param methodSignature  the remaining method signature
+     * @param thread           the current thread
+     * @throws IOException indicates an I/O problem
+     */
+    public synchronized void writeEntry(int depth, String returnType, String className, boolean instance, int identityHashCode,
+                                        String methodSignature, Thread thread) throws IOException {
+        putMethod(ENTRY, depth, returnType, className, instance, identityHashCode, methodSignature, thread);
+        writeScratch();
+    }
+
+    /**
+     * Writes a method return.
+     *
+     * @param depth            the size of the stack after the method has been popped
+     * @param returnType       the return type, might be null
+     * @param className        the simple name of the class, might be null
+     * @param instance         indicates if the method belongs to an object
+     * @param identityHashCode the identity hash code of the object
+     * @param methodSignature  the remaining method signature
+     * @param thread           the current thread
+     * @param timingMode       the timings to be rendered
+     * @param timingUnit       the unit of the rendered timings
+     * @param elapsedNanos     the elapsed wall clock time in nanoseconds
+     * @param elapsedCpuNanos  the elapsed cpu time in nanoseconds
+     * @throws IOException indicates an I/O problem
+     */
+    public synchronized void writeReturn(int depth, String returnType, String className, boolean instance, int identityHashCode,
+                                         String methodSignature, Thread thread, TimingMode timingMode, TimeUnit timingUnit,
+                                         long elapsedNanos, long elapsedCpuNanos) throws IOException {
+        putMethod(RETURN, depth, returnType, className, instance, identityHashCode, methodSignature, thread);
+        putByte(timingMode.ordinal());
+        putByte(timingUnit.ordinal());
+        putVarLong(elapsedNanos);
+        putVarLong(elapsedCpuNanos);
+        writeScratch();
+    }
+
+    /**
+     * Writes the buffered bytes into the underlying stream and flushes it.
+     *
+     * @throws IOException indicates an I/O problem
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        super.flush();
+        this.unflushedBytes = 0;
+    }
+
+    private void putMethod(int tag, int depth, String returnType, String className, boolean instance, int identityHashCode,
+                           String methodSignature, Thread thread) throws IOException {
+        int returnTypeId = stringId(returnType), classNameId = stringId(className), methodSignatureId = stringId(methodSignature),
+                threadNameId = stringId(thread.getName());
+        long timestamp = System.currentTimeMillis();
+        this.scratchLength = 0;
+        putVarLong(tag);
+        putVarLong(depth);
+        putVarLong(returnTypeId);
+        putVarLong(classNameId);
+        putVarLong(instance ? zigzag(identityHashCode) + 1 : 0);
+        putVarLong(methodSignatureId);
+        putVarLong(threadNameId);
+        putVarLong(thread.getId());
+        putVarLong(zigzag(timestamp - this.lastTimestamp));
+        this.lastTimestamp = timestamp;
+    }
+
+    private int stringId(String s) throws IOException {
+        if (s == null) {
+            return 0;
+        }
+        Integer id = this.stringTable.get(s);
+        if (id == null) {
+            id = this.stringTable.size() + 1;
+            this.stringTable.put(s, id);
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            this.scratchLength = 0;
+            putVarLong(STRING);
+            putVarLong(id);
+            putVarLong(bytes.length);
+            writeScratch();
+            super.write(bytes, 0, bytes.length);
+            this.unflushedBytes += bytes.length;
+        }
+
+        return id;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void putByte(int b) {
+        if (this.scratchLength == this.scratch.length) {
+            this.scratch = Arrays.copyOf(this.scratch, this.scratch.length * 2);
+        }
+        this.scratch[this.scratchLength++] = (byte) b;
+    }
+
+    private void putVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            putByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        putByte((int) value);
+    }
+
+    private void writeScratch() throws IOException {
+        super.write(this.scratch, 0, this.scratchLength);
+        this.unflushedBytes += this.scratchLength;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * This OutputStream counts the bytes which have been passed through to the underlying OutputStream. Placed beneath a
+ * {@link java.io.BufferedOutputStream} the count equals the size of the written file without querying the file system.
+ * The count is updated by one writing thread at a time (the enclosing buffer serializes the writes) but may be read by
+ * any thread.
+ *
+ * @author Christof Reichardt
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+    private volatile long count = 0;
+
+    /**
+     * Creates a CountingOutputStream on top of the given OutputStream.
+     *
+     * @param out the underlying OutputStream
+     */
+    public CountingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    /**
+     * Creates a CountingOutputStream on top of the given OutputStream which continues the given count, e.g. the size of a file
+     * which has been opened for appending.
+     *
+     * @param out   the underlying OutputStream
+     * @param count the initial count of bytes
+     */
+    public CountingOutputStream(OutputStream out, long count) {
+        super(out);
+        this.count = count;
+    }
+
+    /**
+     * Returns the number of bytes which have been written so far.
+     *
+     * @return the count of bytes
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.out.write(b);
+        this.count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        this.out.write(b, off, len);
+        this.count += len;
+    }
+}
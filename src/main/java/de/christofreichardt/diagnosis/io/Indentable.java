@@ -16,8 +16,13 @@
 
 package de.christofreichardt.diagnosis.io;
 
+import java.util.function.Supplier;
+
 /**
- * This interface defines the methods {@link IndentablePrintStream}s must implement.
+ * This interface defines the methods {@link IndentablePrintStream}s must implement. The overloads with a single argument
+ * and the lazy methods taking a {@link Supplier} spare the caller the varargs array and the message assembly, that is nothing
+ * will be allocated or formatted if the stream discards its output anyway. They default to the varargs or String methods,
+ * implementations override them to actually avoid the allocations.
  *
  * @author Christof Reichardt
  */
@@ -48,6 +53,115 @@ public interface Indentable {
      */
     Indentable printfIndentln(String format, Object... args);
 
+    /**
+     * Prints an indented line using the specified format string and a single argument.
+     *
+     * @param format the format string
+     * @param arg    the to be printed argument
+     * @return the indentable stream itself
+     */
+    default Indentable printfIndentln(String format, Object arg) {
+        return printfIndentln(format, new Object[]{arg});
+    }
+
+    /**
+     * Prints an indented line using the specified format string and a single argument.
+     *
+     * @param format the format string
+     * @param arg    the to be printed argument, will be boxed only if the line is actually printed
+     * @return the indentable stream itself
+     */
+    default Indentable printfIndentln(String format, byte arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    /**
+     * Prints an indented line using the specified format string and a single argument.
+     *
+     * @param format the format string
+     * @param arg    the to be printed argument, will be boxed only if the line is actually printed
+     * @return the indentable stream itself
+     */
+    default Indentable printfIndentln(String format, short arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    /**
+     * Prints an indented line using the specified format string and a single argument.
+     *
+     * @param format the format string
+     * @param arg    the to be printed argument, will be boxed only if the line is actually printed
+     * @return the indentable stream itself
+     */
+    default Indentable printfIndentln(String format, int arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    /**
+     * Prints an indented line using the specified format string and a single argument.
+     *
+     * @param format the format string
+     * @param arg    the to be printed argument, will be boxed only if the line is actually printed
+     * @return the indentable stream itself
+     */
+    default Indentable printfIndentln(String format, long arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    /**
+     * Prints an indented line using the specified format string and a single argument.
+     *
+     * @param format the format string
+     * @param arg    the to be printed argument, will be boxed only if the line is actually printed
+     * @return the indentable stream itself
+     */
+    default Indentable printfIndentln(String format, char arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    /**
+     * Prints an indented line using the specified format string and a single argument.
+     *
+     * @param format the format string
+     * @param arg    the to be printed argument, will be boxed only if the line is actually printed
+     * @return the indentable stream itself
+     */
+    default Indentable printfIndentln(String format, float arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    /**
+     * Prints an indented line using the specified format string and a single argument.
+     *
+     * @param format the format string
+     * @param arg    the to be printed argument, will be boxed only if the line is actually printed
+     * @return the indentable stream itself
+     */
+    default Indentable printfIndentln(String format, double arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    /**
+     * Prints an indented string supplied on demand. The lazy methods have names of their own since overloads of
+     * {@link #printIndent(String)} and {@link #printIndentln(String)} would render {@code printIndent(null)} ambiguous.
+     *
+     * @param supplier provides the string to be printed, will be invoked only if the string is actually printed
+     * @return the indentable stream itself
+     */
+    default Indentable printIndentLazily(Supplier<String> supplier) {
+        return printIndent(supplier.get());
+    }
+
+    /**
+     * Prints an indented string supplied on demand together with a line feed.
+     *
+     * @param supplier provides the string to be printed, will be invoked only if the string is actually printed
+     * @return the indentable stream itself
+     */
+    default Indentable printIndentlnLazily(Supplier<String> supplier) {
+        return printIndentln(supplier.get());
+    }
+
     /**
      * Prints only the current indentation.
      *
@@ -18,6 +18,7 @@ package de.christofreichardt.diagnosis.io;
 
 import java.io.PrintStream;
 import java.io.OutputStream;
+import java.util.function.Supplier;
 
 /**
  * The base class of all indentable print streams.
@@ -36,7 +37,8 @@ public abstract class IndentablePrintStream extends PrintStream implements Inden
     }
 
     /*
-     * Implementation of Indentable interface
+     * Implementation of Indentable interface, the single argument and lazy methods delegate to the varargs and String methods
+     * unless overridden
      */
     @Override
     abstract public IndentablePrintStream printIndent(String s);
@@ -50,6 +52,56 @@ public abstract class IndentablePrintStream extends PrintStream implements Inden
     @Override
     abstract public IndentablePrintStream printfIndentln(String format, Object... args);
 
+    @Override
+    public IndentablePrintStream printfIndentln(String format, Object arg) {
+        return printfIndentln(format, new Object[]{arg});
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, byte arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, short arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, int arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, long arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, char arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, float arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, double arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printIndentLazily(Supplier<String> supplier) {
+        return printIndent(supplier.get());
+    }
+
+    @Override
+    public IndentablePrintStream printIndentlnLazily(Supplier<String> supplier) {
+        return printIndentln(supplier.get());
+    }
+
     /**
      * Acquires a lock to prevent concurrent access to the {@code IndentablePrintStream}. This is useful if multiple threads are
      * writing to the {@code IndentablePrintStream}.
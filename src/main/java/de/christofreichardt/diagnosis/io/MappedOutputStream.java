@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * This OutputStream writes into a memory-mapped window of a file. When the window is full the next window will be mapped
+ * directly behind the previous one. Writing (and flushing) therefore boils down to copying bytes into the page cache, no
+ * write syscall is involved. Since the page cache belongs to the operating system, the written bytes survive a crash of the
+ * Java Virtual Machine. When the stream is closed the file will be truncated to the number of actually written bytes. A file
+ * left behind by a crashed JVM is padded with zero bytes up to the end of the last mapped window.
+ * <p>
+ * Mapped windows are released by the garbage collector only, hence the file is truncated (and possibly renamed by a log file
+ * rotation) while former windows are still mapped. POSIX platforms such as Linux permit this, Windows doesn't. Therefore this
+ * stream refuses to work on Windows, see {@link #isSupported()}.
+ * </p>
+ *
+ * @author Christof Reichardt
+ */
+public class MappedOutputStream extends OutputStream {
+
+    /** the default size of a mapped window (1 MebiByte) */
+    public static final int DEFAULT_WINDOW_SIZE = 1024 * 1024;
+
+    private final FileChannel fileChannel;
+    private final int windowSize;
+    private MappedByteBuffer window;
+    private long windowStart = 0;
+    private long position = 0;
+
+    /**
+     * Creates (or truncates) the denoted file and maps the first window.
+     *
+     * @param path       the path to the file
+     * @param windowSize the size of the mapped windows in bytes
+     * @throws IOException indicates an I/O problem
+     */
+    public MappedOutputStream(Path path, int windowSize) throws IOException {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Memory-mapped trace files aren't supported on " + System.getProperty("os.name") + ".");
+        }
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Invalid window size: " + windowSize);
+        }
+        this.fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.windowSize = windowSize;
+        map(0);
+    }
+
+    /**
+     * Indicates if the current platform permits to truncate and to rename a file while regions of it are still mapped.
+     *
+     * @return false on Windows, true otherwise
+     */
+    public static boolean isSupported() {
+        return !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+    }
+
+    /**
+     * Returns the number of bytes which have been written so far.
+     *
+     * @return the position within the file
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    private void map(long start) throws IOException {
+        this.window = this.fileChannel.map(FileChannel.MapMode.READ_WRITE, start, this.windowSize);
+        this.windowStart = start;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.window == null) {
+            throw new IOException("Stream closed.");
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (!this.window.hasRemaining()) {
+            map(this.windowStart + this.windowSize);
+        }
+        this.window.put((byte) b);
+        this.position++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (!this.window.hasRemaining()) {
+                map(this.windowStart + this.windowSize);
+            }
+            int chunk = Math.min(len, this.window.remaining());
+            this.window.put(b, off, chunk);
+            this.position += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Pseudo flush()-method. The written bytes are already in the page cache.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Truncates the file to the number of written bytes and closes the underlying channel. The current window won't be
+     * touched anymore, but it remains mapped until it has been garbage collected, as do the former windows.
+     *
+     * @throws IOException indicates an I/O problem
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.window != null) {
+            this.window = null;
+            try {
+                this.fileChannel.truncate(this.position);
+            } finally {
+                this.fileChannel.close();
+            }
+        }
+    }
+}
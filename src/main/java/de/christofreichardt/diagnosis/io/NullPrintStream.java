@@ -18,6 +18,7 @@ package de.christofreichardt.diagnosis.io;
 
 import java.io.OutputStream;
 import java.util.Locale;
+import java.util.function.Supplier;
 
 /**
  * The tracer classes return such a NullPrintStream when the current state and the configuration demands that no output should be written. This is equivalent to a redirection to /dev/null.
@@ -53,6 +54,56 @@ final public class NullPrintStream extends IndentablePrintStream {
         return this;
     }
 
+    @Override
+    public IndentablePrintStream printfIndentln(String format, Object arg) {
+        return this;
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, byte arg) {
+        return this;
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, short arg) {
+        return this;
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, int arg) {
+        return this;
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, long arg) {
+        return this;
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, char arg) {
+        return this;
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, float arg) {
+        return this;
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, double arg) {
+        return this;
+    }
+
+    @Override
+    public IndentablePrintStream printIndentLazily(Supplier<String> supplier) {
+        return this;
+    }
+
+    @Override
+    public IndentablePrintStream printIndentlnLazily(Supplier<String> supplier) {
+        return this;
+    }
+
     /**
      * Pseudo lock()-method.
      */
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis.io;
+
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A reusable byte buffer used to assemble a complete trace record before it will be written with a single call to the
+ * underlying stream. Characters are encoded by hand, so appending strings and numbers doesn't create garbage. The encoding
+ * matches the default charset used by the {@link TracePrintStream}. An instance is meant to be used by one thread at a time.
+ *
+ * @author Christof Reichardt
+ */
+public class RecordBuffer {
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final boolean UTF_8 = StandardCharsets.UTF_8.equals(CHARSET);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(CHARSET);
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] bytes;
+    private int length = 0;
+
+    /**
+     * Creates a RecordBuffer with an initial capacity of 256 bytes.
+     */
+    public RecordBuffer() {
+        this(256);
+    }
+
+    /**
+     * Creates a RecordBuffer with the given initial capacity. The buffer grows as required.
+     *
+     * @param capacity the initial capacity
+     */
+    public RecordBuffer(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    /**
+     * Encodes the given string with the same charset as used by {@link #append(String)}. Meant to pre-encode frequently
+     * used strings.
+     *
+     * @param s the string
+     * @return the encoded bytes
+     */
+    public static byte[] encode(String s) {
+        return s.getBytes(CHARSET);
+    }
+
+    /**
+     * Discards the content of the buffer.
+     *
+     * @return this RecordBuffer
+     */
+    public RecordBuffer reset() {
+        this.length = 0;
+        return this;
+    }
+
+    /**
+     * Gives the number of assembled bytes.
+     *
+     * @return the length
+     */
+    public int length() {
+        return this.length;
+    }
+
+    private void ensureCapacity(int additionalBytes) {
+        if (this.length + additionalBytes > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.length + additionalBytes));
+        }
+    }
+
+    /**
+     * Appends the encoded characters of the given string.
+     *
+     * @param s the string, null will be appended as "null"
+     * @return this RecordBuffer
+     */
+    public RecordBuffer append(String s) {
+        if (s == null) {
+            s = "null";
+        }
+
+        return append(s, 0, s.length());
+    }
+
+    /**
+     * Appends the encoded characters of the given region of a character sequence, e.g. a string or a StringBuilder.
+     *
+     * @param s     the character sequence
+     * @param start the index of the first character
+     * @param end   the index after the last character
+     * @return this RecordBuffer
+     */
+    public RecordBuffer append(CharSequence s, int start, int end) {
+        ensureCapacity(end - start);
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                this.bytes[this.length++] = (byte) c;
+            } else {
+                appendNonAscii(s, i, end);
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    i++;
+                }
+                ensureCapacity(end - i);
+            }
+        }
+
+        return this;
+    }
+
+    private void appendNonAscii(CharSequence s, int index, int end) {
+        char c = s.charAt(index);
+        if (UTF_8) {
+            ensureCapacity(4);
+            if (c < 0x800) {
+                this.bytes[this.length++] = (byte) (0xc0 | (c >> 6));
+                this.bytes[this.length++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && index + 1 < end && Character.isLowSurrogate(s.charAt(index + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(index + 1));
+                this.bytes[this.length++] = (byte) (0xf0 | (codePoint >> 18));
+                this.bytes[this.length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                this.bytes[this.length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                this.bytes[this.length++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                this.bytes[this.length++] = '?';
+            } else {
+                this.bytes[this.length++] = (byte) (0xe0 | (c >> 12));
+                this.bytes[this.length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                this.bytes[this.length++] = (byte) (0x80 | (c & 0x3f));
+            }
+        } else {
+            int charEnd = Character.isHighSurrogate(c) && index + 1 < end ? index + 2 : index + 1;
+            byte[] encoded = s.subSequence(index, charEnd).toString().getBytes(CHARSET);
+            ensureCapacity(encoded.length);
+            System.arraycopy(encoded, 0, this.bytes, this.length, encoded.length);
+            this.length += encoded.length;
+        }
+    }
+
+    /**
+     * Appends a single ASCII character.
+     *
+     * @param c the character, must be below 0x80
+     * @return this RecordBuffer
+     */
+    public RecordBuffer append(char c) {
+        ensureCapacity(1);
+        this.bytes[this.length++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Appends the decimal representation of the given number.
+     *
+     * @param value the number
+     * @return this RecordBuffer
+     */
+    public RecordBuffer append(long value) {
+        if (value == Long.MIN_VALUE) {
+            return append(MIN_LONG, 0, MIN_LONG.length);
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            this.bytes[this.length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+            digits++;
+        }
+        for (int i = this.length + digits - 1; i >= this.length; i--) {
+            this.bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        this.length += digits;
+
+        return this;
+    }
+
+    /**
+     * Appends the given bytes.
+     *
+     * @param b   the bytes
+     * @param off the start offset
+     * @param len the number of bytes
+     * @return this RecordBuffer
+     */
+    public RecordBuffer append(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(b, off, this.bytes, this.length, len);
+        this.length += len;
+        return this;
+    }
+
+    /**
+     * Appends the indentation for the given stack size in the same way as {@link TracePrintStream#printIndentString()}.
+     *
+     * @param level the stack size
+     * @return this RecordBuffer
+     */
+    public RecordBuffer appendIndentation(int level) {
+        int count = Math.min(Math.max(level, 0), TracePrintStream.MAX_INDENT_NUMBER - 1) * TracePrintStream.INDENT_CHAR_NUMBER;
+        ensureCapacity(count);
+        Arrays.fill(this.bytes, this.length, this.length + count, (byte) ' ');
+        this.length += count;
+        return this;
+    }
+
+    /**
+     * Appends the line separator of the platform.
+     *
+     * @return this RecordBuffer
+     */
+    public RecordBuffer appendLineSeparator() {
+        return append(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+    }
+
+    /**
+     * Writes the assembled bytes with a single call to the given PrintStream.
+     *
+     * @param printStream the target stream
+     */
+    public void writeTo(PrintStream printStream) {
+        printStream.write(this.bytes, 0, this.length);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Rotates a trace file whose writing threads don't hold the lock of the {@link TracePrintStream}. The rotation is carried out
+ * between two records by the single thread which actually writes into the file, e.g. the background writer of an
+ * {@link AsyncOutputStream} or the merging thread of a {@link StripedOutputStream}.
+ *
+ * @author Christof Reichardt
+ */
+public interface Rotator {
+
+    /**
+     * Indicates if the trace file should be rotated. Will be queried after every record or merge, hence it should be cheap.
+     *
+     * @return true if a rotation is due
+     */
+    boolean isDue();
+
+    /**
+     * Closes the given stream, rotates the trace file and gives the stream into the new trace file.
+     *
+     * @param out the stream into the current trace file
+     * @return the stream into the new trace file
+     * @throws IOException indicates an I/O problem
+     */
+    OutputStream rotate(OutputStream out) throws IOException;
+}
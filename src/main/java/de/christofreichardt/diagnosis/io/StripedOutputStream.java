@@ -0,0 +1,390 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.diagnosis.io;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A buffered OutputStream for trace files which are shared by many threads. Every thread writes into a stripe of its own,
+ * guarded by a monitor which is contended by the merging thread only. A record is sealed as soon as a line has been completed
+ * and receives a number from a global sequence. Flushing merges the sealed records of all stripes in the order of their
+ * sequence numbers into the underlying stream, hence whole lines are never torn apart and the interleaving of the threads is
+ * the same as with a shared buffer. Records which have been sealed concurrently with a merge may be deferred to the next
+ * merge but never overtake records with a lower sequence number. A merge will be triggered by a flush or if the stripe of
+ * a writing thread has reached the configured size. In the latter case the writing thread won't wait for another merge in
+ * progress, its stripe simply grows until the next merge. Only if the stripe exceeds {@link #MAX_STRIPE_FACTOR} times the
+ * configured size the writing thread waits for the merge lock, otherwise the writers could outpace the merging thread.
+ * Stripes of terminated threads are discarded by the next flush after they have been drained. A {@link Rotator} will be
+ * consulted by the merging thread after every merge while it holds the merge lock, hence the trace file is rotated between
+ * two records without involving the writing threads.
+ *
+ * @author Christof Reichardt
+ */
+public class StripedOutputStream extends BufferedOutputStream {
+
+    /** the factor by which a stripe may exceed the configured size before the writing thread waits for the merge lock */
+    public static final int MAX_STRIPE_FACTOR = 4;
+    /** the lower bound of the stripe size, since every merge visits all stripes it shouldn't happen every few records */
+    public static final int MIN_STRIPE_SIZE = 8192;
+
+    /**
+     * The buffered records of a single thread. A pending (not yet sealed) line is kept at the end of the buffer.
+     */
+    private static final class Stripe {
+
+        final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+        byte[] bytes = new byte[256];
+        int length = 0;
+        long[] sequences = new long[16];
+        int[] ends = new int[16];
+        int records = 0;
+
+        // the records taken over by the merging thread, accessed while holding the merge lock only
+        byte[] drainedBytes = new byte[256];
+        long[] drainedSequences = new long[16];
+        int[] drainedEnds = new int[16];
+        int drainedRecords = 0;
+        int cursor = 0;
+
+        void append(byte[] b, int off, int len, AtomicLong sequence) {
+            if (this.length + len > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.length + len));
+            }
+            System.arraycopy(b, off, this.bytes, this.length, len);
+            this.length += len;
+            for (int i = off + len - 1; i >= off; i--) {
+                if (b[i] == '\n') {
+                    seal(this.length - (off + len - 1 - i), sequence);
+                    break;
+                }
+            }
+        }
+
+        void seal(int end, AtomicLong sequence) {
+            if (this.records == this.ends.length) {
+                this.ends = Arrays.copyOf(this.ends, this.records * 2);
+                this.sequences = Arrays.copyOf(this.sequences, this.records * 2);
+            }
+            this.ends[this.records] = end;
+            this.sequences[this.records] = sequence.getAndIncrement();
+            this.records++;
+        }
+
+        void sealPending(AtomicLong sequence) {
+            int sealed = this.records > 0 ? this.ends[this.records - 1] : 0;
+            if (this.length > sealed) {
+                seal(this.length, sequence);
+            }
+        }
+
+        /**
+         * Hands over the records with sequence numbers below the given watermark to the merging thread. The remaining bytes
+         * will be moved to the start of the spare buffer which becomes the buffer of the stripe.
+         *
+         * @param watermark the sequence number up to which (exclusive) records will be handed over
+         */
+        void drain(long watermark) {
+            int taken = 0;
+            while (taken < this.records && this.sequences[taken] < watermark) {
+                taken++;
+            }
+            int boundary = taken > 0 ? this.ends[taken - 1] : 0, remainingBytes = this.length - boundary, remainingRecords = this.records - taken;
+            byte[] spareBytes = this.drainedBytes;
+            long[] spareSequences = this.drainedSequences;
+            int[] spareEnds = this.drainedEnds;
+            if (spareBytes.length < remainingBytes) {
+                spareBytes = new byte[Math.max(spareBytes.length * 2, remainingBytes)];
+            }
+            if (spareEnds.length < remainingRecords) {
+                spareEnds = new int[Math.max(spareEnds.length * 2, remainingRecords)];
+                spareSequences = new long[spareEnds.length];
+            }
+            System.arraycopy(this.bytes, boundary, spareBytes, 0, remainingBytes);
+            System.arraycopy(this.sequences, taken, spareSequences, 0, remainingRecords);
+            for (int i = 0; i < remainingRecords; i++) {
+                spareEnds[i] = this.ends[taken + i] - boundary;
+            }
+
+            this.drainedBytes = this.bytes;
+            this.drainedSequences = this.sequences;
+            this.drainedEnds = this.ends;
+            this.drainedRecords = taken;
+            this.cursor = 0;
+            this.bytes = spareBytes;
+            this.sequences = spareSequences;
+            this.ends = spareEnds;
+            this.length = remainingBytes;
+            this.records = remainingRecords;
+        }
+
+        boolean hasDrained() {
+            return this.cursor < this.drainedRecords;
+        }
+
+        long nextSequence() {
+            return this.drainedSequences[this.cursor];
+        }
+
+        synchronized boolean isAbandoned() {
+            Thread thread = this.owner.get();
+            return (thread == null || !thread.isAlive()) && this.length == 0;
+        }
+    }
+
+    private final int stripeSize;
+    private final AtomicLong sequence = new AtomicLong();
+    /** guards the merging of the stripes, the merge buffer and the registration of stripes */
+    private final ReentrantLock mergeLock = new ReentrantLock();
+    /** the registered stripes, replaced as a whole while holding the merge lock */
+    private volatile Stripe[] stripes = new Stripe[0];
+    private final ThreadLocal<Stripe> currentStripe = ThreadLocal.withInitial(this::register);
+    private final LongAdder unflushedBytes = new LongAdder();
+    /** all records below this sequence number have been flushed, guarded by the merge lock */
+    private long flushedSequence = 0;
+    private volatile boolean closed = false;
+    private volatile Rotator rotator;
+
+    /**
+     * Creates a StripedOutputStream.
+     *
+     * @param out  the underlying OutputStream, will be accessed by merging threads only
+     * @param size the size of the merge buffer and the number of bytes per stripe which triggers a merge, at least
+     *             {@link #MIN_STRIPE_SIZE}
+     */
+    public StripedOutputStream(OutputStream out, int size) {
+        super(out, size);
+        this.stripeSize = Math.max(size, MIN_STRIPE_SIZE);
+    }
+
+    private Stripe register() {
+        Stripe stripe = new Stripe();
+        this.mergeLock.lock();
+        try {
+            Stripe[] registered = Arrays.copyOf(this.stripes, this.stripes.length + 1);
+            registered[registered.length - 1] = stripe;
+            this.stripes = registered;
+        } finally {
+            this.mergeLock.unlock();
+        }
+
+        return stripe;
+    }
+
+    /**
+     * Installs the rotator which will be consulted after every merge.
+     *
+     * @param rotator the rotator
+     */
+    public void setRotator(Rotator rotator) {
+        this.rotator = rotator;
+    }
+
+    /**
+     * Gives the number of bytes which have been written since the last flush.
+     *
+     * @return the number of unflushed bytes
+     */
+    public long getUnflushedBytes() {
+        return this.unflushedBytes.sum();
+    }
+
+    /**
+     * Gives the number of stripes, that is the number of threads whose stripes haven't been discarded yet.
+     *
+     * @return the number of stripes
+     */
+    public int getStripes() {
+        return this.stripes.length;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    /**
+     * Appends the given bytes to the stripe of the current thread. Doesn't acquire any lock shared by the writing threads unless
+     * the stripe has reached its size and a merge is due. The merge lock will be awaited only if the stripe has grown beyond
+     * {@link #MAX_STRIPE_FACTOR} times its size.
+     *
+     * @param b   the bytes
+     * @param off the start offset
+     * @param len the number of bytes
+     * @throws IOException if this stream has been closed or the merge fails
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+        Stripe stripe = this.currentStripe.get();
+        int length;
+        synchronized (stripe) {
+            stripe.append(b, off, len, this.sequence);
+            length = stripe.length;
+        }
+        this.unflushedBytes.add(len);
+        if (length >= this.stripeSize) {
+            if (length >= MAX_STRIPE_FACTOR * this.stripeSize) {
+                this.mergeLock.lock();
+            } else if (!this.mergeLock.tryLock()) {
+                return;
+            }
+            try {
+                synchronized (stripe) {
+                    length = stripe.length;
+                }
+                if (length >= this.stripeSize) { // the stripe might have been drained while waiting
+                    merge(false);
+                    rotateIfDue();
+                }
+            } finally {
+                this.mergeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Merges the sealed records of all stripes into the underlying stream and flushes it. Concurrent flushes are combined: if
+     * every record which has been sealed before the invocation has been flushed by another thread in the meantime, nothing
+     * remains to be done. The count of unflushed bytes is reset before the merge lock is acquired, hence threads consulting
+     * a {@link de.christofreichardt.diagnosis.FlushPolicy} won't queue up behind a flush in progress.
+     *
+     * @throws IOException indicates an I/O problem
+     */
+    @Override
+    public void flush() throws IOException {
+        long target = this.sequence.get();
+        this.unflushedBytes.reset();
+        this.mergeLock.lock();
+        try {
+            if (this.flushedSequence < target) {
+                long watermark = merge(false);
+                super.flush();
+                this.flushedSequence = watermark;
+                discardAbandonedStripes();
+                rotateIfDue();
+            }
+        } finally {
+            this.mergeLock.unlock();
+        }
+    }
+
+    /**
+     * Seals pending lines, merges all records and closes the underlying stream.
+     *
+     * @throws IOException indicates an I/O problem
+     */
+    @Override
+    public void close() throws IOException {
+        this.mergeLock.lock();
+        try {
+            if (!this.closed) {
+                this.closed = true;
+                merge(true);
+                super.close();
+            }
+        } finally {
+            this.mergeLock.unlock();
+        }
+    }
+
+    /**
+     * Drains the stripes and writes their records in the order of the sequence numbers. The watermark is read before any stripe
+     * will be drained, since a record is sealed and numbered while holding the monitor of its stripe every record below the
+     * watermark will be found. Consecutive records of a stripe which aren't interleaved with records of other stripes will be
+     * written by a single call.
+     *
+     * @param sealPending indicates if incomplete lines should be sealed beforehand
+     * @return the watermark, all records with lower sequence numbers have been written
+     * @throws IOException indicates an I/O problem
+     */
+    private long merge(boolean sealPending) throws IOException {
+        Stripe[] registered = this.stripes;
+        if (sealPending) {
+            for (Stripe stripe : registered) {
+                synchronized (stripe) {
+                    stripe.sealPending(this.sequence);
+                }
+            }
+        }
+        long watermark = this.sequence.get();
+        for (Stripe stripe : registered) {
+            synchronized (stripe) {
+                stripe.drain(watermark);
+            }
+        }
+        while (true) {
+            Stripe next = null;
+            long bound = Long.MAX_VALUE; // the lowest sequence number of the other stripes
+            for (Stripe stripe : registered) {
+                if (stripe.hasDrained()) {
+                    if (next == null || stripe.nextSequence() < next.nextSequence()) {
+                        if (next != null) {
+                            bound = Math.min(bound, next.nextSequence());
+                        }
+                        next = stripe;
+                    } else {
+                        bound = Math.min(bound, stripe.nextSequence());
+                    }
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            int start = next.cursor > 0 ? next.drainedEnds[next.cursor - 1] : 0;
+            do {
+                next.cursor++;
+            } while (next.hasDrained() && next.nextSequence() < bound);
+            super.write(next.drainedBytes, start, next.drainedEnds[next.cursor - 1] - start);
+        }
+
+        return watermark;
+    }
+
+    /**
+     * Rotates the underlying stream if due. Must be invoked by the merging thread after a merge, that is the buffer holds whole
+     * records only which will be flushed into the current stream beforehand.
+     *
+     * @throws IOException indicates an I/O problem
+     */
+    private void rotateIfDue() throws IOException {
+        Rotator currentRotator = this.rotator;
+        if (currentRotator != null && currentRotator.isDue()) {
+            super.flush();
+            this.out = currentRotator.rotate(this.out);
+        }
+    }
+
+    private void discardAbandonedStripes() {
+        Stripe[] registered = this.stripes;
+        boolean abandoned = false;
+        for (Stripe stripe : registered) {
+            abandoned |= stripe.isAbandoned();
+        }
+        if (abandoned) {
+            this.stripes = Arrays.stream(registered).filter(stripe -> !stripe.isAbandoned()).toArray(Stripe[]::new);
+        }
+    }
+}
@@ -20,12 +20,20 @@ import de.christofreichardt.diagnosis.AbstractThreadMap;
 import de.christofreichardt.diagnosis.ThreadLocalMap;
 import de.christofreichardt.diagnosis.file.FileTracer;
 import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.Formatter;
+import java.util.Locale;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
  * This is the main implementation of an indentable PrintStream. This stream uses a thread map to retrieve the current stack size
- * and computes the extent of the indentation accordingly.
+ * and computes the extent of the indentation accordingly. The lines printed by the methods of the {@link Indentable} interface
+ * are rendered within a thread-local staging buffer and thereupon written by a single call, hence lines of different threads
+ * sharing this stream won't be interleaved even without {@link #lock()}.
  *
  * @author Christof Reichardt
  */
@@ -37,6 +45,8 @@ public class TracePrintStream extends IndentablePrintStream {
     public final static int INDENT_CHAR_NUMBER = 2;
     /** string array that contains the indent strings */
     final protected static String[] INDENT_STRING;
+    /** the indent strings encoded with the default charset, written without going through the charset encoder */
+    final protected static byte[][] INDENT_BYTES;
 
     /** used to synchronize access to this {@code TracePrintStream}. */
     protected ReentrantLock lock = new ReentrantLock();
@@ -77,16 +87,61 @@ public class TracePrintStream extends IndentablePrintStream {
 
     static {
         INDENT_STRING = new String[MAX_INDENT_NUMBER];
+        INDENT_BYTES = new byte[MAX_INDENT_NUMBER][];
         for (int i = 0; i < MAX_INDENT_NUMBER; i++) {
             char[] spaces = new char[i * INDENT_CHAR_NUMBER];
             Arrays.fill(spaces, ' ');
             INDENT_STRING[i] = new String(spaces);
+            INDENT_BYTES[i] = RecordBuffer.encode(INDENT_STRING[i]);
         }
     }
 
+    /**
+     * Thread-local staging area where lines are rendered before they will be written by a single call.
+     */
+    private static final class StagingBuffer {
+
+        final StringBuilder stringBuilder = new StringBuilder();
+        final RecordBuffer recordBuffer = new RecordBuffer();
+        /** the reusable varargs array for the single argument overloads */
+        final Object[] singleArgument = new Object[1];
+        Formatter formatter;
+        boolean inUse = false;
+
+        Formatter formatter() {
+            Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+            if (this.formatter == null || this.formatter.locale() != locale) {
+                this.formatter = new Formatter(this.stringBuilder, locale);
+            }
+
+            return this.formatter;
+        }
+
+        void release() {
+            this.inUse = false;
+        }
+    }
+
+    private static final ThreadLocal<StagingBuffer> STAGING_BUFFERS = ThreadLocal.withInitial(StagingBuffer::new);
+
     /** provides access to the tracing contexts indexed by thread objects */
     final protected AbstractThreadMap threadMap;
 
+    /** the number of bytes which have been written since the last flush */
+    private volatile long unflushedBytes = 0;
+
+    /** the underlying stream if the binary format has been requested, null otherwise */
+    final private BinaryTraceOutputStream binaryTraceOutputStream;
+
+    /** the underlying stream if striped output has been requested, null otherwise */
+    final private StripedOutputStream stripedOutputStream;
+
+    /** the underlying stream if records are published asynchronously in line mode, null otherwise */
+    final private AsyncOutputStream asyncOutputStream;
+
+    /** either the striped or the asynchronous stream, which may be written without synchronizing on this stream */
+    final private OutputStream lockFreeOutputStream;
+
     /**
      * Creates a new instance by passing a {@link NullOutputStream} to the base class.
      *
@@ -95,6 +150,10 @@ public class TracePrintStream extends IndentablePrintStream {
     public TracePrintStream(AbstractThreadMap threadMap) {
         super(new NullOutputStream());
         this.threadMap = threadMap;
+        this.binaryTraceOutputStream = null;
+        this.stripedOutputStream = null;
+        this.asyncOutputStream = null;
+        this.lockFreeOutputStream = null;
     }
 
     /**
@@ -105,36 +164,203 @@ public class TracePrintStream extends IndentablePrintStream {
      * @param threadMap to compute the indentation level
      */
     public TracePrintStream(BufferedOutputStream out, AbstractThreadMap threadMap) {
+        this((OutputStream) out, threadMap);
+    }
+
+    /**
+     * Creates a new instance of TracePrintStream on top of an OutputStream which isn't necessarily a buffer, e.g. an
+     * {@link AsyncOutputStream}.
+     *
+     * @param out       the underlying OutputStream
+     * @param threadMap to compute the indentation level
+     */
+    public TracePrintStream(OutputStream out, AbstractThreadMap threadMap) {
         super(out);
         this.threadMap = threadMap;
+        this.binaryTraceOutputStream = out instanceof BinaryTraceOutputStream ? (BinaryTraceOutputStream) out : null;
+        this.stripedOutputStream = out instanceof StripedOutputStream ? (StripedOutputStream) out : null;
+        this.asyncOutputStream = out instanceof AsyncOutputStream && ((AsyncOutputStream) out).isLineMode() ? (AsyncOutputStream) out : null;
+        this.lockFreeOutputStream = this.stripedOutputStream != null ? this.stripedOutputStream : this.asyncOutputStream;
+    }
+
+    /**
+     * Gives the number of bytes which have been written since the last flush.
+     *
+     * @return the number of unflushed bytes
+     */
+    public long getUnflushedBytes() {
+        if (this.binaryTraceOutputStream != null) {
+            return this.binaryTraceOutputStream.getUnflushedBytes();
+        } else if (this.stripedOutputStream != null) {
+            return this.stripedOutputStream.getUnflushedBytes();
+        } else if (this.asyncOutputStream != null) {
+            return this.asyncOutputStream.getUnflushedBytes();
+        } else {
+            return this.unflushedBytes;
+        }
+    }
+
+    /**
+     * Indicates if this TracePrintStream writes into a {@link StripedOutputStream}. Whole records may then be written without
+     * holding the {@link #lock}, since every thread writes into a stripe of its own.
+     *
+     * @return true if the output is striped
+     */
+    public boolean isStriped() {
+        return this.stripedOutputStream != null;
+    }
+
+    /**
+     * Indicates if this TracePrintStream publishes whole lines as records into an {@link AsyncOutputStream}. Whole records may
+     * then be written without holding the {@link #lock}, since every thread collects its incomplete lines on its own.
+     *
+     * @return true if the records are published asynchronously
+     */
+    public boolean isAsync() {
+        return this.asyncOutputStream != null;
+    }
+
+    /**
+     * Indicates if whole records may be written into this TracePrintStream without holding the {@link #lock}.
+     *
+     * @return true if the output is either striped or asynchronous
+     * @see #isStriped()
+     * @see #isAsync()
+     */
+    public boolean isLockFree() {
+        return this.lockFreeOutputStream != null;
+    }
+
+    /**
+     * Gives the underlying stream if this TracePrintStream writes the binary trace format. Method entries and returns should
+     * be written directly into that stream as structured records.
+     *
+     * @return the underlying BinaryTraceOutputStream or null
+     */
+    public BinaryTraceOutputStream getBinaryTraceOutputStream() {
+        return this.binaryTraceOutputStream;
     }
 
     @Override
-    public IndentablePrintStream printIndent(String s) {
-        printIndentString();
-        print(s);
+    public void write(int b) {
+        if (this.lockFreeOutputStream != null) {
+            writeLockFree(new byte[]{(byte) b}, 0, 1);
+            return;
+        }
+        synchronized (this) {
+            super.write(b);
+            this.unflushedBytes++;
+        }
+    }
 
-        return this;
+    @Override
+    public void write(byte[] buf, int off, int len) {
+        if (this.lockFreeOutputStream != null) {
+            writeLockFree(buf, off, len);
+            return;
+        }
+        synchronized (this) {
+            super.write(buf, off, len);
+            this.unflushedBytes += len;
+        }
+    }
+
+    /**
+     * Hands the given bytes over to the stripe or the staging buffer of the current thread without synchronizing on this stream.
+     */
+    private void writeLockFree(byte[] buf, int off, int len) {
+        try {
+            this.lockFreeOutputStream.write(buf, off, len);
+        } catch (InterruptedIOException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            setError();
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (this.lockFreeOutputStream != null) {
+            try {
+                this.lockFreeOutputStream.flush();
+            } catch (IOException ex) {
+                setError();
+            }
+            return;
+        }
+        synchronized (this) {
+            super.flush();
+            this.unflushedBytes = 0;
+        }
+    }
+
+    @Override
+    public IndentablePrintStream printIndent(String s) {
+        return writeIndented(s, false);
     }
 
     @Override
     public IndentablePrintStream printIndentln(String s) {
-        printIndentString();
-        println(s);
+        return writeIndented(s, true);
+    }
+
+    private IndentablePrintStream writeIndented(String s, boolean newLine) {
+        StagingBuffer stagingBuffer = acquireStagingBuffer();
+        try {
+            RecordBuffer recordBuffer = appendIndentString(stagingBuffer.recordBuffer).append(s);
+            if (newLine) {
+                recordBuffer.appendLineSeparator();
+            }
+            recordBuffer.writeTo(this);
+        } finally {
+            stagingBuffer.release();
+        }
 
         return this;
     }
 
+    /**
+     * Gives the staging buffer of the current thread. A reentrant call, e.g. from within the {@code toString()} method of
+     * a printed argument, gets a fresh buffer.
+     *
+     * @return an empty staging buffer
+     */
+    private static StagingBuffer acquireStagingBuffer() {
+        StagingBuffer stagingBuffer = STAGING_BUFFERS.get();
+        if (stagingBuffer.inUse) {
+            stagingBuffer = new StagingBuffer();
+        }
+        stagingBuffer.inUse = true;
+        stagingBuffer.stringBuilder.setLength(0);
+        stagingBuffer.recordBuffer.reset();
+
+        return stagingBuffer;
+    }
+
+    private RecordBuffer appendIndentString(RecordBuffer recordBuffer) {
+        int level = this.threadMap.getCurrentStackSize();
+        if (level < 0) {
+            System.err.println("ERROR: Trace stream unlocked but no stack!"); // TODO: rethink this
+        }
+
+        return recordBuffer.appendIndentation(level);
+    }
+
+    /**
+     * Prints the indentation according to the stack size of the current thread. The stack size will be looked up once and the
+     * pre-encoded indentation will be written directly into the underlying buffer.
+     *
+     * @return this stream
+     */
     @Override
     public IndentablePrintStream printIndentString() {
         int level = this.threadMap.getCurrentStackSize();
 
         if (level < 0) {
             System.err.println("ERROR: Trace stream unlocked but no stack!"); // TODO: rethink this
-        } else if (level >= 0 && level < MAX_INDENT_NUMBER) {
-            print(INDENT_STRING[level]);
-        } else {
-            print(INDENT_STRING[MAX_INDENT_NUMBER - 1]);
+        } else if (level > 0) {
+            byte[] indentBytes = INDENT_BYTES[Math.min(level, MAX_INDENT_NUMBER - 1)];
+            write(indentBytes, 0, indentBytes.length);
         }
 
         return this;
@@ -142,13 +368,83 @@ public class TracePrintStream extends IndentablePrintStream {
 
     @Override
     public IndentablePrintStream printfIndentln(String format, Object... args) {
-        printIndentString();
-        printf(format, args);
-        println();
+        StagingBuffer stagingBuffer = acquireStagingBuffer();
+        try {
+            formatIndented(stagingBuffer, format, args);
+        } finally {
+            stagingBuffer.release();
+        }
+
+        return this;
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, Object arg) {
+        StagingBuffer stagingBuffer = acquireStagingBuffer();
+        try {
+            stagingBuffer.singleArgument[0] = arg;
+            formatIndented(stagingBuffer, format, stagingBuffer.singleArgument);
+        } finally {
+            stagingBuffer.singleArgument[0] = null;
+            stagingBuffer.release();
+        }
 
         return this;
     }
 
+    private void formatIndented(StagingBuffer stagingBuffer, String format, Object[] args) {
+        stagingBuffer.formatter().format(format, args);
+        appendIndentString(stagingBuffer.recordBuffer)
+                .append(stagingBuffer.stringBuilder, 0, stagingBuffer.stringBuilder.length())
+                .appendLineSeparator()
+                .writeTo(this);
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, byte arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, short arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, int arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, long arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, char arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, float arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printfIndentln(String format, double arg) {
+        return printfIndentln(format, (Object) arg);
+    }
+
+    @Override
+    public IndentablePrintStream printIndentLazily(Supplier<String> supplier) {
+        return printIndent(supplier.get());
+    }
+
+    @Override
+    public IndentablePrintStream printIndentlnLazily(Supplier<String> supplier) {
+        return printIndentln(supplier.get());
+    }
+
     @Override
     public void lock() {
         this.lock.lock();
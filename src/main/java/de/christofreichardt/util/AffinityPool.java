@@ -0,0 +1,170 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.util;
+
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded pool of reusable elements with thread affinity. Each thread is assigned to one of several affinity slots. An element
+ * given back will be parked within the slot of the returning thread if the slot is vacant, otherwise it goes into a shared
+ * {@link RingBuffer}. A taking thread looks into its own slot first, thereupon into the ring buffer and finally steals from the
+ * slots of other threads. Hence a thread tends to get back the element it has returned most recently. All of this happens by
+ * compare-and-set operations without allocating anything. A {@link Semaphore} counts the available elements, its permits are
+ * granted by compare-and-set as well, only a thread which has to wait for an element will be parked.
+ *
+ * @param <E> the element type
+ * @author Christof Reichardt
+ */
+public class AffinityPool<E> {
+
+    private final int capacity;
+    private final RingBuffer<E> ringBuffer;
+    private final AtomicReferenceArray<E> slots;
+    private final int slotMask;
+    private final AtomicInteger size = new AtomicInteger();
+    private final Semaphore available = new Semaphore(0);
+
+    /**
+     * Creates an empty pool which holds at most the given number of elements.
+     *
+     * @param capacity the maximum number of elements, must be positive
+     */
+    public AffinityPool(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        this.ringBuffer = new RingBuffer<>(capacity);
+        this.slots = new AtomicReferenceArray<>(this.ringBuffer.capacity());
+        this.slotMask = this.ringBuffer.capacity() - 1;
+    }
+
+    /**
+     * Gives the given element into the pool if the capacity hasn't been reached yet.
+     *
+     * @param element the element, must not be null
+     * @return true if the element has been accepted, false if the pool is full
+     */
+    public boolean offer(E element) {
+        Objects.requireNonNull(element);
+        int current;
+        do {
+            current = this.size.get();
+            if (current == this.capacity) {
+                return false;
+            }
+        } while (!this.size.compareAndSet(current, current + 1));
+
+        if (!this.slots.compareAndSet(homeSlot(), null, element)) {
+            this.ringBuffer.offer(element); // can't fail since the pool holds fewer elements than the ring buffer could take
+        }
+        this.available.release();
+
+        return true;
+    }
+
+    /**
+     * Takes an element out of the pool, waiting if necessary until an element becomes available.
+     *
+     * @return the element
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public E take() throws InterruptedException {
+        this.available.acquire();
+        return claim();
+    }
+
+    /**
+     * Takes an element out of the pool, waiting up to the given time if necessary until an element becomes available.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return the element or null if the timeout has elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.available.tryAcquire(timeout, unit) ? claim() : null;
+    }
+
+    /**
+     * Takes an element out of the pool if one is available.
+     *
+     * @return the element or null if the pool is empty
+     */
+    public E poll() {
+        return this.available.tryAcquire() ? claim() : null;
+    }
+
+    /**
+     * Gives a snapshot of the number of elements within the pool.
+     *
+     * @return the number of available elements
+     */
+    public int size() {
+        return this.size.get();
+    }
+
+    /**
+     * The maximum number of elements.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    private int homeSlot() {
+        return (int) Thread.currentThread().getId() & this.slotMask;
+    }
+
+    /**
+     * Searches the element granted by an acquired permit. The permit has been released after the element has been published,
+     * so the search can only miss if other claimers happen to pick the elements in reach first, hence it will be repeated.
+     *
+     * @return the element
+     */
+    private E claim() {
+        int home = homeSlot();
+        while (true) {
+            E element = this.slots.get(home);
+            if (element != null && this.slots.compareAndSet(home, element, null)) {
+                return claimed(element);
+            }
+            element = this.ringBuffer.poll();
+            if (element != null) {
+                return claimed(element);
+            }
+            for (int i = 1; i <= this.slotMask; i++) {
+                int index = (home + i) & this.slotMask;
+                element = this.slots.get(index);
+                if (element != null && this.slots.compareAndSet(index, element, null)) {
+                    return claimed(element);
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private E claimed(E element) {
+        this.size.decrementAndGet();
+        return element;
+    }
+}
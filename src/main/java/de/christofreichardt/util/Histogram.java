@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent histogram of non-negative values with exponentially growing buckets. Bucket 0 counts the values less than one,
+ * bucket {@code b > 0} counts the values within {@code [2^(b-1), 2^b)}. Recording a value takes a single atomic increment.
+ *
+ * @author Christof Reichardt
+ */
+public class Histogram {
+
+    /** the number of buckets */
+    public static final int BUCKETS = 64;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Counts the given value. Negative values are counted as zero.
+     *
+     * @param value the value
+     */
+    public void record(long value) {
+        this.counts.incrementAndGet(bucketOf(value));
+    }
+
+    /**
+     * Gives the bucket of the given value.
+     *
+     * @param value the value
+     * @return the index of the bucket
+     */
+    public static int bucketOf(long value) {
+        return value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Gives the exclusive upper bound of the given bucket. The last bucket is unbounded, hence {@link Long#MAX_VALUE} will be returned.
+     *
+     * @param bucket the index of the bucket
+     * @return the exclusive upper bound
+     */
+    public static long upperBound(int bucket) {
+        return bucket < BUCKETS - 1 ? 1L << bucket : Long.MAX_VALUE;
+    }
+
+    /**
+     * Gives a snapshot of the counts, indexed by bucket.
+     *
+     * @return the counts
+     */
+    public long[] getCounts() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = this.counts.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Gives the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    public long getTotalCount() {
+        long totalCount = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            totalCount += this.counts.get(i);
+        }
+        return totalCount;
+    }
+
+    /**
+     * Gives an upper estimate of the given quantile, that is the upper bound of the bucket the quantile falls into.
+     *
+     * @param quantile the quantile, between 0.0 and 1.0
+     * @return the exclusive upper bound of the bucket or 0 if nothing has been recorded
+     */
+    public long getQuantileUpperBound(double quantile) {
+        if (quantile < 0.0 || quantile > 1.0) {
+            throw new IllegalArgumentException("Invalid quantile: " + quantile);
+        }
+        long[] snapshot = getCounts();
+        long totalCount = 0;
+        for (long count : snapshot) {
+            totalCount += count;
+        }
+        if (totalCount == 0) {
+            return 0;
+        }
+        long threshold = Math.max(1, (long) Math.ceil(quantile * totalCount)), cumulated = 0;
+        int bucket = 0;
+        while ((cumulated += snapshot[bucket]) < threshold) {
+            bucket++;
+        }
+        return upperBound(bucket);
+    }
+
+    /**
+     * Clears all counts.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        long[] snapshot = getCounts();
+        StringBuilder stringBuilder = new StringBuilder("Histogram[");
+        boolean first = true;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (snapshot[i] != 0) {
+                if (!first) {
+                    stringBuilder.append(", ");
+                }
+                stringBuilder.append("<").append(upperBound(i)).append(": ").append(snapshot[i]);
+                first = false;
+            }
+        }
+        return stringBuilder.append("]").toString();
+    }
+}
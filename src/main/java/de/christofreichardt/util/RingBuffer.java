@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014-2023 Christof Reichardt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.christofreichardt.util;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free multi-producer multi-consumer queue backed by an array. Each slot carries a sequence number which tells
+ * producers and consumers whether the slot is ready to be written or read. Producers and consumers claim slots by advancing
+ * their respective positions with a compare-and-set, so neither side ever blocks. The capacity will be rounded up to the
+ * next power of two.
+ *
+ * @param <E> the element type
+ * @author Christof Reichardt
+ */
+public class RingBuffer<E> {
+
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Creates a ring buffer which holds at least the given number of elements.
+     *
+     * @param capacity the minimum capacity, must be positive
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Inserts the given element if there is space available.
+     *
+     * @param element the element to insert, must not be null
+     * @return true if the element has been inserted, false if the ring buffer is full
+     */
+    public boolean offer(E element) {
+        Objects.requireNonNull(element);
+        long position = this.tail.get();
+        while (true) {
+            int index = (int) position & this.mask;
+            long difference = this.sequences.get(index) - position;
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.elements[index] = element;
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+            position = this.tail.get();
+        }
+    }
+
+    /**
+     * Retrieves and removes the oldest element.
+     *
+     * @return the oldest element or null if the ring buffer is empty
+     */
+    public E poll() {
+        long position = this.head.get();
+        while (true) {
+            int index = (int) position & this.mask;
+            long difference = this.sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (this.head.compareAndSet(position, position + 1)) {
+                    @SuppressWarnings("unchecked")
+                    E element = (E) this.elements[index];
+                    this.elements[index] = null;
+                    this.sequences.set(index, position + this.mask + 1);
+                    return element;
+                }
+            } else if (difference < 0) {
+                return null;
+            }
+            position = this.head.get();
+        }
+    }
+
+    /**
+     * Gives a snapshot of the number of elements. The value might be outdated as soon as it has been returned.
+     *
+     * @return the approximate number of elements
+     */
+    public int size() {
+        long size = this.tail.get() - this.head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    /**
+     * Indicates whether the ring buffer is (momentarily) empty.
+     *
+     * @return true if there are no elements
+     */
+    public boolean isEmpty() {
+        return this.tail.get() == this.head.get();
+    }
+
+    /**
+     * The actual capacity, that is the requested capacity rounded up to the next power of two.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return this.mask + 1;
+    }
+}
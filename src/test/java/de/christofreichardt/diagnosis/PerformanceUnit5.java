@@ -1,12 +1,24 @@
 package de.christofreichardt.diagnosis;
 
+import de.christofreichardt.diagnosis.io.NullOutputStream;
+import de.christofreichardt.diagnosis.io.StripedOutputStream;
+import de.christofreichardt.diagnosis.io.TracePrintStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.*;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.profile.GCProfiler;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
@@ -37,6 +49,296 @@ public class PerformanceUnit5 {
         System.out.printf("sum = %d%n", sum);
     }
 
+    /**
+     * A tracer which formats everything but discards the bytes, so that the benchmarks measure the tracer and not the disk.
+     */
+    static class DiscardingTracer extends AbstractTracer {
+
+        final boolean striped;
+
+        DiscardingTracer() {
+            this(false);
+        }
+
+        DiscardingTracer(boolean striped) {
+            super("Discarding");
+            this.striped = striped;
+        }
+
+        @Override
+        public void open() {
+            setBufferedOutputStream(this.striped ? new StripedOutputStream(new NullOutputStream(), getBufferSize())
+                    : new BufferedOutputStream(new NullOutputStream(), getBufferSize()));
+            setTracePrintStream(new TracePrintStream(getBufferedOutputStream(), getThreadMap()));
+            setOpened(true);
+        }
+
+        @Override
+        public void close() {
+            getTracePrintStream().close();
+            setOpened(false);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TracerState {
+        AbstractTracer tracer;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.tracer = new DiscardingTracer();
+            this.tracer.open();
+            this.tracer.initCurrentTracingContext(5, true);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.tracer.close();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void entryAndWayout(TracerState tracerState) {
+        tracerState.tracer.entry("void", this, "entryAndWayout()");
+        tracerState.tracer.wayout();
+    }
+
+    /**
+     * Enters and leaves a method by means of a try-with-resources statement. The scope is reused together with its frame.
+     *
+     * @param tracerState holds the tracer
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @SuppressWarnings("try")
+    public void scopedEntry(TracerState tracerState) {
+        try (TraceScope scope = tracerState.tracer.scopedEntry("void", this, "scopedEntry()")) {
+        }
+    }
+
+    /**
+     * Logs a message. The record is assembled outside the lock without garbage.
+     *
+     * @param tracerState holds the tracer
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void logMessage(TracerState tracerState) {
+        tracerState.tracer.logMessage(LogLevel.INFO, "Within logMessage().", PerformanceUnit5.class, "logMessage()");
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedTracerState {
+        AbstractTracer tracer;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.tracer = new DiscardingTracer();
+            this.tracer.open();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.tracer.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SharedContextState {
+        long counter;
+
+        @Setup(Level.Trial)
+        public void setUp(SharedTracerState sharedTracerState) {
+            sharedTracerState.tracer.initCurrentTracingContext(5, true);
+        }
+    }
+
+    /**
+     * Several threads print onto the same tracer. Every line is rendered within a thread-local staging buffer and written by
+     * a single call.
+     *
+     * @param sharedTracerState  holds the shared tracer
+     * @param sharedContextState holds the counter of the current thread
+     */
+    @Benchmark
+    @Threads(4)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void sharedPrintfIndentln(SharedTracerState sharedTracerState, SharedContextState sharedContextState) {
+        sharedTracerState.tracer.out().printfIndentln("counter = %d", sharedContextState.counter++);
+    }
+
+    @State(Scope.Benchmark)
+    public static class StripedTracerState {
+        @Param({"false", "true"})
+        boolean striped;
+        AbstractTracer tracer;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.tracer = new DiscardingTracer(this.striped);
+            this.tracer.setFlushPolicy(FlushPolicy.parse("bytes:64k"));
+            this.tracer.setTimingMode(TimingMode.WALL);
+            this.tracer.open();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.tracer.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class StripedContextState {
+
+        @Setup(Level.Trial)
+        public void setUp(StripedTracerState stripedTracerState) {
+            stripedTracerState.tracer.initCurrentTracingContext(5, true);
+        }
+    }
+
+    /**
+     * Many threads trace method entries and returns onto the same tracer which flushes every 64 KiB. With a shared buffer the
+     * threads contend for the lock of the stream, with stripes they merely meet when the stripes are merged.
+     *
+     * @param stripedTracerState  holds the shared tracer
+     * @param stripedContextState initialises the tracing context of the current thread
+     */
+    @Benchmark
+    @Threads(32)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void sharedEntryAndWayout(StripedTracerState stripedTracerState, StripedContextState stripedContextState) {
+        stripedTracerState.tracer.entry("void", this, "sharedEntryAndWayout()");
+        stripedTracerState.tracer.wayout();
+    }
+
+    @State(Scope.Thread)
+    public static class OfflineTracerState {
+        AbstractTracer tracer;
+        long counter;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.tracer = new DiscardingTracer();
+            this.tracer.open();
+            this.tracer.initCurrentTracingContext(5, false);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.tracer.close();
+        }
+    }
+
+    /**
+     * Traces a method on behalf of an offline tracing context, which should cost about as much as {@link #emptyMethod()}.
+     *
+     * @param offlineTracerState holds the tracer
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void offlineEntryAndWayout(OfflineTracerState offlineTracerState) {
+        offlineTracerState.tracer.entry("void", this, "offlineEntryAndWayout()");
+        offlineTracerState.tracer.wayout();
+    }
+
+    /**
+     * Prints two numbers via varargs on behalf of an offline tracing context. The caller boxes the numbers and allocates the array.
+     *
+     * @param offlineTracerState holds the tracer
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void offlineVarargs(OfflineTracerState offlineTracerState) {
+        offlineTracerState.tracer.out().printfIndentln("counter = %d, %d", offlineTracerState.counter++, offlineTracerState.counter);
+    }
+
+    /**
+     * Prints a number via the primitive overload on behalf of an offline tracing context.
+     *
+     * @param offlineTracerState holds the tracer
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void offlinePrimitive(OfflineTracerState offlineTracerState) {
+        offlineTracerState.tracer.out().printfIndentln("counter = %d", offlineTracerState.counter++);
+    }
+
+    /**
+     * Prints a supplied message on behalf of an offline tracing context.
+     *
+     * @param offlineTracerState holds the tracer
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void offlineSupplier(OfflineTracerState offlineTracerState) {
+        long counter = offlineTracerState.counter++;
+        offlineTracerState.tracer.out().printIndentlnLazily(() -> "counter = " + counter);
+    }
+
+    /**
+     * The baseline without any tracing.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void emptyMethod() {
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadMapState {
+        final AbstractThreadMap threadMap = new ThreadLocalMap();
+        final TraceMethod traceMethod = new TraceMethod();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.traceMethod.init("void", PerformanceUnit5.class, "threadMap()"); // leaves the clocks stopped
+            this.threadMap.setCurrentTracingContext(new TracingContext(5, true));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.threadMap.removeCurrentTracingContext();
+        }
+    }
+
+    /**
+     * Replays the thread map accesses of a traced call with a lookup per operation, as done by entry() and wayout() formerly.
+     *
+     * @param threadMapState holds the thread map
+     * @return the debug level, to be consumed by the blackhole
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int lookupPerOperation(ThreadMapState threadMapState) {
+        AbstractThreadMap threadMap = threadMapState.threadMap;
+        int debugLevel = threadMap.getCurrentTracingContext().getDebugLevel() - threadMap.getCurrentStackSize();
+        threadMap.push(threadMapState.traceMethod);
+        threadMap.pop();
+        debugLevel += threadMap.getCurrentTracingContext().getDebugLevel() - threadMap.getCurrentStackSize();
+
+        return debugLevel;
+    }
+
+    /**
+     * The same accesses as {@link #lookupPerOperation(ThreadMapState)} but with a single lookup per entry and wayout.
+     *
+     * @param threadMapState holds the thread map
+     * @return the debug level, to be consumed by the blackhole
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int contextHandle(ThreadMapState threadMapState) {
+        AbstractThreadMap threadMap = threadMapState.threadMap;
+        TracingContext tracingContext = threadMap.getCurrentTracingContext();
+        int debugLevel = tracingContext.getDebugLevel() - tracingContext.getStackSize();
+        threadMap.push(tracingContext, threadMapState.traceMethod);
+        tracingContext = threadMap.getCurrentTracingContext();
+        threadMap.pop(tracingContext);
+        debugLevel += tracingContext.getDebugLevel() - tracingContext.getStackSize();
+
+        return debugLevel;
+    }
+
     @Benchmark
     @OutputTimeUnit(TimeUnit.MILLISECONDS)
     public void triangularNumberWithoutTracing() {
@@ -55,7 +357,7 @@ public class PerformanceUnit5 {
         bannerPrinter.start("runBenchmarks", getClass());
 
         Options options = new OptionsBuilder()
-                .include(this.getClass().getSimpleName())
+                .include(this.getClass().getName() + "\\.")
                 .mode(Mode.AverageTime)
                 .warmupTime(TimeValue.seconds(1))
                 .warmupIterations(6)
@@ -64,6 +366,7 @@ public class PerformanceUnit5 {
                 .forks(1)
                 .shouldFailOnError(true)
                 .shouldDoGC(true)
+                .addProfiler(GCProfiler.class)
                 .build();
         Runner runner = new Runner(options);
         runner.run();
@@ -0,0 +1,103 @@
+package de.christofreichardt.diagnosis;
+
+import de.christofreichardt.diagnosis.io.BinaryTraceOutputStream;
+import de.christofreichardt.diagnosis.io.RecordBuffer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.assertj.core.api.WithAssertions;
+import org.junit.jupiter.api.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TraceMethodUnit5 implements WithAssertions {
+
+    final BannerPrinter bannerPrinter = new BannerPrinter();
+
+    @BeforeAll
+    void printHeader() {
+        this.bannerPrinter.startUnit(getClass());
+    }
+
+    String render(TraceMethod traceMethod) {
+        RecordBuffer recordBuffer = new RecordBuffer();
+        traceMethod.appendSignature(recordBuffer);
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (PrintStream printStream = new PrintStream(byteArrayOutputStream)) {
+            recordBuffer.writeTo(printStream);
+        }
+        return byteArrayOutputStream.toString();
+    }
+
+    @Test
+    void signatures() {
+        this.bannerPrinter.start("signatures", getClass());
+
+        TraceMethod instanceMethod = new TraceMethod("void", this, "signatures()");
+        String expected = String.format("void TraceMethodUnit5[%d].signatures()", System.identityHashCode(this));
+        assertThat(render(instanceMethod)).isEqualTo(expected);
+        assertThat(instanceMethod.getSignature()).isEqualTo(expected);
+
+        TraceMethod staticMethod = new TraceMethod("int", TraceMethodUnit5.class, "staticMethod(int i)");
+        assertThat(render(staticMethod)).isEqualTo("int TraceMethodUnit5.staticMethod(int i)");
+        assertThat(staticMethod.getSignature()).isEqualTo("int TraceMethodUnit5.staticMethod(int i)");
+
+        TraceMethod plainMethod = new TraceMethod("plainMethod()");
+        assertThat(render(plainMethod)).isEqualTo("plainMethod()");
+
+        TraceMethod frame = new TraceMethod();
+        frame.init(null, (Class<?>) null, "deprecatedEntry()");
+        assertThat(render(frame)).isEqualTo("deprecatedEntry()");
+        assertThat(frame.getSignature()).isEqualTo("deprecatedEntry()");
+    }
+
+    @Test
+    void binaryRecords() throws IOException {
+        this.bannerPrinter.start("binaryRecords", getClass());
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        try (BinaryTraceOutputStream binaryTraceOutputStream = new BinaryTraceOutputStream(binary, 512)) {
+            TraceMethod plainMethod = new TraceMethod("plainMethod()");
+            plainMethod.writeEntry(binaryTraceOutputStream, 0, Thread.currentThread());
+            TraceMethod staticMethod = new TraceMethod("int", TraceMethodUnit5.class, "staticMethod()");
+            staticMethod.writeEntry(binaryTraceOutputStream, 1, Thread.currentThread());
+            staticMethod.writeReturn(binaryTraceOutputStream, 1, Thread.currentThread(), TimingMode.NONE, TimeUnit.MILLISECONDS);
+            plainMethod.writeReturn(binaryTraceOutputStream, 0, Thread.currentThread(), TimingMode.NONE, TimeUnit.MILLISECONDS);
+        }
+        ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+        new TraceLogPrinter(new ByteArrayInputStream(binary.toByteArray()), rendered).print();
+
+        assertThat(rendered.toString().lines())
+                .anyMatch(line -> line.matches("ENTRY--plainMethod\\(\\)--main\\[[0-9]+\\]"))
+                .anyMatch(line -> line.matches("  ENTRY--int TraceMethodUnit5\\.staticMethod\\(\\)--main\\[[0-9]+\\]"))
+                .anyMatch(line -> line.startsWith("RETURN-plainMethod()--main["));
+    }
+
+    @Test
+    void interning() {
+        this.bannerPrinter.start("interning", getClass());
+
+        SignatureDescriptor descriptor = SignatureDescriptor.of("void", TraceMethodUnit5.class, "interning()");
+        assertThat(SignatureDescriptor.of("void", TraceMethodUnit5.class, "interning()")).isSameAs(descriptor);
+        SignatureDescriptor overload = SignatureDescriptor.of("int", TraceMethodUnit5.class, "interning()");
+        assertThat(overload).isNotSameAs(descriptor);
+        assertThat(SignatureDescriptor.of("void", TraceMethodUnit5.class, "interning()")).isSameAs(descriptor);
+        assertThat(SignatureDescriptor.of("int", TraceMethodUnit5.class, "interning()")).isSameAs(overload);
+
+        SignatureDescriptor unbound = SignatureDescriptor.of(null, null, "interning()");
+        assertThat(SignatureDescriptor.of(null, null, "interning()")).isSameAs(unbound);
+        assertThat(SignatureDescriptor.of("void", null, "interning()")).isNotSameAs(unbound);
+
+        class Dynamic {
+        }
+        SignatureDescriptor first = SignatureDescriptor.of("void", Dynamic.class, "method0()");
+        for (int i = 0; i < 2 * SignatureDescriptor.MAX_DESCRIPTORS_PER_CLASS; i++) {
+            SignatureDescriptor.of("void", Dynamic.class, "method" + i + "()");
+            assertThat(SignatureDescriptor.cachedDescriptors(Dynamic.class)).isLessThanOrEqualTo(SignatureDescriptor.MAX_DESCRIPTORS_PER_CLASS);
+        }
+        assertThat(SignatureDescriptor.of("void", Dynamic.class, "method0()")).isSameAs(first);
+        assertThat(SignatureDescriptor.of("void", Dynamic.class, "method" + SignatureDescriptor.MAX_DESCRIPTORS_PER_CLASS + "()").signature)
+                .isEqualTo("void Dynamic.method" + SignatureDescriptor.MAX_DESCRIPTORS_PER_CLASS + "()");
+    }
+}
@@ -0,0 +1,168 @@
+package de.christofreichardt.diagnosis;
+
+import de.christofreichardt.util.AffinityPool;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.*;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TracerFactoryPerformanceUnit5 {
+
+    @BeforeAll
+    void printHeader() {
+        final BannerPrinter bannerPrinter = new BannerPrinter();
+        bannerPrinter.startUnit(getClass());
+    }
+
+    @State(Scope.Benchmark)
+    public static class FactoryState {
+
+        @Setup(Level.Trial)
+        public void setUp() throws TracerFactory.Exception, IOException {
+            Path config = Path.of(".", "config", "TraceConfig.xml");
+            TracerFactory.getInstance().readConfiguration(config.toFile());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            TracerFactory.getInstance().reset();
+        }
+    }
+
+    /**
+     * One ThreadLocal read plus a comparison of the configuration generation.
+     *
+     * @param factoryState holds the configuration
+     * @return the tracer of the current thread
+     */
+    @Benchmark
+    @Threads(64)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public AbstractTracer cachedBinding(FactoryState factoryState) {
+        return TracerFactory.getInstance().getCurrentPoolTracer();
+    }
+
+    /**
+     * Looks up the thread id within the bindings of the configuration on every call.
+     *
+     * @param factoryState holds the configuration
+     * @return the tracer of the current thread
+     */
+    @Benchmark
+    @Threads(64)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public AbstractTracer mapLookup(FactoryState factoryState) {
+        return TracerFactory.getInstance().getTracer(Thread.currentThread());
+    }
+
+    /**
+     * Holds the tracers of the queue either within the formerly used deque or within an {@link AffinityPool}. The pool is
+     * smaller than most of the thread counts, hence taking threads will have to wait.
+     */
+    @State(Scope.Benchmark)
+    public static class QueueState {
+
+        static final int QUEUE_SIZE = 8;
+
+        @Param({"deque", "affinity"})
+        public String implementation;
+
+        BlockingDeque<Object> deque;
+        AffinityPool<Object> pool;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            if ("deque".equals(this.implementation)) {
+                this.deque = new LinkedBlockingDeque<>(QUEUE_SIZE);
+                for (int i = 0; i < QUEUE_SIZE; i++) {
+                    this.deque.offerLast(new Object());
+                }
+            } else {
+                this.pool = new AffinityPool<>(QUEUE_SIZE);
+                for (int i = 0; i < QUEUE_SIZE; i++) {
+                    this.pool.offer(new Object());
+                }
+            }
+        }
+
+        Object takeAndOffer() throws InterruptedException {
+            Object tracer;
+            if (this.deque != null) {
+                tracer = this.deque.takeFirst();
+                this.deque.offerLast(tracer);
+            } else {
+                tracer = this.pool.take();
+                this.pool.offer(tracer);
+            }
+            return tracer;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object takeAndOffer001(QueueState queueState) throws InterruptedException {
+        return queueState.takeAndOffer();
+    }
+
+    @Benchmark
+    @Threads(8)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object takeAndOffer008(QueueState queueState) throws InterruptedException {
+        return queueState.takeAndOffer();
+    }
+
+    @Benchmark
+    @Threads(32)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object takeAndOffer032(QueueState queueState) throws InterruptedException {
+        return queueState.takeAndOffer();
+    }
+
+    @Benchmark
+    @Threads(128)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object takeAndOffer128(QueueState queueState) throws InterruptedException {
+        return queueState.takeAndOffer();
+    }
+
+    @Test
+    @Disabled
+    void runBenchmarks() throws RunnerException {
+        final BannerPrinter bannerPrinter = new BannerPrinter();
+        bannerPrinter.start("runBenchmarks", getClass());
+
+        Options options = new OptionsBuilder()
+                .include(this.getClass().getName() + "\\.")
+                .mode(Mode.AverageTime)
+                .warmupTime(TimeValue.seconds(1))
+                .warmupIterations(6)
+                .measurementIterations(6)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .addProfiler(GCProfiler.class)
+                .build();
+        Runner runner = new Runner(options);
+        runner.run();
+    }
+}
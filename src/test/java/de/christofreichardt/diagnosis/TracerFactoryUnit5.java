@@ -126,6 +126,190 @@ public class TracerFactoryUnit5 implements WithAssertions {
         assertThat(TracerFactory.getInstance().getQueueTracerClassname()).isEqualTo("de.christofreichardt.diagnosis.file.QueueFileTracer");
     }
 
+    @Test
+    void reconfiguration() throws IOException, TracerFactory.Exception, InterruptedException, ExecutionException {
+        this.bannerPrinter.start("reconfiguration", getClass());
+
+        Path config = Path.of(".", "config", "TraceConfig.xml");
+        TracerFactory.getInstance().readConfiguration(config.toFile());
+        AbstractTracer firstTracer = TracerFactory.getInstance().getCurrentPoolTracer();
+        assertThat(firstTracer).isSameAs(TracerFactory.getInstance().getTracer("TestTracer-0"));
+        assertThat(TracerFactory.getInstance().getCurrentPoolTracer()).isSameAs(firstTracer);
+
+        // the new configuration replaces the tracers and the bindings of already encountered threads
+        TracerFactory.getInstance().readConfiguration(config.toFile());
+        AbstractTracer secondTracer = TracerFactory.getInstance().getCurrentPoolTracer();
+        assertThat(secondTracer).isNotSameAs(firstTracer);
+        assertThat(secondTracer).isSameAs(TracerFactory.getInstance().getTracer("TestTracer-0"));
+
+        // concurrent lookups from a mapped and an unmapped thread
+        final int THREADS = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<AbstractTracer>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executorService.submit(() -> TracerFactory.getInstance().getCurrentPoolTracer()));
+            }
+            for (Future<AbstractTracer> result : results) {
+                assertThat(result.get()).isSameAs(TracerFactory.getInstance().getDefaultTracer());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        // a reset invalidates the cached binding of the current thread, too
+        TracerFactory.getInstance().reset();
+        assertThat(TracerFactory.getInstance().getCurrentPoolTracer()).isSameAs(TracerFactory.getInstance().getDefaultTracer());
+    }
+
+    @Test
+    void partialReconfiguration() throws IOException, TracerFactory.Exception {
+        this.bannerPrinter.start("partialReconfiguration", getClass());
+
+        TracerFactory.getInstance().readConfiguration(Path.of(".", "config", "TraceConfig.xml").toFile());
+        final AbstractTracer firstTracer = TracerFactory.getInstance().getTracer("TestTracer-0");
+        final AbstractTracer secondTracer = TracerFactory.getInstance().getTracer("TestTracer-1");
+        Thread thread = new Thread(() -> {}, "TestThread-0");
+        assertThat(TracerFactory.getInstance().getTracer(thread)).isSameAs(firstTracer);
+
+        // the configuration redefines a tracer without remapping any thread, the mappings refer to the redefined tracer
+        TracerFactory.getInstance().readConfiguration(Path.of(".", "config", "PartialTraceConfig.xml").toFile());
+        final AbstractTracer redefinedTracer = TracerFactory.getInstance().getTracer("TestTracer-0");
+        assertThat(redefinedTracer).isNotSameAs(firstTracer);
+        assertThat(TracerFactory.getInstance().getTracer(thread)).isSameAs(redefinedTracer);
+        assertThat(TracerFactory.getInstance().getTracer(new Thread(() -> {}, "TestThread-1"))).isSameAs(secondTracer);
+    }
+
+    @Test
+    void threadBindingsAcrossConfigurations() throws IOException, TracerFactory.Exception, InterruptedException, ExecutionException {
+        this.bannerPrinter.start("threadBindingsAcrossConfigurations", getClass());
+
+        Path config = Path.of(".", "config", "ThreadPatternTraceConfig.xml");
+        TracerFactory.getInstance().readConfiguration(config.toFile());
+        final AbstractTracer workerTracer = TracerFactory.getInstance().getTracer("WorkerTracer");
+
+        // a terminated thread which has been mapped by name
+        Thread terminated = new Thread(() -> assertThat(TracerFactory.getInstance().getCurrentPoolTracer()).isSameAs(workerTracer), "Worker-0");
+        terminated.start();
+        terminated.join();
+
+        // a live thread which has been bound by a thread factory
+        final CountDownLatch reconfigured = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor(
+                TracerFactory.getInstance().newThreadFactory("WorkerTracer", Executors.defaultThreadFactory()));
+        try {
+            assertThat(executorService.submit(() -> TracerFactory.getInstance().getCurrentPoolTracer()).get()).isSameAs(workerTracer);
+            Future<AbstractTracer> result = executorService.submit(() -> {
+                reconfigured.await();
+                return TracerFactory.getInstance().getCurrentPoolTracer();
+            });
+
+            TracerFactory.getInstance().readConfiguration(config.toFile());
+            final AbstractTracer nextWorkerTracer = TracerFactory.getInstance().getTracer("WorkerTracer");
+            assertThat(nextWorkerTracer).isNotSameAs(workerTracer);
+            reconfigured.countDown();
+
+            // the live binding has been taken over by the new tracer of the same name, the binding of the terminated thread has been evicted
+            assertThat(result.get()).isSameAs(nextWorkerTracer);
+            Thread successor = new Thread(() -> assertThat(TracerFactory.getInstance().getCurrentPoolTracer()).isSameAs(nextWorkerTracer), "Worker-0");
+            assertThat(TracerFactory.getInstance().getTracer(successor)).isSameAs(nextWorkerTracer);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    void threadPatterns() throws IOException, TracerFactory.Exception, InterruptedException, ExecutionException {
+        this.bannerPrinter.start("threadPatterns", getClass());
+
+        Path config = Path.of(".", "config", "ThreadPatternTraceConfig.xml");
+        TracerFactory.getInstance().readConfiguration(config.toFile());
+        final AbstractTracer requestTracer = TracerFactory.getInstance().getTracer("RequestTracer");
+        final AbstractTracer workerTracer = TracerFactory.getInstance().getTracer("WorkerTracer");
+        final AbstractTracer defaultTracer = TracerFactory.getInstance().getDefaultTracer();
+        assertThat(requestTracer.getMaxStackSize()).isEqualTo(AbstractThreadMap.STACK_SIZE);
+        assertThat(workerTracer.getMaxStackSize()).isEqualTo(200);
+        assertThat(((FileTracer) requestTracer).isStriped()).isTrue();
+        assertThat(((FileTracer) workerTracer).isStriped()).isFalse();
+
+        // threads matching the pattern may share their names
+        final int THREADS = 4;
+        for (String threadName : List.of("Request-1", "Request-1", "Request-22", "Request-x")) {
+            ExecutorService executorService = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, threadName));
+            try {
+                AbstractTracer expectedTracer = threadName.matches("Request-[0-9]+") ? requestTracer : defaultTracer;
+                assertThat(executorService.submit(() -> TracerFactory.getInstance().getCurrentPoolTracer()).get()).isSameAs(expectedTracer);
+            } finally {
+                executorService.shutdown();
+            }
+        }
+
+        // threads created by the factory are bound irrespective of their names
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS,
+                TracerFactory.getInstance().newThreadFactory("WorkerTracer", Executors.defaultThreadFactory()));
+        try {
+            List<Future<AbstractTracer>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executorService.submit(() -> TracerFactory.getInstance().getCurrentPoolTracer()));
+            }
+            for (Future<AbstractTracer> result : results) {
+                assertThat(result.get()).isSameAs(workerTracer);
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        assertThatExceptionOfType(TracerFactory.Exception.class).isThrownBy(
+                () -> TracerFactory.getInstance().newThreadFactory("UnknownTracer", Executors.defaultThreadFactory())
+        );
+
+        // the name of a terminated thread becomes available again as soon as the thread has been collected
+        Thread worker = new Thread(() -> assertThat(TracerFactory.getInstance().getCurrentPoolTracer()).isSameAs(workerTracer), "Worker-0");
+        worker.start();
+        worker.join();
+        worker = null;
+        final int TRIALS = 50;
+        AbstractTracer[] tracers = new AbstractTracer[1];
+        for (int i = 0; i < TRIALS && tracers[0] != workerTracer; i++) {
+            System.gc();
+            Thread.sleep(10);
+            Thread successor = new Thread(() -> tracers[0] = TracerFactory.getInstance().getCurrentPoolTracer(), "Worker-0");
+            successor.start();
+            successor.join();
+        }
+        assertThat(tracers[0]).isSameAs(workerTracer);
+    }
+
+    @Test
+    void threadPatternsAcrossConfigurations() throws IOException, TracerFactory.Exception, InterruptedException, ExecutionException {
+        this.bannerPrinter.start("threadPatternsAcrossConfigurations", getClass());
+
+        TracerFactory.getInstance().readConfiguration(Path.of(".", "config", "ThreadPatternTraceConfig.xml").toFile());
+        final AbstractTracer requestTracer = TracerFactory.getInstance().getTracer("RequestTracer");
+        final AbstractTracer workerTracer = TracerFactory.getInstance().getTracer("WorkerTracer");
+        ThreadFactory threadFactory = TracerFactory.getInstance().newThreadFactory("WorkerTracer", Executors.defaultThreadFactory());
+        assertThat(TracerFactory.getInstance().getTracer(new Thread(() -> {}, "Request-1"))).isSameAs(requestTracer);
+        assertThat(TracerFactory.getInstance().getTracer(threadFactory.newThread(() -> {}))).isSameAs(workerTracer);
+
+        // patterns and thread factories refer to the redefined tracers
+        TracerFactory.getInstance().readConfiguration(Path.of(".", "config", "PartialTraceConfig.xml").toFile());
+        final AbstractTracer redefinedRequestTracer = TracerFactory.getInstance().getTracer("RequestTracer");
+        final AbstractTracer redefinedWorkerTracer = TracerFactory.getInstance().getTracer("WorkerTracer");
+        assertThat(redefinedRequestTracer).isNotSameAs(requestTracer);
+        assertThat(redefinedWorkerTracer).isNotSameAs(workerTracer);
+        assertThat(TracerFactory.getInstance().getTracer(new Thread(() -> {}, "Request-1"))).isSameAs(redefinedRequestTracer);
+        assertThat(TracerFactory.getInstance().getTracer(threadFactory.newThread(() -> {}))).isSameAs(redefinedWorkerTracer);
+        ExecutorService executorService = Executors.newSingleThreadExecutor(threadFactory);
+        try {
+            assertThat(executorService.submit(() -> TracerFactory.getInstance().getCurrentPoolTracer()).get()).isSameAs(redefinedWorkerTracer);
+        } finally {
+            executorService.shutdown();
+        }
+
+        // after a reset the thread factory doesn't bind any longer
+        TracerFactory.getInstance().reset();
+        assertThat(TracerFactory.getInstance().getTracer(threadFactory.newThread(() -> {}))).isSameAs(TracerFactory.getInstance().getDefaultTracer());
+    }
+
     @Test
     void unknownTracerByName() {
         this.bannerPrinter.start("unknownTracerByName", getClass());
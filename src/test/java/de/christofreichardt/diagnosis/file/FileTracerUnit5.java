@@ -2,19 +2,38 @@ package de.christofreichardt.diagnosis.file;
 
 import de.christofreichardt.diagnosis.AbstractTracer;
 import de.christofreichardt.diagnosis.BannerPrinter;
+import de.christofreichardt.diagnosis.FlushPolicy;
+import de.christofreichardt.diagnosis.LogLevel;
+import de.christofreichardt.diagnosis.TimingMode;
+import de.christofreichardt.diagnosis.TraceLogPrinter;
+import de.christofreichardt.diagnosis.TraceMethod;
+import de.christofreichardt.diagnosis.TraceScope;
 import de.christofreichardt.diagnosis.TracerFactory;
+import de.christofreichardt.diagnosis.io.AsyncOutputStream;
+import de.christofreichardt.diagnosis.io.MappedOutputStream;
 import de.christofreichardt.diagnosis.io.NullPrintStream;
 import de.christofreichardt.diagnosis.io.TracePrintStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.LineNumberReader;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import org.assertj.core.api.WithAssertions;
 import org.junit.jupiter.api.*;
 
@@ -77,6 +96,18 @@ public class FileTracerUnit5 implements WithAssertions {
                 .withMessageContaining("Value '134217729' is not facet-valid with respect to maxInclusive '134217728'");
     }
 
+    @Test
+    void stripedAsyncFileSizeLimit() {
+        this.bannerPrinter.start("stripedAsyncFileSizeLimit", getClass());
+
+        Path config = Path.of(".", "config", "InvalidTraceConfig_8.xml");
+        assertThatExceptionOfType(TracerFactory.Exception.class).isThrownBy(
+                        () -> TracerFactory.getInstance().readConfiguration(config.toFile())
+                )
+                .havingCause()
+                .withMessage("Striped asynchronous trace files cannot be rotated, tracer: TestTracer-0");
+    }
+
     @Test
     void simpleFileTracer() {
         this.bannerPrinter.start("simpleFileTracer", getClass());
@@ -226,6 +257,735 @@ public class FileTracerUnit5 implements WithAssertions {
         }
     }
 
+    @Test
+    void asyncFileTracer() throws IOException, TracerFactory.Exception {
+        this.bannerPrinter.start("asyncFileTracer", getClass());
+
+        Path config = Path.of(".", "config", "AsyncTraceConfig.xml");
+        TracerFactory.getInstance().readConfiguration(config.toFile());
+        final FileTracer tracer = (FileTracer) TracerFactory.getInstance().getTracer("AsyncTracer");
+        assertThat(tracer.getAsyncCapacity()).isEqualTo(256);
+        assertThat(tracer.getBackPressure()).isEqualTo(AsyncOutputStream.BackPressure.BLOCK);
+
+        final int LINES = 10000;
+        tracer.open();
+        try {
+            tracer.initCurrentTracingContext();
+            tracer.entry("void", this, "asyncFileTracer()");
+            try {
+                for (int i = 0; i < LINES; i++) {
+                    tracer.out().printfIndentln("line = %d", i);
+                }
+            } finally {
+                tracer.wayout();
+            }
+        } finally {
+            tracer.close();
+        }
+        assertThat(tracer.getDroppedRecords()).isEqualTo(0L);
+
+        List<String> lines = Files.readAllLines(Path.of(".", "log", "AsyncTracer.log"));
+        int expected = 0;
+        for (String line : lines) {
+            if (line.startsWith("  line = ")) {
+                assertThat(line).isEqualTo("  line = " + expected++);
+            }
+        }
+        assertThat(expected).isEqualTo(LINES);
+        assertThat(lines.get(lines.size() - 2)).isEqualTo("--> TraceLog closing!");
+    }
+
+    @Test
+    void concurrentAsyncFileTracer() throws IOException, InterruptedException, ExecutionException {
+        this.bannerPrinter.start("concurrentAsyncFileTracer", getClass());
+
+        final String TRACER_NAME = "ConcurrentAsync";
+        final int THREADS = 4, LINES = 5000;
+        final FileTracer tracer = new FileTracer(TRACER_NAME);
+        tracer.setAsyncCapacity(16);
+        tracer.setBackPressure(AsyncOutputStream.BackPressure.DROP_NEWEST);
+        tracer.open();
+        tracer.initCurrentTracingContext(5, true);
+        assertThat(((TracePrintStream) tracer.out()).isLockFree()).isTrue();
+        tracer.clearCurrentTracingContext();
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                final int id = i;
+                futures.add(executorService.submit(() -> {
+                    tracer.initCurrentTracingContext(5, true);
+                    tracer.entry("void", this, "concurrentAsyncFileTracer()");
+                    try {
+                        for (int j = 0; j < LINES; j++) {
+                            tracer.out().printIndentString().print("thread = " + id);
+                            tracer.out().println(", line = " + j);
+                        }
+                    } finally {
+                        tracer.wayout();
+                        tracer.clearCurrentTracingContext();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+            tracer.close();
+        }
+
+        List<String> lines = Files.readAllLines(Path.of(".", "log", String.format("%s.log", TRACER_NAME)));
+        long written = lines.stream().filter(line -> line.startsWith("  thread = ")).count();
+        assertThat(lines.stream().filter(line -> line.contains("thread = "))).allMatch(line -> line.matches("  thread = [0-9], line = [0-9]+"));
+        assertThat(written + tracer.getDroppedRecords()).isGreaterThanOrEqualTo(THREADS * LINES);
+    }
+
+    @Test
+    void asyncFileRolling() throws IOException, InterruptedException, ExecutionException {
+        this.bannerPrinter.start("asyncFileRolling", getClass());
+
+        final String TRACER_NAME = "AsyncRolling";
+        final int THREADS = 4, LINES = 2000;
+        final long LIMIT = 16384;
+        final FileTracer tracer = new FileTracer(TRACER_NAME);
+        tracer.setAsyncCapacity(64);
+        tracer.setByteLimit(LIMIT);
+        tracer.open();
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                final int id = i;
+                futures.add(executorService.submit(() -> {
+                    tracer.initCurrentTracingContext(5, true);
+                    tracer.entry("void", this, "asyncFileRolling()");
+                    try {
+                        for (int j = 0; j < LINES; j++) {
+                            tracer.out().printfIndentln("thread = %d, line = %d", id, j);
+                        }
+                    } finally {
+                        tracer.wayout();
+                        tracer.clearCurrentTracingContext();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+            tracer.close();
+        }
+
+        List<Path> splitFiles = new ArrayList<>();
+        for (int i = 0; Files.exists(LOGDIR.resolve(String.format("%s.%d.log", TRACER_NAME, i))); i++) {
+            splitFiles.add(LOGDIR.resolve(String.format("%s.%d.log", TRACER_NAME, i)));
+        }
+        assertThat(splitFiles).hasSizeGreaterThanOrEqualTo(3);
+        long written = 0;
+        for (Path splitFile : splitFiles) {
+            List<String> lines = Files.readAllLines(splitFile);
+            assertThat(Files.size(splitFile)).isGreaterThan(LIMIT);
+            assertThat(lines.get(0)).isEqualTo("--> TraceLog opened!");
+            assertThat(lines.get(lines.size() - 2)).isEqualTo("--> TraceLog closing!");
+            written += lines.stream().filter(line -> line.contains("thread = ")).count();
+        }
+        List<String> lines = Files.readAllLines(LOGDIR.resolve(String.format("%s.log", TRACER_NAME)));
+        assertThat(lines.get(0)).isEqualTo("--> TraceLog opened!");
+        written += lines.stream().filter(line -> line.contains("thread = ")).count();
+        assertThat(written).isEqualTo(THREADS * LINES);
+    }
+
+    @Test
+    void asyncCloseWhilePublishing() throws IOException, InterruptedException, ExecutionException {
+        this.bannerPrinter.start("asyncCloseWhilePublishing", getClass());
+
+        final int THREADS = 4, ITERATIONS = 20;
+        final byte[] RECORD = "record\n".getBytes();
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int i = 0; i < ITERATIONS; i++) {
+                ByteArrayOutputStream file = new ByteArrayOutputStream();
+                AsyncOutputStream asyncOutputStream = new AsyncOutputStream(file, 4, AsyncOutputStream.BackPressure.BLOCK, "CloseWhilePublishing");
+                List<Future<Integer>> futures = new ArrayList<>();
+                for (int j = 0; j < THREADS; j++) {
+                    futures.add(executorService.submit(() -> {
+                        int published = 0;
+                        try {
+                            while (true) {
+                                asyncOutputStream.write(RECORD);
+                                published++;
+                            }
+                        } catch (IOException ex) {
+                            assertThat(ex).hasMessage("Stream closed.");
+                        }
+                        return published;
+                    }));
+                }
+                Thread.sleep(5);
+                asyncOutputStream.close();
+                int published = 0;
+                for (Future<Integer> future : futures) {
+                    published += future.get();
+                }
+                assertThat(file.size()).isEqualTo(published * RECORD.length);
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    void mappedFileTracer() throws IOException {
+        this.bannerPrinter.start("mappedFileTracer", getClass());
+
+        final String TRACER_NAME = "Mapped";
+        final MappedFileTracer tracer = new MappedFileTracer(TRACER_NAME);
+        final long LIMIT = 65536;
+        final int LINES = 24000;
+        final int ROTATIONS = 3;
+        assertThat(MappedOutputStream.isSupported()).isTrue();
+        tracer.setWindowSize(4096);
+        tracer.setByteLimit(LIMIT);
+        try {
+            tracer.open();
+            tracer.initCurrentTracingContext(5, true);
+            for (int i = 0; i < LINES; i++) {
+                tracer.out().printfIndentln("line = %d", i);
+                tracer.out().flush();
+            }
+        } finally {
+            tracer.close();
+        }
+
+        List<Path> paths = new ArrayList<>();
+        for (Path path = LOGDIR.resolve(String.format("%s.0.log", TRACER_NAME)); Files.exists(path);
+             path = LOGDIR.resolve(String.format("%s.%d.log", TRACER_NAME, paths.size()))) {
+            assertThat(path.toFile().length()).isGreaterThanOrEqualTo(LIMIT);
+            paths.add(path);
+        }
+        assertThat(paths).hasSizeGreaterThanOrEqualTo(ROTATIONS);
+        paths.add(Path.of(".", "log", String.format("%s.log", TRACER_NAME)));
+        int expected = 0;
+        for (Path logPath : paths) {
+            byte[] bytes = Files.readAllBytes(logPath);
+            for (byte b : bytes) {
+                assertThat(b).isNotEqualTo((byte) 0);
+            }
+            List<String> lines = Files.readAllLines(logPath);
+            for (String line : lines) {
+                if (line.startsWith("line = ")) {
+                    assertThat(line).isEqualTo("line = " + expected++);
+                }
+            }
+            assertThat(lines.get(lines.size() - 2)).isEqualTo("--> TraceLog closing!");
+        }
+        assertThat(expected).isEqualTo(LINES);
+    }
+
+    @Test
+    void mappedFileTracerFallback() throws IOException {
+        this.bannerPrinter.start("mappedFileTracerFallback", getClass());
+
+        final String TRACER_NAME = "MappedFallback";
+        final MappedFileTracer tracer = new MappedFileTracer(TRACER_NAME);
+        String osName = System.getProperty("os.name");
+        System.setProperty("os.name", "Windows 11");
+        try {
+            assertThat(MappedOutputStream.isSupported()).isFalse();
+            assertThatExceptionOfType(UnsupportedOperationException.class)
+                    .isThrownBy(() -> new MappedOutputStream(LOGDIR.resolve("Unsupported.log"), 4096));
+            tracer.open();
+            try {
+                tracer.initCurrentTracingContext(5, true);
+                tracer.out().printfIndentln("line = %d", 0);
+            } finally {
+                tracer.close();
+            }
+        } finally {
+            System.setProperty("os.name", osName);
+        }
+
+        List<String> lines = Files.readAllLines(LOGDIR.resolve(String.format("%s.log", TRACER_NAME)));
+        assertThat(lines).contains("line = 0");
+        assertThat(lines.get(lines.size() - 2)).isEqualTo("--> TraceLog closing!");
+    }
+
+    @Test
+    void flushPolicy() throws IOException, InterruptedException {
+        this.bannerPrinter.start("flushPolicy", getClass());
+
+        assertThat(FlushPolicy.parse("always")).isSameAs(FlushPolicy.ALWAYS);
+        assertThat(FlushPolicy.parse("never")).isSameAs(FlushPolicy.NEVER);
+        FlushPolicy policy = FlushPolicy.parse("interval:2s,bytes:64k");
+        assertThat(policy.getIntervalMillis()).isEqualTo(2000L);
+        assertThat(policy.getByteThreshold()).isEqualTo(65536L);
+        assertThat(policy.isFlushDue(65535)).isFalse();
+        assertThat(policy.isFlushDue(65536)).isTrue();
+        assertThatIllegalArgumentException().isThrownBy(() -> FlushPolicy.parse("interval:50"));
+
+        final String TRACER_NAME = "Flush";
+        final FileTracer tracer = new FileTracer(TRACER_NAME);
+        tracer.setBufferSize(8192);
+        tracer.setFlushPolicy(FlushPolicy.parse("interval:20ms"));
+        assertThat(tracer.isAutoflush()).isFalse();
+        Path path = Path.of(".", "log", String.format("%s.log", TRACER_NAME));
+        try {
+            tracer.open();
+            tracer.initCurrentTracingContext(5, true);
+            tracer.entry("void", this, "flushPolicy()");
+            try {
+                tracer.out().printfIndentln("This is a test.");
+            } finally {
+                tracer.wayout();
+            }
+            assertThat(Files.readString(path)).doesNotContain("RETURN-void");
+            final long DEADLINE = System.currentTimeMillis() + 5000;
+            while (!Files.readString(path).contains("RETURN-void") && System.currentTimeMillis() < DEADLINE) {
+                Thread.sleep(10);
+            }
+            assertThat(Files.readString(path)).contains("RETURN-void");
+        } finally {
+            tracer.close();
+        }
+    }
+
+    @Test
+    void timingMode() throws IOException {
+        this.bannerPrinter.start("timingMode", getClass());
+
+        final String TRACER_NAME = "Timing";
+        final FileTracer tracer = new FileTracer(TRACER_NAME);
+        try {
+            tracer.open();
+            tracer.initCurrentTracingContext(0, true);
+            for (TimingMode timingMode : TimingMode.values()) {
+                tracer.setTimingMode(timingMode);
+                tracer.entry("void", this, "timingMode()");
+                try {
+                    TraceMethod traceMethod = tracer.entry("void", this, "notPrinted()");
+                    assertThat(traceMethod.getTimingMode()).isEqualTo(TimingMode.NONE);
+                    tracer.wayout();
+                } finally {
+                    tracer.wayout();
+                }
+            }
+        } finally {
+            tracer.close();
+        }
+
+        List<String> lines = Files.readAllLines(Path.of(".", "log", String.format("%s.log", TRACER_NAME)));
+        List<String> returnLines = lines.stream()
+                .filter(line -> line.startsWith("RETURN-"))
+                .collect(Collectors.toList());
+        assertThat(returnLines).hasSize(3);
+        assertThat(returnLines.get(0)).matches("RETURN-void FileTracerUnit5\\[[0-9]+\\]\\.timingMode\\(\\)--main\\[[0-9]+\\]");
+        assertThat(returnLines.get(1)).matches("RETURN-void FileTracerUnit5\\[[0-9]+\\]\\.timingMode\\(\\)--\\(\\+[0-9]+ms\\)--main\\[[0-9]+\\]");
+        assertThat(returnLines.get(2)).matches("RETURN-void FileTracerUnit5\\[[0-9]+\\]\\.timingMode\\(\\)--\\(\\+[0-9]+ms\\)--\\(\\+[0-9]+ms\\)--main\\[[0-9]+\\]");
+        assertThat(lines).noneMatch(line -> line.contains("notPrinted()"));
+    }
+
+    @Test
+    void timingUnit() throws IOException, InterruptedException {
+        this.bannerPrinter.start("timingUnit", getClass());
+
+        final String TRACER_NAME = "TimingUnit";
+        final FileTracer tracer = new FileTracer(TRACER_NAME);
+        assertThatIllegalArgumentException().isThrownBy(() -> tracer.setTimingUnit(TimeUnit.SECONDS));
+        TraceMethod traceMethod;
+        try {
+            tracer.open();
+            tracer.initCurrentTracingContext(2, true);
+            tracer.setTimingMode(TimingMode.WALL);
+            for (TimeUnit timeUnit : List.of(TimeUnit.NANOSECONDS, TimeUnit.MICROSECONDS)) {
+                tracer.setTimingUnit(timeUnit);
+                tracer.entry("void", this, "timingUnit()");
+                tracer.wayout();
+            }
+            tracer.entry("void", this, "sleep()");
+            try {
+                Thread.sleep(5);
+            } finally {
+                traceMethod = tracer.wayout();
+            }
+        } finally {
+            tracer.close();
+        }
+
+        assertThat(traceMethod.getElapsed().toMillis()).isGreaterThanOrEqualTo(5);
+        assertThat(traceMethod.getElapsedNanos()).isEqualTo(traceMethod.getElapsed().toNanos());
+        assertThat(traceMethod.getElapsedTime()).isEqualTo(traceMethod.getElapsed().toMillis());
+        List<String> lines = Files.readAllLines(Path.of(".", "log", String.format("%s.log", TRACER_NAME)));
+        List<String> returnLines = lines.stream()
+                .filter(line -> line.startsWith("RETURN-"))
+                .collect(Collectors.toList());
+        assertThat(returnLines).hasSize(3);
+        assertThat(returnLines.get(0)).matches("RETURN-void FileTracerUnit5\\[[0-9]+\\]\\.timingUnit\\(\\)--\\(\\+[0-9]+ns\\)--main\\[[0-9]+\\]");
+        assertThat(returnLines.get(1)).matches("RETURN-void FileTracerUnit5\\[[0-9]+\\]\\.timingUnit\\(\\)--\\(\\+[0-9]+us\\)--main\\[[0-9]+\\]");
+    }
+
+    @Test
+    void maxStackSize() throws IOException {
+        this.bannerPrinter.start("maxStackSize", getClass());
+
+        final String TRACER_NAME = "MaxStackSize";
+        final int DEPTH = 100;
+        final FileTracer tracer = new FileTracer(TRACER_NAME);
+        assertThatIllegalArgumentException().isThrownBy(() -> tracer.setMaxStackSize(0));
+        try {
+            tracer.open();
+            tracer.setMaxStackSize(DEPTH);
+            tracer.initCurrentTracingContext(DEPTH, true);
+            for (int i = 0; i < DEPTH; i++) {
+                assertThat(tracer.entry("void", this, "recurse()")).isNotNull();
+            }
+            for (int i = 0; i < DEPTH; i++) {
+                assertThat(tracer.wayout()).isNotNull();
+            }
+            tracer.clearCurrentTracingContext();
+
+            tracer.setMaxStackSize(3);
+            tracer.initCurrentTracingContext(DEPTH, true);
+            for (int i = 0; i < 4; i++) {
+                tracer.entry("void", this, "overflow()");
+            }
+            assertThat(tracer.wayout()).isNull();
+            tracer.clearCurrentTracingContext();
+        } finally {
+            tracer.close();
+        }
+
+        List<String> lines = Files.readAllLines(Path.of(".", "log", String.format("%s.log", TRACER_NAME)));
+        assertThat(lines.stream().filter(line -> line.contains("RETURN-void FileTracerUnit5"))).hasSize(DEPTH);
+        assertThat(lines.stream().filter(line -> line.contains("Stacksize is exceeded."))).hasSize(1);
+    }
+
+    @Test
+    void scopedEntries() throws IOException {
+        this.bannerPrinter.start("scopedEntries", getClass());
+
+        final String TRACER_NAME = "ScopedEntries";
+        final FileTracer tracer = new FileTracer(TRACER_NAME);
+        try {
+            tracer.open();
+            assertThat(tracer.scopedEntry("void", this, "noContext()")).isSameAs(TraceScope.NONE);
+            tracer.initCurrentTracingContext(5, true);
+            try (TraceScope outer = tracer.scopedEntry("void", this, "scopedEntries()")) {
+                assertThat(outer.getTraceMethod().getMethodName()).isEqualTo("scopedEntries()");
+                assertThatIllegalStateException().isThrownBy(() -> {
+                    try (TraceScope inner = tracer.scopedEntry("void", FileTracerUnit5.class, "inner()")) {
+                        assertThat(inner.getTraceMethod().getMethodName()).isEqualTo("inner()");
+                        tracer.entry("void", this, "unbalanced()");
+                        throw new IllegalStateException();
+                    }
+                });
+                TraceScope reused = tracer.scopedEntry("void", this, "reused()");
+                reused.close();
+                reused.close();
+                assertThat(tracer.entry("void", this, "balanced()")).isNotNull();
+                assertThat(tracer.wayout().getMethodName()).isEqualTo("balanced()");
+            }
+            assertThat(tracer.wayout()).isNull();
+            tracer.clearCurrentTracingContext();
+        } finally {
+            tracer.close();
+        }
+
+        List<String> lines = Files.readAllLines(Path.of(".", "log", String.format("%s.log", TRACER_NAME)));
+        assertThat(lines).noneMatch(line -> line.contains("noContext()"));
+        assertThat(lines.stream().filter(line -> line.contains("RETURN-void FileTracerUnit5"))).hasSize(5);
+        assertThat(lines.stream().filter(line -> line.contains("RETURN-void FileTracerUnit5[") && line.contains("unbalanced()"))).hasSize(1);
+        assertThat(lines.stream().filter(line -> line.contains("reused()"))).hasSize(2);
+        assertThat(lines.stream().filter(line -> line.contains("Stack is corrupted."))).hasSize(1);
+    }
+
+    @Test
+    void staleScopes() throws IOException {
+        this.bannerPrinter.start("staleScopes", getClass());
+
+        final String TRACER_NAME = "StaleScopes";
+        final FileTracer tracer = new FileTracer(TRACER_NAME);
+        try {
+            tracer.open();
+            tracer.initCurrentTracingContext(5, true);
+            try (TraceScope outer = tracer.scopedEntry("void", this, "staleScopes()")) {
+                TraceScope stale = tracer.scopedEntry("void", this, "manualWayout()");
+                assertThat(tracer.wayout().getMethodName()).isEqualTo("manualWayout()");
+                TraceMethod reentered = tracer.entry("void", this, "reentered()");
+                assertThat(reentered).isSameAs(stale.getTraceMethod());
+                stale.close();
+                assertThat(tracer.wayout()).isSameAs(reentered);
+                assertThat(outer.getTraceMethod().getMethodName()).isEqualTo("staleScopes()");
+            }
+
+            TraceScope orphaned = tracer.scopedEntry("void", this, "orphaned()");
+            tracer.clearCurrentTracingContext();
+            tracer.initCurrentTracingContext(5, true);
+            tracer.entry("void", this, "freshContext()");
+            orphaned.close();
+            assertThat(tracer.wayout().getMethodName()).isEqualTo("freshContext()");
+            tracer.clearCurrentTracingContext();
+        } finally {
+            tracer.close();
+        }
+
+        List<String> lines = Files.readAllLines(Path.of(".", "log", String.format("%s.log", TRACER_NAME)));
+        assertThat(lines).noneMatch(line -> line.contains("Stack is corrupted."));
+        assertThat(lines.stream().filter(line -> line.contains("RETURN-void FileTracerUnit5"))).hasSize(4);
+        assertThat(lines.stream().filter(line -> line.contains("RETURN-void FileTracerUnit5") && line.contains("reentered()"))).hasSize(1);
+        assertThat(lines.stream().filter(line -> line.contains("RETURN-void FileTracerUnit5") && line.contains("orphaned()"))).isEmpty();
+    }
+
+    @Test
+    void singleArgumentOverloads() throws IOException {
+        this.bannerPrinter.start("singleArgumentOverloads", getClass());
+
+        final String TRACER_NAME = "Overloads";
+        final FileTracer tracer = new FileTracer(TRACER_NAME);
+        final AtomicInteger invocations = new AtomicInteger();
+        try {
+            tracer.open();
+            tracer.initCurrentTracingContext(1, true);
+            tracer.entry("void", this, "singleArgumentOverloads()");
+            try {
+                tracer.out().printfIndentln("byte = %x", (byte) -128);
+                tracer.out().printfIndentln("short = %x", (short) -1);
+                tracer.out().printfIndentln("int = %d", 1);
+                tracer.out().printfIndentln("long = %d", 2L);
+                tracer.out().printfIndentln("char = %s", 'c');
+                tracer.out().printfIndentln("float = %s", 0.5f);
+                tracer.out().printfIndentln("double = %s", 0.25);
+                tracer.out().printfIndentln("object = %s", List.of("x"));
+                tracer.out().printIndentLazily(() -> "supplied ").println(invocations.incrementAndGet());
+                tracer.out().printIndentln(null);
+                tracer.entry("void", this, "belowDebugLevel()");
+                try {
+                    assertThat(tracer.out()).isInstanceOf(NullPrintStream.class);
+                    tracer.out().printIndentlnLazily(() -> "discarded " + invocations.incrementAndGet());
+                } finally {
+                    tracer.wayout();
+                }
+            } finally {
+                tracer.wayout();
+            }
+        } finally {
+            tracer.close();
+        }
+
+        assertThat(invocations).hasValue(1);
+        List<String> lines = Files.readAllLines(Path.of(".", "log", String.format("%s.log", TRACER_NAME)));
+        assertThat(lines).containsSequence("  byte = 80", "  short = ffff", "  int = 1", "  long = 2", "  char = c", "  float = 0.5", "  double = 0.25", "  object = [x]", "  supplied 1", "  null");
+        assertThat(lines).noneMatch(line -> line.contains("discarded"));
+    }
+
+    @Test
+    void logRecords() throws IOException {
+        this.bannerPrinter.start("logRecords", getClass());
+
+        final String TRACER_NAME = "LogRecords";
+        final FileTracer tracer = new FileTracer(TRACER_NAME);
+        try {
+            tracer.open();
+            tracer.logMessage(LogLevel.INFO, "Within logRecords().", getClass(), "logRecords()");
+            tracer.logException(LogLevel.WARNING, new IllegalStateException(String.format("  first%nsecond  ")), getClass(), "logRecords()");
+            tracer.logException(LogLevel.SEVERE, new IllegalStateException(), getClass(), "logRecords()");
+        } finally {
+            tracer.close();
+        }
+
+        List<String> lines = Files.readAllLines(Path.of(".", "log", String.format("%s.log", TRACER_NAME)));
+        String threadInfo = String.format("\\[%d,%s\\] \\[%s\\] \\[logRecords\\(\\)\\]",
+                Thread.currentThread().getId(), Thread.currentThread().getName(), Pattern.quote(getClass().getName()));
+        String timestamp = "\\[[0-9]{4}-[0-9]{2}-[0-9]{2}T[0-9]{2}:[0-9]{2}:[0-9]{2}\\.[0-9]{3}\\]";
+        int header = lines.indexOf("+------+");
+        assertThat(header).isNotNegative();
+        assertThat(lines.get(header + 1)).matches("\\| INFO \\|  " + timestamp + " " + threadInfo + " \"Within logRecords\\(\\)\\.\"");
+        assertThat(lines.get(header + 2)).isEqualTo("+------+");
+        assertThat(lines.get(header + 3)).isEqualTo("+---------+");
+        assertThat(lines.get(header + 4)).matches("\\| WARNING \\|  " + timestamp + " " + threadInfo + " \"first => second\"");
+        assertThat(lines.get(header + 5)).isEqualTo("+---------+");
+        assertThat(lines.get(header + 6)).isEqualTo("java.lang.IllegalStateException:   first");
+        assertThat(lines).anyMatch(line -> line.matches("\\| SEVERE \\|  " + timestamp + " " + threadInfo + " \"No message\\.\""));
+    }
+
+    @Test
+    void stripedFileTracer() throws IOException, InterruptedException, ExecutionException {
+        this.bannerPrinter.start("stripedFileTracer", getClass());
+
+        final String TRACER_NAME = "Striped";
+        final int THREADS = 8, LINES = 2000;
+        final FileTracer tracer = new FileTracer(TRACER_NAME);
+        tracer.setBufferSize(512);
+        tracer.setStriped(true);
+        tracer.open();
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                final int id = i;
+                futures.add(executorService.submit(() -> {
+                    tracer.initCurrentTracingContext(5, true);
+                    tracer.entry("void", this, "stripedFileTracer()");
+                    try {
+                        for (int j = 0; j < LINES; j++) {
+                            tracer.entry("void", this, "line()");
+                            try {
+                                tracer.out().printfIndentln("T%d: %d", id, j);
+                            } finally {
+                                tracer.wayout();
+                            }
+                        }
+                        tracer.logMessage(LogLevel.INFO, "T" + id + " done.", getClass(), "stripedFileTracer()");
+                    } finally {
+                        tracer.wayout();
+                        tracer.clearCurrentTracingContext();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+            tracer.close();
+        }
+
+        List<String> lines = Files.readAllLines(Path.of(".", "log", String.format("%s.log", TRACER_NAME)));
+        assertThat(lines).contains("    Striped  : true");
+        assertThat(lines.get(lines.size() - 2)).isEqualTo("--> TraceLog closing!");
+        int[] expected = new int[THREADS];
+        Pattern pattern = Pattern.compile("    T([0-9]): ([0-9]+)");
+        for (String line : lines) {
+            if (line.matches("    T[0-9].*")) {
+                Matcher matcher = pattern.matcher(line);
+                assertThat(matcher.matches()).isTrue();
+                int id = Integer.parseInt(matcher.group(1));
+                assertThat(Integer.parseInt(matcher.group(2))).isEqualTo(expected[id]++);
+            } else if (line.contains("line()")) {
+                assertThat(line).matches("  (ENTRY--|RETURN-)void FileTracerUnit5\\[[0-9]+\\]\\.line\\(\\)--.+");
+            }
+        }
+        assertThat(expected).containsOnly(LINES);
+        assertThat(lines.stream().filter(line -> line.matches("\\| INFO \\|  .+ \"T[0-9] done\\.\""))).hasSize(THREADS);
+    }
+
+    @Test
+    void stripedFileRolling() throws IOException, InterruptedException, ExecutionException {
+        this.bannerPrinter.start("stripedFileRolling", getClass());
+
+        final String TRACER_NAME = "StripedRolling";
+        final int THREADS = 4, LINES = 4000;
+        final long LIMIT = 16384;
+        final FileTracer tracer = new FileTracer(TRACER_NAME);
+        tracer.setBufferSize(512);
+        tracer.setStriped(true);
+        tracer.setByteLimit(LIMIT);
+        tracer.open();
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                final int id = i;
+                futures.add(executorService.submit(() -> {
+                    tracer.initCurrentTracingContext(5, true);
+                    tracer.entry("void", this, "stripedFileRolling()");
+                    try {
+                        for (int j = 0; j < LINES; j++) {
+                            tracer.out().printfIndentln("T%d: %d", id, j);
+                        }
+                    } finally {
+                        tracer.wayout();
+                        tracer.clearCurrentTracingContext();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+            tracer.close();
+        }
+
+        List<Path> traceFiles = new ArrayList<>();
+        for (int i = 0; Files.exists(LOGDIR.resolve(String.format("%s.%d.log", TRACER_NAME, i))); i++) {
+            traceFiles.add(LOGDIR.resolve(String.format("%s.%d.log", TRACER_NAME, i)));
+        }
+        assertThat(traceFiles).isNotEmpty();
+        for (Path splitFile : traceFiles) {
+            List<String> lines = Files.readAllLines(splitFile);
+            assertThat(Files.size(splitFile)).isGreaterThan(LIMIT);
+            assertThat(lines.get(lines.size() - 2)).isEqualTo("--> TraceLog closing!");
+        }
+        traceFiles.add(LOGDIR.resolve(String.format("%s.log", TRACER_NAME)));
+        int[] expected = new int[THREADS];
+        Pattern pattern = Pattern.compile("  T([0-9]): ([0-9]+)");
+        for (Path traceFile : traceFiles) {
+            List<String> lines = Files.readAllLines(traceFile);
+            assertThat(lines.get(0)).isEqualTo("--> TraceLog opened!");
+            assertThat(lines).contains("    Striped  : true");
+            for (String line : lines) {
+                Matcher matcher = pattern.matcher(line);
+                if (matcher.matches()) {
+                    int id = Integer.parseInt(matcher.group(1));
+                    assertThat(Integer.parseInt(matcher.group(2))).isEqualTo(expected[id]++);
+                }
+            }
+        }
+        assertThat(expected).containsOnly(LINES);
+    }
+
+    @Test
+    void binaryFormat() throws IOException {
+        this.bannerPrinter.start("binaryFormat", getClass());
+
+        final FileTracer textTracer = new FileTracer("Text");
+        final FileTracer binaryTracer = new FileTracer("Binary");
+        binaryTracer.setFormat(FileTracer.Format.BINARY);
+        for (FileTracer tracer : List.of(textTracer, binaryTracer)) {
+            tracer.setTimingMode(TimingMode.NONE);
+            try {
+                tracer.open();
+                tracer.initCurrentTracingContext(5, true);
+                tracer.entry("void", this, "binaryFormat()");
+                try {
+                    tracer.out().printfIndentln("Umlauts: %s", "\u00e4\u00f6\u00fc");
+                    tracer.entry("int", FileTracerUnit5.class, "staticMethod()");
+                    try {
+                        tracer.out().printfIndentln("i = %d", 42);
+                    } finally {
+                        tracer.wayout();
+                    }
+                } finally {
+                    tracer.wayout();
+                }
+            } finally {
+                tracer.close();
+            }
+        }
+
+        Path binaryPath = Path.of(".", "log", "Binary.log");
+        byte[] bytes = Files.readAllBytes(binaryPath);
+        ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+        try (InputStream inputStream = Files.newInputStream(binaryPath)) {
+            new TraceLogPrinter(inputStream, rendered).print();
+        }
+        List<String> textLines = Files.readAllLines(Path.of(".", "log", "Text.log")).stream()
+                .filter(line -> !line.startsWith("    Time"))
+                .collect(Collectors.toList());
+        List<String> renderedLines = rendered.toString().lines()
+                .filter(line -> !line.startsWith("    Time") && !line.startsWith("    Format"))
+                .collect(Collectors.toList());
+        assertThat(renderedLines).isEqualTo(textLines);
+        assertThat(renderedLines).anyMatch(line -> line.matches("  ENTRY--int FileTracerUnit5\\.staticMethod\\(\\)--main\\[[0-9]+\\]"));
+        assertThat(bytes.length).isLessThan(rendered.size());
+
+        assertThatExceptionOfType(IOException.class).isThrownBy(
+                () -> new TraceLogPrinter(Files.newInputStream(Path.of(".", "log", "Text.log")), new ByteArrayOutputStream()).print()
+        );
+    }
+
     @Test
     void example() {
         this.bannerPrinter.start("example", getClass());
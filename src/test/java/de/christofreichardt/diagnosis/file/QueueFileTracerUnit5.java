@@ -1,6 +1,7 @@
 package de.christofreichardt.diagnosis.file;
 
 import de.christofreichardt.diagnosis.*;
+import de.christofreichardt.diagnosis.io.IndentablePrintStream;
 import de.christofreichardt.diagnosis.io.NullPrintStream;
 import de.christofreichardt.diagnosis.io.TracePrintStream;
 import java.io.FileInputStream;
@@ -8,7 +9,10 @@ import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -20,6 +24,7 @@ import java.util.stream.Collectors;
 import org.assertj.core.api.WithAssertions;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -250,4 +255,362 @@ public class QueueFileTracerUnit5 implements WithAssertions {
             assertThat(actualConsumers).isEqualTo(expectedConsumers);
         }
     }
+
+    @Test
+    void threadAffinity() throws IOException, TracerFactory.Exception, InterruptedException {
+        this.bannerPrinter.start("threadAffinity", getClass());
+
+        TracerFactory.getInstance().readConfiguration(Path.of(".", "config", "TraceConfig.xml").toFile());
+        assertThat(TracerFactory.getInstance().openQueueTracer()).isTrue();
+        try {
+            final int ITERATIONS = 100;
+            QueueTracer<?> firstTracer = TracerFactory.getInstance().takeTracer();
+            firstTracer.initCurrentTracingContext();
+            firstTracer.entry("void", this, "threadAffinity()");
+            firstTracer.wayout();
+            for (int i = 0; i < ITERATIONS; i++) {
+                QueueTracer<?> tracer = TracerFactory.getInstance().takeTracer();
+                assertThat(tracer).isSameAs(firstTracer);
+                tracer.initCurrentTracingContext();
+                tracer.entry("void", this, "threadAffinity()");
+                tracer.wayout();
+            }
+
+            final int THREAD_NUMBER = 3;
+            CountDownLatch taken = new CountDownLatch(THREAD_NUMBER), released = new CountDownLatch(1);
+            Set<QueueTracer<?>> takenTracers = ConcurrentHashMap.newKeySet();
+            ExecutorService executorService = Executors.newFixedThreadPool(THREAD_NUMBER);
+            try {
+                for (int i = 0; i < THREAD_NUMBER; i++) {
+                    executorService.submit(() -> {
+                        QueueTracer<?> tracer = TracerFactory.getInstance().takeTracer();
+                        tracer.initCurrentTracingContext();
+                        tracer.entry("void", this, "threadAffinity()");
+                        takenTracers.add(tracer);
+                        taken.countDown();
+                        try {
+                            released.await();
+                        } finally {
+                            tracer.wayout();
+                        }
+                        return null;
+                    });
+                }
+                assertThat(taken.await(5, TimeUnit.SECONDS)).isTrue();
+                assertThat(takenTracers).hasSize(THREAD_NUMBER);
+            } finally {
+                released.countDown();
+                executorService.shutdown();
+                assertThat(executorService.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+            }
+        } finally {
+            assertThat(TracerFactory.getInstance().closeQueueTracer()).isTrue();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(TracerFactory.Overflow.class)
+    void overflow(TracerFactory.Overflow overflow) throws IOException, TracerFactory.Exception, InterruptedException {
+        this.bannerPrinter.start("overflow", getClass());
+        System.out.printf("overflow = %s%n", overflow);
+
+        System.setProperty("de.christofreichardt.diagnosis.queue.Overflow", overflow.name());
+        try {
+            TracerFactory.getInstance().readConfiguration(Path.of(".", "config", "OverflowQueueTraceConfig.xml").toFile());
+        } finally {
+            System.clearProperty("de.christofreichardt.diagnosis.queue.Overflow");
+        }
+        assertThat(TracerFactory.getInstance().getQueueOverflow()).isEqualTo(overflow);
+        assertThat(TracerFactory.getInstance().getQueueSize()).isEqualTo(2);
+        assertThat(TracerFactory.getInstance().getQueueMaxSize()).isEqualTo(4);
+        assertThat(TracerFactory.getInstance().openQueueTracer()).isTrue();
+        final int THREAD_NUMBER = 6;
+        List<QueueTracer<?>> takenTracers = Collections.synchronizedList(new ArrayList<>());
+        try {
+            CountDownLatch taken = new CountDownLatch(THREAD_NUMBER), released = new CountDownLatch(1);
+            ExecutorService executorService = Executors.newFixedThreadPool(THREAD_NUMBER);
+            try {
+                for (int i = 0; i < THREAD_NUMBER; i++) {
+                    executorService.submit(() -> {
+                        QueueTracer<?> tracer = TracerFactory.getInstance().tryTakeTracer();
+                        tracer.initCurrentTracingContext();
+                        tracer.entry("void", this, "overflow()");
+                        takenTracers.add(tracer);
+                        taken.countDown();
+                        try {
+                            released.await();
+                        } finally {
+                            tracer.wayout();
+                        }
+                        return null;
+                    });
+                }
+                assertThat(taken.await(5, TimeUnit.SECONDS)).isTrue();
+
+                QueueTracer<?> timedOutTracer = TracerFactory.getInstance().takeTracer(Duration.ofMillis(20));
+                assertThat(timedOutTracer).isInstanceOf(overflow == TracerFactory.Overflow.SPILL ? QueueFileTracer.class : QueueNullTracer.class);
+                timedOutTracer.initCurrentTracingContext();
+                timedOutTracer.entry("void", this, "overflow()");
+                timedOutTracer.wayout();
+            } finally {
+                released.countDown();
+                executorService.shutdown();
+                assertThat(executorService.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+            }
+
+            List<QueueTracer<?>> queueNullTracers = takenTracers.stream()
+                    .filter(tracer -> tracer instanceof QueueNullTracer)
+                    .collect(Collectors.toList());
+            Set<QueueTracer<?>> pooledTracers = takenTracers.stream()
+                    .filter(tracer -> !(tracer instanceof QueueNullTracer) && !tracer.getName().endsWith("Spill"))
+                    .collect(Collectors.toSet());
+            long spilled = takenTracers.stream()
+                    .filter(tracer -> tracer.getName().equals("OverflowTracerSpill"))
+                    .count();
+            switch (overflow) {
+                case NULL:
+                    assertThat(pooledTracers).hasSize(2);
+                    assertThat(queueNullTracers).hasSize(4);
+                    assertThat(TracerFactory.getInstance().getQueueOverflows()).isEqualTo(5);
+                    break;
+                case GROW:
+                    assertThat(pooledTracers).hasSize(4);
+                    assertThat(queueNullTracers).hasSize(2);
+                    assertThat(TracerFactory.getInstance().getQueueOverflows()).isEqualTo(3);
+                    break;
+                case SPILL:
+                    assertThat(pooledTracers).hasSize(2);
+                    assertThat(spilled).isEqualTo(4);
+                    assertThat(TracerFactory.getInstance().getQueueOverflows()).isEqualTo(5);
+                    break;
+            }
+            assertThat(TracerFactory.getInstance().getQueueWaitTimes().getTotalCount()).isEqualTo(THREAD_NUMBER + 1);
+            assertThat(TracerFactory.getInstance().getQueueWaitTimes().getQuantileUpperBound(1.0)).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(20));
+            System.out.printf("waitTimes = %s%n", TracerFactory.getInstance().getQueueWaitTimes());
+
+            QueueTracer<?> tracer = TracerFactory.getInstance().tryTakeTracer();
+            assertThat(pooledTracers).contains(tracer);
+            tracer.initCurrentTracingContext();
+            tracer.entry("void", this, "overflow()");
+            tracer.wayout();
+        } finally {
+            assertThat(TracerFactory.getInstance().closeQueueTracer()).isTrue();
+        }
+        assertThat(Files.exists(LOGDIR.resolve("OverflowTracerSpill.log"))).isEqualTo(overflow == TracerFactory.Overflow.SPILL);
+        assertThat(Files.exists(LOGDIR.resolve("OverflowTracer3.log"))).isEqualTo(overflow == TracerFactory.Overflow.GROW);
+    }
+
+    @Test
+    void elasticQueue() throws IOException, TracerFactory.Exception, InterruptedException {
+        this.bannerPrinter.start("elasticQueue", getClass());
+
+        TracerFactory.getInstance().readConfiguration(Path.of(".", "config", "ElasticQueueTraceConfig.xml").toFile());
+        assertThat(TracerFactory.getInstance().getQueueSize()).isEqualTo(4);
+        assertThat(TracerFactory.getInstance().getQueueMinSize()).isEqualTo(1);
+        assertThat(TracerFactory.getInstance().openQueueTracer()).isTrue();
+        try {
+            assertThat(TracerFactory.getInstance().getOpenedQueueTracers()).isEqualTo(1);
+            assertThat(Files.exists(LOGDIR.resolve("ElasticTracer0.log"))).isTrue();
+            assertThat(Files.exists(LOGDIR.resolve("ElasticTracer1.log"))).isFalse();
+
+            final int THREAD_NUMBER = 4;
+            for (int round = 0; round < 2; round++) {
+                Set<QueueTracer<?>> takenTracers = ConcurrentHashMap.newKeySet();
+                CountDownLatch taken = new CountDownLatch(THREAD_NUMBER), released = new CountDownLatch(1);
+                ExecutorService executorService = Executors.newFixedThreadPool(THREAD_NUMBER);
+                try {
+                    for (int i = 0; i < THREAD_NUMBER; i++) {
+                        executorService.submit(() -> {
+                            QueueTracer<?> tracer = TracerFactory.getInstance().takeTracer();
+                            tracer.initCurrentTracingContext();
+                            tracer.entry("void", this, "elasticQueue()");
+                            takenTracers.add(tracer);
+                            taken.countDown();
+                            try {
+                                released.await();
+                            } finally {
+                                tracer.wayout();
+                            }
+                            return null;
+                        });
+                    }
+                    assertThat(taken.await(5, TimeUnit.SECONDS)).isTrue();
+                    assertThat(takenTracers).hasSize(THREAD_NUMBER);
+                    assertThat(takenTracers).allMatch(AbstractTracer::isOpened);
+                    assertThat(TracerFactory.getInstance().getOpenedQueueTracers()).isEqualTo(THREAD_NUMBER);
+                } finally {
+                    released.countDown();
+                    executorService.shutdown();
+                    assertThat(executorService.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+                }
+
+                // the idle tracers are closed while the queue is in use, the available tracers remain within the queue meanwhile
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (TracerFactory.getInstance().getOpenedQueueTracers() > 1 && System.nanoTime() < deadline) {
+                    try (QueueTracerScope scope = TracerFactory.getInstance().acquireQueueTracer(Duration.ZERO)) {
+                        assertThat(scope.getTracer()).isNotInstanceOf(QueueNullTracer.class);
+                    }
+                }
+                assertThat(TracerFactory.getInstance().getOpenedQueueTracers()).isEqualTo(1);
+            }
+            assertThat(TracerFactory.getInstance().getQueueOverflows()).isZero();
+        } finally {
+            assertThat(TracerFactory.getInstance().closeQueueTracer()).isTrue();
+        }
+        assertThat(TracerFactory.getInstance().getOpenedQueueTracers()).isZero();
+        assertThat(Files.exists(LOGDIR.resolve("ElasticTracer3.log"))).isTrue();
+
+        // the reopened tracers have appended their output of the second round
+        for (int i = 0; i < 4; i++) {
+            List<String> lines = Files.readAllLines(LOGDIR.resolve(String.format("ElasticTracer%d.log", i)));
+            assertThat(lines.stream().filter(line -> line.startsWith("ENTRY--void QueueFileTracerUnit5") && line.contains(".elasticQueue()"))).hasSize(2);
+        }
+    }
+
+    @Test
+    void scopedAcquisition() throws IOException, TracerFactory.Exception {
+        this.bannerPrinter.start("scopedAcquisition", getClass());
+
+        TracerFactory.getInstance().readConfiguration(Path.of(".", "config", "TraceConfig.xml").toFile());
+        assertThat(TracerFactory.getInstance().openQueueTracer()).isTrue();
+        try {
+            final int ITERATIONS = 20;
+            for (int i = 0; i < ITERATIONS; i++) {
+                try (QueueTracerScope scope = TracerFactory.getInstance().acquireQueueTracer()) {
+                    QueueTracer<?> tracer = scope.getTracer();
+                    assertThat(tracer).isInstanceOf(QueueFileTracer.class);
+                    assertThat(TracerFactory.getInstance().getCurrentQueueTracer()).isSameAs(tracer);
+                    tracer.entry("void", this, "scopedAcquisition()");
+                    tracer.entry("void", this, "balanced()");
+                    tracer.wayout();
+                    tracer.wayout();
+                    assertThat(TracerFactory.getInstance().getCurrentQueueTracer()).isSameAs(tracer);
+                    tracer.entry("void", this, "unbalanced()");
+                    if (i % 2 == 0) {
+                        throw new IllegalStateException("Skipping wayout().");
+                    }
+                } catch (IllegalStateException ex) {
+                    assertThat(ex).hasMessage("Skipping wayout().");
+                }
+                assertThat(TracerFactory.getInstance().getCurrentQueueTracer()).isInstanceOf(QueueNullTracer.class);
+            }
+
+            List<QueueTracerScope> scopes = new ArrayList<>();
+            try {
+                for (int i = 0; i < TracerFactory.getInstance().getQueueSize(); i++) {
+                    scopes.add(TracerFactory.getInstance().acquireQueueTracer());
+                }
+                assertThat(scopes.stream().map(QueueTracerScope::getTracer).collect(Collectors.toSet())).hasSize(TracerFactory.getInstance().getQueueSize());
+                assertThat(TracerFactory.getInstance().tryTakeTracer()).isInstanceOf(QueueNullTracer.class);
+            } finally {
+                scopes.forEach(QueueTracerScope::close);
+            }
+        } finally {
+            assertThat(TracerFactory.getInstance().closeQueueTracer()).isTrue();
+        }
+    }
+
+    @Test
+    void leaseTimeout() throws IOException, TracerFactory.Exception, InterruptedException {
+        this.bannerPrinter.start("leaseTimeout", getClass());
+
+        TracerFactory.getInstance().readConfiguration(Path.of(".", "config", "LeaseQueueTraceConfig.xml").toFile());
+        assertThat(TracerFactory.getInstance().openQueueTracer()).isTrue();
+        try {
+            Set<QueueTracer<?>> leakedTracers = new HashSet<>();
+            for (int i = 0; i < TracerFactory.getInstance().getQueueSize(); i++) {
+                QueueTracer<?> tracer = TracerFactory.getInstance().takeTracer();
+                tracer.initCurrentTracingContext();
+                tracer.entry("void", this, "leaseTimeout()");
+                leakedTracers.add(tracer);
+                tracer.clearCurrentTracingContext();
+            }
+            assertThat(leakedTracers).hasSize(2);
+            assertThat(TracerFactory.getInstance().tryTakeTracer()).isInstanceOf(QueueNullTracer.class);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (TracerFactory.getInstance().getReclaimedQueueTracers() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(TracerFactory.getInstance().getReclaimedQueueTracers()).isEqualTo(2);
+            assertThat(TracerFactory.getInstance().getCurrentQueueTracer()).isInstanceOf(QueueNullTracer.class);
+
+            try (QueueTracerScope scope = TracerFactory.getInstance().acquireQueueTracer(Duration.ofSeconds(1))) {
+                assertThat(leakedTracers).contains(scope.getTracer());
+                scope.getTracer().entry("void", this, "leaseTimeout()");
+                scope.getTracer().wayout();
+            }
+            assertThat(TracerFactory.getInstance().getReclaimedQueueTracers()).isEqualTo(2);
+        } finally {
+            assertThat(TracerFactory.getInstance().closeQueueTracer()).isTrue();
+        }
+    }
+
+    @Test
+    void revokedLease() throws IOException, TracerFactory.Exception, InterruptedException, ExecutionException, TimeoutException {
+        this.bannerPrinter.start("revokedLease", getClass());
+
+        TracerFactory.getInstance().readConfiguration(Path.of(".", "config", "LeaseQueueTraceConfig.xml").toFile());
+        assertThat(TracerFactory.getInstance().openQueueTracer()).isTrue();
+        try {
+            CountDownLatch taken = new CountDownLatch(1), resumed = new CountDownLatch(1);
+            List<QueueTracer<?>> staleTracer = new CopyOnWriteArrayList<>();
+            ExecutorService executorService = Executors.newSingleThreadExecutor();
+            try {
+                Future<List<Object>> formerHolder = executorService.submit(() -> {
+                    QueueTracer<?> tracer = TracerFactory.getInstance().takeTracer();
+                    staleTracer.add(tracer);
+                    tracer.initCurrentTracingContext();
+                    tracer.entry("void", this, "revokedLease()");
+                    taken.countDown();
+                    assertThat(resumed.await(5, TimeUnit.SECONDS)).isTrue();
+                    IndentablePrintStream out = tracer.out();
+                    TraceMethod traceMethod = tracer.entry("void", this, "afterReclaim()");
+                    out.printIndentln("This line must be dropped.");
+                    return Arrays.asList(out, traceMethod, tracer.wayout(), tracer.wayout());
+                });
+                assertThat(taken.await(5, TimeUnit.SECONDS)).isTrue();
+
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (TracerFactory.getInstance().getReclaimedQueueTracers() < 1 && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertThat(TracerFactory.getInstance().getReclaimedQueueTracers()).isEqualTo(1);
+
+                try (QueueTracerScope first = TracerFactory.getInstance().acquireQueueTracer();
+                     QueueTracerScope second = TracerFactory.getInstance().acquireQueueTracer()) {
+                    QueueTracer<?> tracer = first.getTracer() == staleTracer.get(0) ? first.getTracer() : second.getTracer();
+                    assertThat(tracer).isSameAs(staleTracer.get(0));
+                    tracer.entry("void", this, "revokedLease()");
+                    try {
+                        resumed.countDown();
+                        List<Object> results = formerHolder.get(5, TimeUnit.SECONDS);
+                        assertThat(results.get(0)).isInstanceOf(NullPrintStream.class);
+                        assertThat(results.subList(1, results.size())).containsOnlyNulls();
+                        assertThat(tracer.out()).isInstanceOf(TracePrintStream.class);
+                    } finally {
+                        tracer.wayout();
+                    }
+                }
+            } finally {
+                executorService.shutdown();
+                assertThat(executorService.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+            }
+
+            Set<QueueTracer<?>> pooledTracers = new HashSet<>();
+            for (int i = 0; i < TracerFactory.getInstance().getQueueSize(); i++) {
+                pooledTracers.add(TracerFactory.getInstance().tryTakeTracer());
+            }
+            assertThat(pooledTracers).hasSize(2).contains(staleTracer.get(0));
+            assertThat(TracerFactory.getInstance().tryTakeTracer()).isInstanceOf(QueueNullTracer.class);
+        } finally {
+            assertThat(TracerFactory.getInstance().closeQueueTracer()).isTrue();
+        }
+        assertThat(Files.exists(LOGDIR.resolve("LeaseTracer0.log"))).isTrue();
+        try (DirectoryStream<Path> logFiles = Files.newDirectoryStream(LOGDIR, "LeaseTracer*.log")) {
+            for (Path logFile : logFiles) {
+                assertThat(Files.readAllLines(logFile)).noneMatch(line -> line.contains("This line must be dropped."));
+            }
+        }
+    }
 }
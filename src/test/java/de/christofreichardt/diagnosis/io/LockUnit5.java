@@ -6,6 +6,12 @@ import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.assertj.core.api.WithAssertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -84,6 +90,50 @@ public class LockUnit5 implements WithAssertions {
         }
     }
 
+    @Test
+    void unlockedLines() throws IOException, InterruptedException, ExecutionException {
+        this.bannerPrinter.start("unlockedLines", getClass());
+
+        final int THREADS = 4, LINES = 2000;
+        final String PADDING = "x".repeat(200);
+        FileTracer fileTracer = new FileTracer("Test");
+        fileTracer.setLogDirPath(LOGDIR);
+        fileTracer.open();
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                final int id = i;
+                futures.add(executorService.submit(() -> {
+                    fileTracer.initCurrentTracingContext(1, true);
+                    fileTracer.entry("void", this, "unlockedLines()");
+                    try {
+                        for (int j = 0; j < LINES; j++) {
+                            if (j % 2 == 0) {
+                                fileTracer.out().printfIndentln("T%d: %d %s", id, j, PADDING);
+                            } else {
+                                fileTracer.out().printIndentln("T" + id + ": " + j + " " + PADDING);
+                            }
+                        }
+                    } finally {
+                        fileTracer.wayout();
+                        fileTracer.clearCurrentTracingContext();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+            fileTracer.close();
+        }
+
+        List<String> lines = Files.readAllLines(LOGDIR.resolve("Test.log"));
+        assertThat(lines.stream().filter(line -> line.startsWith("  T"))).hasSize(THREADS * LINES)
+                .allMatch(line -> line.matches("  T[0-9]: [0-9]+ " + PADDING));
+    }
+
     @Test
     void runWithLock() {
         this.bannerPrinter.start("runWithLock", getClass());